@@ -42,6 +42,25 @@ public class VerificationSerializer implements Serializer<Verification> {
         return verification;
     }
 
+    public Verification[] deserializeArray(String jsonVerifications) {
+        Verification[] verifications = new Verification[]{};
+        if (jsonVerifications != null && !jsonVerifications.isEmpty()) {
+            try {
+                VerificationDTO[] verificationDTOs = objectMapper.readValue(jsonVerifications, VerificationDTO[].class);
+                if (verificationDTOs != null && verificationDTOs.length > 0) {
+                    verifications = new Verification[verificationDTOs.length];
+                    for (int i = 0; i < verificationDTOs.length; i++) {
+                        verifications[i] = verificationDTOs[i].buildObject();
+                    }
+                }
+            } catch (Exception e) {
+                logger.info("Exception while parsing response [" + jsonVerifications + "] for Verification[]", e);
+                throw new RuntimeException("Exception while parsing response [" + jsonVerifications + "] for Verification[]", e);
+            }
+        }
+        return verifications;
+    }
+
     @Override
     public Class<Verification> supportsType() {
         return Verification.class;
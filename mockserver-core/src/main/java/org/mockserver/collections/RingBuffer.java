@@ -0,0 +1,164 @@
+package org.mockserver.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A fixed capacity buffer that keeps the most recently added values, each value is given a monotonically increasing
+ * sequence number and once the buffer is full each new value evicts the value added capacity values before it
+ * <p>
+ * Writers never lock, each writer claims a sequence number and then publishes its value into the slot for that
+ * sequence, readers take a snapshot of a sequence range that ends at the first value not yet published, so a snapshot
+ * is always a contiguous run of sequences (less any removed or evicted values) in the order they were added
+ *
+ * @author jamesdbloom
+ */
+public class RingBuffer<V> {
+
+    private final int capacity;
+    private final AtomicReferenceArray<Slot<V>> slots;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final AtomicLong clearedSequence = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public RingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least one but was " + capacity);
+        }
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<Slot<V>>(capacity);
+    }
+
+    /**
+     * @return the sequence number of the value
+     */
+    public long add(V value) {
+        if (value == null) {
+            throw new NullPointerException("value must not be null");
+        }
+        long sequence = nextSequence.getAndIncrement();
+        int index = index(sequence);
+        Slot<V> slot = new Slot<V>(sequence, value);
+        while (true) {
+            Slot<V> existingSlot = slots.get(index);
+            if (existingSlot != null && existingSlot.sequence > sequence) {
+                // a writer that claimed a later sequence for this slot has already published, so this value was evicted
+                evictions.incrementAndGet();
+                return sequence;
+            } else if (slots.compareAndSet(index, existingSlot, slot)) {
+                if (existingSlot != null && existingSlot.value != null && existingSlot.sequence >= clearedSequence.get()) {
+                    evictions.incrementAndGet();
+                }
+                return sequence;
+            }
+        }
+    }
+
+    /**
+     * @return the value with the sequence number, or null if it has been evicted, removed or not yet published
+     */
+    public V get(long sequence) {
+        Slot<V> slot = slots.get(index(sequence));
+        return slot != null && slot.sequence == sequence && sequence >= clearedSequence.get() ? slot.value : null;
+    }
+
+    /**
+     * @return true if the value with the sequence number has been published, even if it has since been evicted or removed
+     */
+    public boolean isPublished(long sequence) {
+        Slot<V> slot = slots.get(index(sequence));
+        return sequence < nextSequence.get() && slot != null && slot.sequence >= sequence;
+    }
+
+    /**
+     * Removes the value with the sequence number if it is still the value provided
+     *
+     * @return true if the value was removed
+     */
+    public boolean remove(long sequence, V value) {
+        int index = index(sequence);
+        Slot<V> slot = slots.get(index);
+        return slot != null && slot.sequence == sequence && slot.value == value && slots.compareAndSet(index, slot, new Slot<V>(sequence, null));
+    }
+
+    /**
+     * Removes every value added before this is called
+     */
+    public void clear() {
+        long sequence = nextSequence.get();
+        long cleared;
+        while ((cleared = clearedSequence.get()) < sequence && !clearedSequence.compareAndSet(cleared, sequence)) {
+            // retry until this or a later clear is recorded
+        }
+    }
+
+    /**
+     * @return the values from the first retained sequence up to the first sequence not yet published
+     */
+    public List<V> snapshot() {
+        return snapshot(firstSequence(), nextSequence());
+    }
+
+    /**
+     * @param fromSequence the first sequence (inclusive)
+     * @param toSequence   the last sequence (exclusive)
+     * @return the values in the range that are still retained, in sequence order, ending at the first sequence in the
+     * range that has been claimed by a writer but not yet published
+     */
+    public List<V> snapshot(long fromSequence, long toSequence) {
+        long start = Math.max(fromSequence, firstSequence());
+        long end = Math.min(toSequence, nextSequence());
+        List<V> values = new ArrayList<V>((int) Math.max(0, Math.min(end - start, capacity)));
+        for (long sequence = start; sequence < end; sequence++) {
+            Slot<V> slot = slots.get(index(sequence));
+            if (slot == null || slot.sequence < sequence) {
+                break;
+            } else if (slot.sequence == sequence && slot.value != null) {
+                values.add(slot.value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return the sequence of the oldest value that may still be retained
+     */
+    public long firstSequence() {
+        return Math.max(nextSequence.get() - capacity, clearedSequence.get());
+    }
+
+    /**
+     * @return the sequence that will be given to the next value added
+     */
+    public long nextSequence() {
+        return nextSequence.get();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of values that were evicted by newer values before being removed or cleared
+     */
+    public long evictions() {
+        return evictions.get();
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % capacity);
+    }
+
+    private static class Slot<V> {
+        private final long sequence;
+        // null once the value has been removed
+        private final V value;
+
+        Slot(long sequence, V value) {
+            this.sequence = sequence;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.mockserver.collections;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that is incremented by many threads without them all contending on a single value, each thread increments
+ * one of several stripes chosen by its thread id and the count is the sum of every stripe
+ * <p>
+ * Each stripe is padded onto its own cache line so threads incrementing different stripes do not invalidate each
+ * other's caches, the sum is exact once increments have stopped but only approximate while they continue
+ *
+ * @author jamesdbloom
+ */
+public class StripedCounter {
+
+    private static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+    // longs per 64 byte cache line
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray stripes = new AtomicLongArray(STRIPES * PADDING);
+
+    private static int stripes(int processors) {
+        int stripes = 1;
+        while (stripes < processors * 2 && stripes < 64) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+
+    public void increment() {
+        stripes.incrementAndGet(stripe() * PADDING);
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            sum += stripes.get(stripe * PADDING);
+        }
+        return sum;
+    }
+
+    public void reset() {
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            stripes.set(stripe * PADDING, 0);
+        }
+    }
+
+    private static int stripe() {
+        long id = Thread.currentThread().getId();
+        // mix the bits of the thread id so consecutive ids are spread over the stripes
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (hash >>> 16) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,53 @@
+package org.mockserver.collections;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of values that are not thread safe, such as compiled xpath expressions or schema validators, each thread
+ * keeps its own values so they are never shared, and each thread keeps at most a fixed number of the most recently
+ * used values so the memory held per thread is bounded however many keys are used
+ *
+ * @author jamesdbloom
+ */
+public abstract class ThreadLocalCache<K, V> {
+
+    private final ThreadLocal<Map<K, V>> values;
+
+    public ThreadLocalCache(final int maximumSize) {
+        this.values = new ThreadLocal<Map<K, V>>() {
+            @Override
+            protected Map<K, V> initialValue() {
+                return new LinkedHashMap<K, V>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                        return size() > maximumSize;
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * @return the value of the key for the current thread, which is created if the current thread has no value for the
+     * key, a null value is cached like any other value
+     */
+    public V get(K key) {
+        Map<K, V> values = this.values.get();
+        V value = values.get(key);
+        if (value == null && !values.containsKey(key)) {
+            value = create(key);
+            values.put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * @return the number of values cached for the current thread
+     */
+    public int size() {
+        return values.get().size();
+    }
+
+    protected abstract V create(K key);
+}
@@ -61,6 +61,121 @@ public class ConfigurationProperties {
         System.setProperty("mockserver.enableCORSForAllResponses", "" + enableCORSForAPI);
     }
 
+    // matcher config
+    public static boolean bidirectionalRegexMatching() {
+        return Boolean.parseBoolean(readPropertyHierarchically("mockserver.bidirectionalRegexMatching", "" + true));
+    }
+
+    /**
+     * When enabled (the default) a matched value is also treated as a regex for the expectation's value, when disabled
+     * literal expectation values are only compared for equality and regex values are only matched forwards
+     *
+     * @param bidirectionalRegexMatching true to match strings as regexes in both directions
+     */
+    public static void bidirectionalRegexMatching(boolean bidirectionalRegexMatching) {
+        System.setProperty("mockserver.bidirectionalRegexMatching", "" + bidirectionalRegexMatching);
+    }
+
+    public static boolean compiledExpectationMatching() {
+        return Boolean.parseBoolean(readPropertyHierarchically("mockserver.compiledExpectationMatching", "" + false));
+    }
+
+    /**
+     * When enabled the active expectations are compiled into a network of shared conditions, so a condition common to
+     * many expectations is only evaluated once per request, when disabled (the default) each expectation is matched alone,
+     * this is read when a MockServerMatcher is created, the network is compiled when the expectations are changed and
+     * when info logging is enabled each expectation is matched alone so the result of matching it is logged as before
+     *
+     * @param compiledExpectationMatching true to match requests using a network compiled from the expectations
+     */
+    public static void compiledExpectationMatching(boolean compiledExpectationMatching) {
+        System.setProperty("mockserver.compiledExpectationMatching", "" + compiledExpectationMatching);
+    }
+
+    public static long matchedExpectationCacheSize() {
+        return readLongProperty("mockserver.matchedExpectationCacheSize", 0);
+    }
+
+    /**
+     * The maximum number of distinct requests for which the matched expectation is cached until the expectations
+     * change, this is read when a MockServerMatcher is created and the default of zero disables the cache
+     *
+     * @param matchedExpectationCacheSize the maximum number of cached requests
+     */
+    public static void matchedExpectationCacheSize(long matchedExpectationCacheSize) {
+        System.setProperty("mockserver.matchedExpectationCacheSize", "" + matchedExpectationCacheSize);
+    }
+
+    // request log config
+    public static int requestLogSize() {
+        return readLongProperty("mockserver.requestLogSize", 100).intValue();
+    }
+
+    /**
+     * The maximum number of requests kept in the request log for retrieval and verification, once the log is full each
+     * new request evicts the oldest request, this is read when the request log is created
+     *
+     * @param requestLogSize the maximum number of requests in the request log
+     */
+    public static void requestLogSize(int requestLogSize) {
+        System.setProperty("mockserver.requestLogSize", "" + requestLogSize);
+    }
+
+    public static String requestJournalDirectory() {
+        return readPropertyHierarchically("mockserver.requestJournalDirectory", "");
+    }
+
+    /**
+     * The directory that every request, and for a proxy every response, is journalled to in memory mapped segment files
+     * so retrieval and verification cover the full request history, by default (i.e. empty) requests are not journalled
+     *
+     * @param requestJournalDirectory the directory the request journal is written to
+     */
+    public static void requestJournalDirectory(String requestJournalDirectory) {
+        System.setProperty("mockserver.requestJournalDirectory", requestJournalDirectory);
+    }
+
+    public static long requestJournalSegmentSize() {
+        return readLongProperty("mockserver.requestJournalSegmentSize", 64L * 1024 * 1024);
+    }
+
+    /**
+     * The size in bytes of each segment file of the request journal, a new segment is started when a request does not
+     * fit in the current segment
+     *
+     * @param requestJournalSegmentSize the size of each segment in bytes
+     */
+    public static void requestJournalSegmentSize(long requestJournalSegmentSize) {
+        System.setProperty("mockserver.requestJournalSegmentSize", "" + requestJournalSegmentSize);
+    }
+
+    public static long requestJournalMaxSize() {
+        return readLongProperty("mockserver.requestJournalMaxSize", 1024L * 1024 * 1024);
+    }
+
+    /**
+     * The total size in bytes of the request journal above which the oldest segments are deleted
+     *
+     * @param requestJournalMaxSize the maximum size of the request journal in bytes
+     */
+    public static void requestJournalMaxSize(long requestJournalMaxSize) {
+        System.setProperty("mockserver.requestJournalMaxSize", "" + requestJournalMaxSize);
+    }
+
+    public static long requestJournalMaxAgeMillis() {
+        return readLongProperty("mockserver.requestJournalMaxAgeMillis", 0);
+    }
+
+    /**
+     * The age in milliseconds after which a segment of the request journal is deleted, the default of zero keeps
+     * segments until the request journal reaches its maximum size
+     *
+     * @param requestJournalMaxAgeMillis the maximum age of a request journal segment in milliseconds
+     */
+    public static void requestJournalMaxAgeMillis(long requestJournalMaxAgeMillis) {
+        System.setProperty("mockserver.requestJournalMaxAgeMillis", "" + requestJournalMaxAgeMillis);
+    }
+
     // socket config
     public static long maxSocketTimeout() {
         return readLongProperty("mockserver.maxSocketTimeout", TimeUnit.SECONDS.toMillis(DEFAULT_MAX_TIMEOUT));
@@ -0,0 +1,696 @@
+package org.mockserver.filters;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.mockserver.client.serialization.ObjectMapperFactory;
+import org.mockserver.client.serialization.model.HttpRequestDTO;
+import org.mockserver.client.serialization.model.HttpResponseDTO;
+import org.mockserver.configuration.ConfigurationProperties;
+import org.mockserver.matchers.HttpRequestMatcher;
+import org.mockserver.matchers.MatcherBuilder;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.model.HttpResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.mockserver.filters.RequestLogIndex.*;
+
+/**
+ * An append only journal of requests, and optionally their responses, written to a sequence of memory mapped segment
+ * files so the full request history is kept off the heap
+ * <p>
+ * Each record is the compact (i.e. not pretty printed) json of the request and then of the response, each prefixed by
+ * its length, the state kept on the heap for each segment is the offset of each record, an index of the method, path
+ * and Host header of each record (as for {@link RequestLogIndex}) and a bit for each record that has been cleared, so
+ * all the state of a segment is released with the segment, when the journal is read each record is copied out of its
+ * segment and decoded as the read reaches it so reading never copies a whole segment onto the heap and never pins a
+ * segment, however a read ends
+ * <p>
+ * Request threads never wait to append, each record is queued and then written by whichever thread next holds the
+ * journal lock, either the appending thread if the lock is free or the thread currently reading or writing the journal
+ * <p>
+ * A new segment is started when a record does not fit in the current segment and the oldest segments are deleted once
+ * the journal is larger than its maximum size or the segments are older than the maximum age, a deleted segment is
+ * unmapped immediately and any read still in progress skips its remaining records, segment files are deleted when the
+ * journal is reset or closed, when
+ * the JVM exits and, for any left by a JVM that did not exit cleanly, when the next journal with the same name is created
+ *
+ * @author jamesdbloom
+ */
+class RequestJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestJournal.class);
+    private static final int NO_RESPONSE = -1;
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final Set<RequestJournal> openJournals = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<RequestJournal, Boolean>()));
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            public void run() {
+                List<RequestJournal> requestJournals;
+                synchronized (openJournals) {
+                    requestJournals = new ArrayList<RequestJournal>(openJournals);
+                }
+                for (RequestJournal requestJournal : requestJournals) {
+                    requestJournal.close();
+                }
+            }
+        }));
+    }
+
+    private final ObjectMapper objectMapper = ObjectMapperFactory.createObjectMapper();
+    private final MatcherBuilder matcherBuilder = new MatcherBuilder();
+    private final File directory;
+    private final String name;
+    private final int segmentSize;
+    private final long maxSize;
+    private final long maxAgeMillis;
+    private final ConcurrentLinkedQueue<Record> unwrittenRecords = new ConcurrentLinkedQueue<Record>();
+    private final ReentrantLock lock = new ReentrantLock();
+    // guarded by lock
+    private final LinkedList<Segment> segments = new LinkedList<Segment>();
+    private long size = 0;
+    private int segmentCounter = 0;
+    private boolean closed = false;
+
+    /**
+     * @param directory    the directory the segment files are written to
+     * @param name         the prefix of the segment file names
+     * @param segmentSize  the size of each segment file in bytes
+     * @param maxSize      the total size of the segments in bytes above which the oldest segments are deleted
+     * @param maxAgeMillis the age of a segment in milliseconds after which it is deleted, or zero to keep segments of any age
+     */
+    RequestJournal(File directory, String name, int segmentSize, long maxSize, long maxAgeMillis) {
+        this.directory = directory;
+        this.name = name + "-" + UUID.randomUUID();
+        this.segmentSize = segmentSize;
+        this.maxSize = maxSize;
+        this.maxAgeMillis = maxAgeMillis;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new RuntimeException("Exception creating request journal directory " + directory);
+        }
+        deleteStaleSegments(directory, name);
+        openJournals.add(this);
+    }
+
+    /**
+     * @return a journal configured by {@link ConfigurationProperties}, or null if no request journal directory is configured
+     */
+    static RequestJournal requestJournal(String name) {
+        String directory = ConfigurationProperties.requestJournalDirectory();
+        if (directory.isEmpty()) {
+            return null;
+        }
+        return new RequestJournal(
+                new File(directory),
+                name,
+                (int) Math.min(ConfigurationProperties.requestJournalSegmentSize(), Integer.MAX_VALUE),
+                ConfigurationProperties.requestJournalMaxSize(),
+                ConfigurationProperties.requestJournalMaxAgeMillis()
+        );
+    }
+
+    /**
+     * Deletes the segments of journals with the same name that are not locked by a running journal, i.e. those left
+     * by a JVM that did not exit cleanly
+     */
+    private static void deleteStaleSegments(File directory, String name) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().startsWith(name + "-") && file.getName().endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+                        try {
+                            FileLock fileLock = randomAccessFile.getChannel().tryLock();
+                            if (fileLock != null) {
+                                fileLock.release();
+                                if (!file.delete()) {
+                                    logger.warn("Failed to delete stale request journal segment " + file);
+                                }
+                            }
+                        } catch (OverlappingFileLockException ofle) {
+                            // the segment of a running journal in this JVM
+                        } finally {
+                            randomAccessFile.close();
+                        }
+                    } catch (IOException ioe) {
+                        logger.warn("Exception deleting stale request journal segment " + file, ioe);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param httpResponse the response to the request, or null to only journal the request
+     */
+    void append(HttpRequest httpRequest, HttpResponse httpResponse) {
+        byte[] request;
+        byte[] response;
+        try {
+            request = objectMapper.writeValueAsBytes(new HttpRequestDTO(httpRequest));
+            response = httpResponse != null ? objectMapper.writeValueAsBytes(new HttpResponseDTO(httpResponse)) : null;
+        } catch (Exception e) {
+            throw new RuntimeException("Exception while serializing request to journal with value " + httpRequest, e);
+        }
+        unwrittenRecords.add(new Record(request, response, loggedKeys(httpRequest)));
+        // never wait for the lock, the thread holding it writes the record, or if it has already finished writing
+        // it releases the lock so the record is written on the next iteration
+        while (!unwrittenRecords.isEmpty() && lock.tryLock()) {
+            try {
+                write();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes the queued records, called with the lock held
+     */
+    private void write() {
+        Record record;
+        while ((record = unwrittenRecords.poll()) != null) {
+            if (closed) {
+                continue;
+            }
+            try {
+                Segment segment = segments.peekLast();
+                if (segment == null || segment.remaining() < record.size()) {
+                    segment = new Segment(new File(directory, name + "-" + (segmentCounter++) + SEGMENT_SUFFIX), Math.max(segmentSize, record.size()));
+                    segments.addLast(segment);
+                    size += segment.capacity();
+                }
+                segment.append(record);
+            } catch (Exception e) {
+                logger.error("Exception while writing request to journal " + new File(directory, name), e);
+            }
+        }
+        expire();
+    }
+
+    /**
+     * Clears every request journalled so far that matches, the requests are matched without holding the lock so
+     * appends are written while the journal is cleared, the lock is only held to read each record and to mark the
+     * matching records as cleared
+     */
+    void clear(HttpRequest httpRequest) {
+        HttpRequestMatcher httpRequestMatcher = matcherBuilder.transformsToMatcher(httpRequest);
+        Map<Segment, BitSet> matchingRecords = new IdentityHashMap<Segment, BitSet>();
+        for (SegmentSnapshot segmentSnapshot : snapshot(matcherKeys(httpRequest))) {
+            BitSet matching = new BitSet();
+            for (int index = 0; index < segmentSnapshot.numberOfRecords; index++) {
+                int record = segmentSnapshot.record(index);
+                if (!segmentSnapshot.isCleared(record)) {
+                    byte[][] copiedRecord = copy(segmentSnapshot.segment, segmentSnapshot.offsets[record], false);
+                    if (copiedRecord == null) {
+                        // deleted since the snapshot was taken
+                        break;
+                    }
+                    if (httpRequestMatcher.matches(decodeRequest(segmentSnapshot.segment, copiedRecord[0]), false)) {
+                        matching.set(record);
+                    }
+                }
+            }
+            if (!matching.isEmpty()) {
+                matchingRecords.put(segmentSnapshot.segment, matching);
+            }
+        }
+        if (!matchingRecords.isEmpty()) {
+            lock.lock();
+            try {
+                for (Map.Entry<Segment, BitSet> matching : matchingRecords.entrySet()) {
+                    matching.getKey().cleared.or(matching.getValue());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Deletes every segment
+     */
+    void reset() {
+        lock.lock();
+        try {
+            unwrittenRecords.clear();
+            while (!segments.isEmpty()) {
+                delete(segments.removeFirst());
+            }
+            size = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes every segment, requests appended after the journal is closed are discarded
+     */
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            reset();
+        } finally {
+            lock.unlock();
+        }
+        openJournals.remove(this);
+    }
+
+    /**
+     * @return the requests, and their responses or null, in the order they were journalled, each iteration reads the
+     * requests journalled before it started and each request is copied and decoded as the iteration reaches it so
+     * only the current request is on the heap, an iteration holds no segment so it can be abandoned at any point
+     */
+    Iterable<Map.Entry<HttpRequest, HttpResponse>> entries() {
+        return entries(null);
+    }
+
+    /**
+     * @return the requests, and their responses or null, that may match the request, a superset of the requests that
+     * match selected using the method, path and Host header index of each segment, or every request if the request
+     * is null
+     */
+    Iterable<Map.Entry<HttpRequest, HttpResponse>> entries(final HttpRequest httpRequest) {
+        return new Iterable<Map.Entry<HttpRequest, HttpResponse>>() {
+            @Override
+            public Iterator<Map.Entry<HttpRequest, HttpResponse>> iterator() {
+                return new EntryIterator(snapshot(matcherKeys(httpRequest)));
+            }
+        };
+    }
+
+    /**
+     * @return the requests in the order they were journalled
+     */
+    Iterable<HttpRequest> requests() {
+        return requests(null);
+    }
+
+    /**
+     * @return the requests that may match the request in the order they were journalled, see {@link #entries(HttpRequest)}
+     */
+    Iterable<HttpRequest> requests(HttpRequest httpRequest) {
+        final Iterable<Map.Entry<HttpRequest, HttpResponse>> entries = entries(httpRequest);
+        return new Iterable<HttpRequest>() {
+            @Override
+            public Iterator<HttpRequest> iterator() {
+                final Iterator<Map.Entry<HttpRequest, HttpResponse>> entryIterator = entries.iterator();
+                return new Iterator<HttpRequest>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entryIterator.hasNext();
+                    }
+
+                    @Override
+                    public HttpRequest next() {
+                        return entryIterator.next().getKey();
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException("request journal is append only");
+                    }
+                };
+            }
+        };
+    }
+
+    int numberOfSegments() {
+        lock.lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<SegmentSnapshot> snapshot(String[] keys) {
+        List<SegmentSnapshot> segmentSnapshots = new ArrayList<SegmentSnapshot>();
+        lock.lock();
+        try {
+            write();
+            for (Segment segment : segments) {
+                segmentSnapshots.add(new SegmentSnapshot(segment, keys));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return segmentSnapshots;
+    }
+
+    /**
+     * Called with the lock held
+     */
+    private void expire() {
+        long now = System.currentTimeMillis();
+        while (segments.size() > 1 && (size > maxSize || (maxAgeMillis > 0 && now - segments.peekFirst().createdMillis > maxAgeMillis))) {
+            Segment segment = segments.removeFirst();
+            size -= segment.capacity();
+            delete(segment);
+        }
+    }
+
+    /**
+     * Called with the lock held
+     */
+    private void delete(Segment segment) {
+        segment.deleted = true;
+        segment.close();
+    }
+
+    /**
+     * Copies a record out of its segment while holding the lock, so a segment is never unmapped while it is read
+     *
+     * @return the request and the response, or null if there is no response or it was not requested, or null if the
+     * segment has been deleted
+     */
+    private byte[][] copy(Segment segment, int offset, boolean withResponse) {
+        lock.lock();
+        try {
+            if (segment.deleted) {
+                return null;
+            }
+            ByteBuffer buffer = segment.buffer.duplicate();
+            byte[] request = new byte[buffer.getInt(offset)];
+            buffer.position(offset + 4);
+            buffer.get(request);
+            byte[] response = null;
+            if (withResponse) {
+                int responseLength = buffer.getInt();
+                if (responseLength != NO_RESPONSE) {
+                    response = new byte[responseLength];
+                    buffer.get(response);
+                }
+            }
+            return new byte[][]{request, response};
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private HttpRequest decodeRequest(Segment segment, byte[] request) {
+        try {
+            return objectMapper.readValue(request, HttpRequestDTO.class).buildObject();
+        } catch (IOException ioe) {
+            throw new RuntimeException("Exception while reading request from journal " + segment.file, ioe);
+        }
+    }
+
+    private HttpResponse decodeResponse(Segment segment, byte[] response) {
+        if (response == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(response, HttpResponseDTO.class).buildObject();
+        } catch (IOException ioe) {
+            throw new RuntimeException("Exception while reading response from journal " + segment.file, ioe);
+        }
+    }
+
+    /**
+     * Releases the mapping now rather than when the buffer is garbage collected, so the disk space of a deleted
+     * segment is freed immediately
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            try {
+                // java 9 and later
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            } catch (NoSuchMethodException nsme) {
+                // java 8 and earlier
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    Method cleanMethod = cleaner.getClass().getMethod("clean");
+                    cleanMethod.setAccessible(true);
+                    cleanMethod.invoke(cleaner);
+                }
+            }
+        } catch (Exception e) {
+            logger.debug("Exception unmapping request journal segment, the mapping is released when it is garbage collected", e);
+        }
+    }
+
+    private static class Record {
+        private final byte[] request;
+        private final byte[] response;
+        private final String[][] keys;
+
+        Record(byte[] request, byte[] response, String[][] keys) {
+            this.request = request;
+            this.response = response;
+            this.keys = keys;
+        }
+
+        int size() {
+            return 4 + request.length + 4 + (response != null ? response.length : 0);
+        }
+    }
+
+    /**
+     * A growable list of record numbers in ascending order
+     */
+    private static class RecordList {
+        private int[] records = new int[8];
+        private int size = 0;
+
+        void add(int record) {
+            if (size == records.length) {
+                records = Arrays.copyOf(records, size * 2);
+            }
+            records[size++] = record;
+        }
+    }
+
+    private static class Segment {
+        private final File file;
+        private final RandomAccessFile randomAccessFile;
+        private final MappedByteBuffer buffer;
+        private final long createdMillis = System.currentTimeMillis();
+        // the in heap state, guarded by the journal lock
+        private final List<Map<String, RecordList>> literalRecords = new ArrayList<Map<String, RecordList>>();
+        private final List<RecordList> fallbackRecords = new ArrayList<RecordList>();
+        private final BitSet cleared = new BitSet();
+        private int[] offsets = new int[64];
+        private int numberOfRecords = 0;
+        private boolean deleted = false;
+
+        Segment(File file, int capacity) throws IOException {
+            this.file = file;
+            this.randomAccessFile = new RandomAccessFile(file, "rw");
+            try {
+                // the lock marks the segment as in use so it is not deleted as stale by other journals
+                randomAccessFile.getChannel().lock();
+                randomAccessFile.setLength(capacity);
+                this.buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            } catch (IOException ioe) {
+                randomAccessFile.close();
+                if (!file.delete()) {
+                    logger.warn("Failed to delete request journal segment " + file);
+                }
+                throw ioe;
+            }
+            for (int field = 0; field < NUMBER_OF_FIELDS; field++) {
+                literalRecords.add(new HashMap<String, RecordList>());
+                fallbackRecords.add(new RecordList());
+            }
+        }
+
+        int capacity() {
+            return buffer.capacity();
+        }
+
+        int remaining() {
+            return buffer.remaining();
+        }
+
+        void append(Record record) {
+            if (numberOfRecords == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[numberOfRecords] = buffer.position();
+            buffer.putInt(record.request.length).put(record.request);
+            if (record.response != null) {
+                buffer.putInt(record.response.length).put(record.response);
+            } else {
+                buffer.putInt(NO_RESPONSE);
+            }
+            for (int field = 0; field < NUMBER_OF_FIELDS; field++) {
+                if (record.keys[field] == null) {
+                    fallbackRecords.get(field).add(numberOfRecords);
+                } else {
+                    for (String key : record.keys[field]) {
+                        RecordList recordList = literalRecords.get(field).get(key);
+                        if (recordList == null) {
+                            recordList = new RecordList();
+                            literalRecords.get(field).put(key, recordList);
+                        }
+                        recordList.add(numberOfRecords);
+                    }
+                }
+            }
+            numberOfRecords++;
+        }
+
+        /**
+         * @return the ascending numbers of the records that may match the keys using the narrowest field, or null if
+         * every record may match
+         */
+        int[] candidates(String[] keys) {
+            int narrowestField = -1;
+            int narrowestSize = Integer.MAX_VALUE;
+            for (int field = 0; field < NUMBER_OF_FIELDS; field++) {
+                if (keys[field] != null) {
+                    RecordList recordList = literalRecords.get(field).get(keys[field]);
+                    int size = (recordList != null ? recordList.size : 0) + fallbackRecords.get(field).size;
+                    if (size < narrowestSize) {
+                        narrowestField = field;
+                        narrowestSize = size;
+                    }
+                }
+            }
+            if (narrowestField == -1) {
+                return null;
+            }
+            RecordList literals = literalRecords.get(narrowestField).get(keys[narrowestField]);
+            RecordList fallbacks = fallbackRecords.get(narrowestField);
+            int literalSize = literals != null ? literals.size : 0;
+            int[] candidates = new int[narrowestSize];
+            int literal = 0;
+            int fallback = 0;
+            // merge both sorted lists so candidates are in the order they were journalled
+            for (int i = 0; i < candidates.length; i++) {
+                if (fallback == fallbacks.size || (literal < literalSize && literals.records[literal] < fallbacks.records[fallback])) {
+                    candidates[i] = literals.records[literal++];
+                } else {
+                    candidates[i] = fallbacks.records[fallback++];
+                }
+            }
+            return candidates;
+        }
+
+        void close() {
+            unmap(buffer);
+            try {
+                // closing the file also releases the lock
+                randomAccessFile.close();
+            } catch (IOException ioe) {
+                logger.warn("Exception closing request journal segment " + file, ioe);
+            }
+            if (!file.delete()) {
+                logger.warn("Failed to delete request journal segment " + file);
+            }
+        }
+    }
+
+    /**
+     * The records of a segment to read, taken when the iteration started, later appends to the segment only write to
+     * the buffer and offsets after these records
+     */
+    private static class SegmentSnapshot {
+        private final Segment segment;
+        private final int[] offsets;
+        // the candidate record numbers, or null for every record up to numberOfRecords
+        private final int[] records;
+        private final int numberOfRecords;
+        private final BitSet cleared;
+
+        SegmentSnapshot(Segment segment, String[] keys) {
+            this.segment = segment;
+            this.offsets = segment.offsets;
+            this.records = segment.candidates(keys);
+            this.numberOfRecords = records != null ? records.length : segment.numberOfRecords;
+            this.cleared = segment.cleared.isEmpty() ? null : (BitSet) segment.cleared.clone();
+        }
+
+        int record(int index) {
+            return records != null ? records[index] : index;
+        }
+
+        boolean isCleared(int record) {
+            return cleared != null && cleared.get(record);
+        }
+    }
+
+    /**
+     * Copies each record out of its segment as the iteration reaches it, a segment deleted before the iteration has
+     * read all its records is skipped
+     */
+    private class EntryIterator implements Iterator<Map.Entry<HttpRequest, HttpResponse>> {
+        private final Iterator<SegmentSnapshot> segmentSnapshots;
+        private SegmentSnapshot segmentSnapshot;
+        private int index;
+        private Map.Entry<HttpRequest, HttpResponse> next;
+
+        EntryIterator(List<SegmentSnapshot> segmentSnapshots) {
+            this.segmentSnapshots = segmentSnapshots.iterator();
+            this.next = advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<HttpRequest, HttpResponse> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<HttpRequest, HttpResponse> entry = next;
+            next = advance();
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("request journal is append only");
+        }
+
+        private Map.Entry<HttpRequest, HttpResponse> advance() {
+            while (true) {
+                while (segmentSnapshot == null || index == segmentSnapshot.numberOfRecords) {
+                    if (!segmentSnapshots.hasNext()) {
+                        segmentSnapshot = null;
+                        return null;
+                    }
+                    segmentSnapshot = segmentSnapshots.next();
+                    index = 0;
+                }
+                int record = segmentSnapshot.record(index++);
+                if (!segmentSnapshot.isCleared(record)) {
+                    byte[][] copiedRecord = copy(segmentSnapshot.segment, segmentSnapshot.offsets[record], true);
+                    if (copiedRecord == null) {
+                        // deleted since the iteration started
+                        index = segmentSnapshot.numberOfRecords;
+                    } else {
+                        HttpRequest httpRequest = decodeRequest(segmentSnapshot.segment, copiedRecord[0]);
+                        HttpResponse httpResponse = decodeResponse(segmentSnapshot.segment, copiedRecord[1]);
+                        return new AbstractMap.SimpleImmutableEntry<HttpRequest, HttpResponse>(httpRequest, httpResponse);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package org.mockserver.filters;
 
-import com.google.common.collect.EvictingQueue;
-import com.google.common.collect.Queues;
 import org.mockserver.client.serialization.HttpRequestSerializer;
+import org.mockserver.collections.RingBuffer;
+import org.mockserver.collections.StripedCounter;
+import org.mockserver.configuration.ConfigurationProperties;
 import org.mockserver.logging.LogFormatter;
 import org.mockserver.matchers.HttpRequestMatcher;
+import org.mockserver.matchers.MatchContext;
 import org.mockserver.matchers.MatcherBuilder;
 import org.mockserver.model.HttpRequest;
 import org.mockserver.model.HttpResponse;
@@ -13,10 +15,9 @@ import org.mockserver.verify.VerificationSequence;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Queue;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static org.mockserver.character.Character.NEW_LINE;
 
@@ -27,8 +28,12 @@ public class RequestLogFilter implements ResponseFilter, RequestFilter {
 
     private static final Logger logger = LoggerFactory.getLogger(RequestLogFilter.class);
     // request persistence
-    private final EvictingQueue<HttpRequest> evictingQueue = EvictingQueue.create(100);
-    private final Queue<HttpRequest> requestLog =  Queues.synchronizedQueue(evictingQueue);
+    private final RingBuffer<HttpRequest> requestLog = new RingBuffer<HttpRequest>(ConfigurationProperties.requestLogSize());
+    private final RequestLogIndex requestLogIndex = new RequestLogIndex(requestLog);
+    // the full request history, when configured
+    private final RequestJournal requestJournal = RequestJournal.requestJournal("requests");
+    // requests counted as they are received, so they can be verified regardless of what the log has evicted
+    private final ConcurrentMap<HttpRequest, VerificationCounter> verificationCounters = new ConcurrentHashMap<HttpRequest, VerificationCounter>();
 
     // matcher
     private final MatcherBuilder matcherBuilder = new MatcherBuilder();
@@ -43,15 +48,70 @@ public class RequestLogFilter implements ResponseFilter, RequestFilter {
     @Override
     public HttpRequest onRequest(HttpRequest httpRequest) {
         requestLog.add(httpRequest);
+        if (requestJournal != null) {
+            try {
+                requestJournal.append(httpRequest, null);
+            } catch (Exception e) {
+                logger.error("Exception while journalling request " + httpRequest, e);
+            }
+        }
+        MatchContext matchContext = new MatchContext(httpRequest);
+        for (VerificationCounter verificationCounter : verificationCounters.values()) {
+            // matched in the same way as a verification matches the logged requests, so a count equals a scan of the log
+            if (verificationCounter.httpRequestMatcher.matches(matchContext, false)) {
+                verificationCounter.counter.increment();
+            }
+        }
         return httpRequest;
     }
 
-    public /* synchronized */ List<HttpRequest> httpRequests(HttpRequest httpRequest) {
-        LinkedList<HttpRequest> requestLog = new LinkedList<HttpRequest>(this.requestLog);
+    /**
+     * Counts every request received from now on that matches the request, verifications of exactly the same request
+     * then read the count instead of scanning the log, so they take constant time and are exact even after the log has
+     * evicted some of the matching requests
+     * <p>
+     * Clearing requests that include all the counted requests resets the count, clearing only some of the counted
+     * requests removes the counter, as the number of cleared requests isn't known, so verifications scan the log again
+     */
+    public void registerVerificationCounter(HttpRequest httpRequest) {
+        if (httpRequest != null && !verificationCounters.containsKey(httpRequest)) {
+            verificationCounters.putIfAbsent(httpRequest, new VerificationCounter(matcherBuilder.transformsToMatcher(httpRequest)));
+        }
+    }
 
+    /**
+     * @return the number of requests evicted from the log by newer requests because the log was full
+     */
+    public long evictedRequests() {
+        return requestLog.evictions();
+    }
+
+    /**
+     * @return the full request history when requests are journalled, otherwise the requests retained by the log
+     */
+    private Iterable<HttpRequest> loggedRequests(List<HttpRequest> requestLog) {
+        return requestJournal != null ? requestJournal.requests() : requestLog;
+    }
+
+    private static List<HttpRequest> toList(Iterable<HttpRequest> httpRequests) {
+        if (httpRequests instanceof List) {
+            return (List<HttpRequest>) httpRequests;
+        }
+        List<HttpRequest> list = new ArrayList<HttpRequest>();
+        for (HttpRequest httpRequest : httpRequests) {
+            list.add(httpRequest);
+        }
+        return list;
+    }
+
+    private Iterable<HttpRequest> candidates(HttpRequest httpRequest) {
+        return requestJournal != null ? requestJournal.requests(httpRequest) : requestLogIndex.candidates(httpRequest);
+    }
+
+    public /* synchronized */ List<HttpRequest> httpRequests(HttpRequest httpRequest) {
         List<HttpRequest> httpRequests = new ArrayList<HttpRequest>();
         HttpRequestMatcher httpRequestMatcher = matcherBuilder.transformsToMatcher(httpRequest);
-        for (HttpRequest loggedHttpRequest : requestLog) {
+        for (HttpRequest loggedHttpRequest : loggedRequests(requestLog.snapshot())) {
             if (httpRequestMatcher.matches(loggedHttpRequest)) {
                 httpRequests.add(loggedHttpRequest);
             }
@@ -61,14 +121,34 @@ public class RequestLogFilter implements ResponseFilter, RequestFilter {
 
     public /* synchronized */ void reset() {
         requestLog.clear();
+        if (requestJournal != null) {
+            requestJournal.reset();
+        }
+        verificationCounters.clear();
     }
 
     public /* synchronized */ void clear(HttpRequest httpRequest) {
         if (httpRequest != null) {
             HttpRequestMatcher httpRequestMatcher = matcherBuilder.transformsToMatcher(httpRequest);
-            for (HttpRequest value : new LinkedList<HttpRequest>(requestLog)) {
-                if (httpRequestMatcher.matches(value, true)) {
-                    requestLog.remove(value);
+            Set<HttpRequest> candidates = Collections.newSetFromMap(new IdentityHashMap<HttpRequest, Boolean>());
+            candidates.addAll(requestLogIndex.candidates(httpRequest));
+            long nextSequence = requestLog.nextSequence();
+            for (long sequence = requestLog.firstSequence(); sequence < nextSequence; sequence++) {
+                HttpRequest value = requestLog.get(sequence);
+                if (value != null && candidates.contains(value) && httpRequestMatcher.matches(value, false)) {
+                    requestLog.remove(sequence, value);
+                }
+            }
+            if (requestJournal != null) {
+                requestJournal.clear(httpRequest);
+            }
+            // a counter whose requests may have been cleared is reset if the cleared request matches all of its requests,
+            // otherwise it can't tell how many were cleared so it is removed and its verifications scan the log instead
+            for (Map.Entry<HttpRequest, VerificationCounter> verificationCounter : verificationCounters.entrySet()) {
+                if (httpRequestMatcher.matches(verificationCounter.getKey(), false)) {
+                    verificationCounter.getValue().counter.reset();
+                } else if (verificationCounter.getValue().httpRequestMatcher.matches(httpRequest, false)) {
+                    verificationCounters.remove(verificationCounter.getKey(), verificationCounter.getValue());
                 }
             }
         } else {
@@ -77,82 +157,137 @@ public class RequestLogFilter implements ResponseFilter, RequestFilter {
     }
 
     public HttpRequest[] retrieve(HttpRequest httpRequestToMatch) {
-        LinkedList<HttpRequest> requestLog = new LinkedList<HttpRequest>(this.requestLog);
-
         List<HttpRequest> matchingRequests = new ArrayList<HttpRequest>();
         if (httpRequestToMatch != null) {
             HttpRequestMatcher httpRequestMatcher = matcherBuilder.transformsToMatcher(httpRequestToMatch);
-            for (HttpRequest httpRequest : requestLog) {
-                if (httpRequestMatcher.matches(httpRequest, true)) {
+            for (HttpRequest httpRequest : candidates(httpRequestToMatch)) {
+                if (httpRequestMatcher.matches(httpRequest, false)) {
                     matchingRequests.add(httpRequest);
                 }
             }
         } else {
-            matchingRequests.addAll(requestLog);
+            for (HttpRequest httpRequest : loggedRequests(requestLog.snapshot())) {
+                matchingRequests.add(httpRequest);
+            }
         }
         return matchingRequests.toArray(new HttpRequest[matchingRequests.size()]);
     }
 
     public String verify(Verification verification) {
-        LinkedList<HttpRequest> requestLog = new LinkedList<HttpRequest>(this.requestLog);
-
         String failureMessage = "";
 
         if (verification != null) {
-            List<HttpRequest> matchingRequests = new ArrayList<HttpRequest>();
-            if (verification.getHttpRequest() != null) {
+            long numberOfMatchingRequests = 0;
+            VerificationCounter verificationCounter = verificationCounter(verification);
+            if (verificationCounter != null) {
+                numberOfMatchingRequests = verificationCounter.counter.sum();
+            } else if (verification.getHttpRequest() != null) {
                 HttpRequestMatcher httpRequestMatcher = matcherBuilder.transformsToMatcher(verification.getHttpRequest());
-                for (HttpRequest httpRequest : requestLog) {
-                    if (httpRequestMatcher.matches(httpRequest, true)) {
-                        matchingRequests.add(httpRequest);
+                for (HttpRequest httpRequest : candidates(verification.getHttpRequest())) {
+                    if (httpRequestMatcher.matches(httpRequest, false)) {
+                        numberOfMatchingRequests++;
                     }
                 }
             }
+            failureMessage = failureMessage(verification, numberOfMatchingRequests, null);
+        }
+
+        return failureMessage;
+    }
+
+    /**
+     * Verifies every verification in a single pass over the request log, so the parsed body of each logged request is
+     * shared by all the verifications
+     *
+     * @return the failure message of the first verification that was not verified, or an empty string if they all were
+     */
+    public String verify(Verification... verifications) {
+        String failureMessage = "";
 
-            boolean verified = true;
+        if (verifications != null && verifications.length > 0) {
+            List<HttpRequest> requestLog = this.requestLog.snapshot();
 
-            if (verification.getTimes().getCount() != 0 && matchingRequests.isEmpty()) {
-                verified = false;
-            } else if (verification.getTimes().isExact() && matchingRequests.size() != verification.getTimes().getCount()) {
-                verified = false;
-            } else if (matchingRequests.size() < verification.getTimes().getCount()) {
-                verified = false;
+            HttpRequestMatcher[] httpRequestMatchers = new HttpRequestMatcher[verifications.length];
+            long[] numberOfMatchingRequests = new long[verifications.length];
+            for (int i = 0; i < verifications.length; i++) {
+                VerificationCounter verificationCounter = verificationCounter(verifications[i]);
+                if (verificationCounter != null) {
+                    numberOfMatchingRequests[i] = verificationCounter.counter.sum();
+                } else if (verifications[i] != null && verifications[i].getHttpRequest() != null) {
+                    httpRequestMatchers[i] = matcherBuilder.transformsToMatcher(verifications[i].getHttpRequest());
+                }
+            }
+            for (HttpRequest httpRequest : loggedRequests(requestLog)) {
+                MatchContext matchContext = new MatchContext(httpRequest);
+                for (int i = 0; i < httpRequestMatchers.length; i++) {
+                    if (httpRequestMatchers[i] != null && httpRequestMatchers[i].matches(matchContext, false)) {
+                        numberOfMatchingRequests[i]++;
+                    }
+                }
             }
 
-            if (!verified) {
-                HttpRequest[] allRequestsArray = requestLog.toArray(new HttpRequest[requestLog.size()]);
-                String serializedRequestToBeVerified = httpRequestSerializer.serialize(verification.getHttpRequest());
-                String serializedAllRequestInLog = allRequestsArray.length == 1 ? httpRequestSerializer.serialize(allRequestsArray[0]) : httpRequestSerializer.serialize(allRequestsArray);
-                logFormatter.infoLog("request not found " + verification.getTimes() + ", expected:{}" + NEW_LINE + " but was:{}", serializedRequestToBeVerified, serializedAllRequestInLog);
-                failureMessage = "Request not found " + verification.getTimes() + ", expected:<" + serializedRequestToBeVerified + "> but was:<" + serializedAllRequestInLog + ">";
+            for (int i = 0; i < verifications.length && failureMessage.isEmpty(); i++) {
+                if (verifications[i] != null) {
+                    failureMessage = failureMessage(verifications[i], numberOfMatchingRequests[i], requestLog);
+                }
             }
         }
 
         return failureMessage;
     }
 
+    private VerificationCounter verificationCounter(Verification verification) {
+        return verification != null && verification.getHttpRequest() != null ? verificationCounters.get(verification.getHttpRequest()) : null;
+    }
+
+    private String failureMessage(Verification verification, long numberOfMatchingRequests, List<HttpRequest> requestLog) {
+        boolean verified = true;
+
+        if (verification.getTimes().getCount() != 0 && numberOfMatchingRequests == 0) {
+            verified = false;
+        } else if (verification.getTimes().isExact() && numberOfMatchingRequests != verification.getTimes().getCount()) {
+            verified = false;
+        } else if (numberOfMatchingRequests < verification.getTimes().getCount()) {
+            verified = false;
+        }
+
+        if (!verified) {
+            if (requestLog == null) {
+                requestLog = this.requestLog.snapshot();
+            }
+            List<HttpRequest> allRequests = toList(loggedRequests(requestLog));
+            HttpRequest[] allRequestsArray = allRequests.toArray(new HttpRequest[allRequests.size()]);
+            String serializedRequestToBeVerified = httpRequestSerializer.serialize(verification.getHttpRequest());
+            String serializedAllRequestInLog = allRequestsArray.length == 1 ? httpRequestSerializer.serialize(allRequestsArray[0]) : httpRequestSerializer.serialize(allRequestsArray);
+            logFormatter.infoLog("request not found " + verification.getTimes() + ", expected:{}" + NEW_LINE + " but was:{}", serializedRequestToBeVerified, serializedAllRequestInLog);
+            return "Request not found " + verification.getTimes() + ", expected:<" + serializedRequestToBeVerified + "> but was:<" + serializedAllRequestInLog + ">";
+        }
+        return "";
+    }
+
     public String verify(VerificationSequence verificationSequence) {
-        LinkedList<HttpRequest> requestLog = new LinkedList<HttpRequest>(this.requestLog);
+        List<HttpRequest> requestLog = this.requestLog.snapshot();
 
         String failureMessage = "";
 
         if (verificationSequence != null) {
 
-            int requestLogCounter = 0;
+            // a single forward pass over the log, each verification request is searched for after the previous match
+            Iterator<HttpRequest> requestLogIterator = loggedRequests(requestLog).iterator();
 
             for (HttpRequest verificationHttpRequest : verificationSequence.getHttpRequests()) {
                 if (verificationHttpRequest != null) {
                     HttpRequestMatcher httpRequestMatcher = matcherBuilder.transformsToMatcher(verificationHttpRequest);
                     boolean foundRequest = false;
-                    for (; !foundRequest && requestLogCounter < requestLog.size(); requestLogCounter++) {
-                        if (httpRequestMatcher.matches(requestLog.get(requestLogCounter), true)) {
+                    while (!foundRequest && requestLogIterator.hasNext()) {
+                        if (httpRequestMatcher.matches(requestLogIterator.next(), false)) {
                             // move on to next request
                             foundRequest = true;
                         }
                     }
                     if (!foundRequest) {
                         String serializedRequestToBeVerified = httpRequestSerializer.serialize(verificationSequence.getHttpRequests());
-                        String serializedAllRequestInLog = httpRequestSerializer.serialize(requestLog);
+                        String serializedAllRequestInLog = httpRequestSerializer.serialize(toList(loggedRequests(requestLog)));
                         failureMessage = "Request sequence not found, expected:<" + serializedRequestToBeVerified + "> but was:<" + serializedAllRequestInLog + ">";
                         logFormatter.infoLog("request sequence not found, expected:{}" + NEW_LINE + " but was:{}", serializedRequestToBeVerified, serializedAllRequestInLog);
                         break;
@@ -163,4 +298,13 @@ public class RequestLogFilter implements ResponseFilter, RequestFilter {
 
         return failureMessage;
     }
+
+    private static class VerificationCounter {
+        private final HttpRequestMatcher httpRequestMatcher;
+        private final StripedCounter counter = new StripedCounter();
+
+        VerificationCounter(HttpRequestMatcher httpRequestMatcher) {
+            this.httpRequestMatcher = httpRequestMatcher;
+        }
+    }
 }
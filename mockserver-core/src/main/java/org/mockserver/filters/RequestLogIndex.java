@@ -0,0 +1,220 @@
+package org.mockserver.filters;
+
+import org.mockserver.collections.RingBuffer;
+import org.mockserver.model.Header;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.model.NottableString;
+
+import java.util.*;
+
+import static org.mockserver.matchers.KeyToMultiValueIndex.literalKey;
+
+/**
+ * Secondary indexes of the method, path and Host header of the requests in a request log, used to narrow the logged
+ * requests that a request matcher is applied to when requests are cleared, retrieved or verified
+ * <p>
+ * Each field maps the lower case form of a plain ascii value to the sequences of the logged requests with that value,
+ * logged requests with a value that could match a different value (i.e. empty, notted or containing regex characters)
+ * are kept in a fallback list for that field that is always a candidate, so the candidates for a field are always a
+ * superset of the logged requests that the field of a matcher can match
+ * <p>
+ * Writers to the log never touch the index, instead the index is brought up to date with the log by each reader, in
+ * sequence order, so every list of sequences is sorted and requests that have been evicted or cleared are pruned from
+ * the front of each list
+ *
+ * @author jamesdbloom
+ */
+class RequestLogIndex {
+
+    static final int METHOD = 0;
+    static final int PATH = 1;
+    static final int HOST = 2;
+    static final int NUMBER_OF_FIELDS = 3;
+    private static final String HOST_HEADER = "host";
+
+    private final RingBuffer<HttpRequest> requestLog;
+    private final List<Map<String, ArrayDeque<Long>>> literalSequences = new ArrayList<Map<String, ArrayDeque<Long>>>();
+    private final List<ArrayDeque<Long>> fallbackSequences = new ArrayList<ArrayDeque<Long>>();
+    private final ArrayDeque<IndexedRequest> indexedRequests = new ArrayDeque<IndexedRequest>();
+    // the next sequence to index
+    private long indexedSequence = 0;
+
+    RequestLogIndex(RingBuffer<HttpRequest> requestLog) {
+        this.requestLog = requestLog;
+        for (int field = 0; field < NUMBER_OF_FIELDS; field++) {
+            literalSequences.add(new HashMap<String, ArrayDeque<Long>>());
+            fallbackSequences.add(new ArrayDeque<Long>());
+        }
+    }
+
+    /**
+     * @return the logged requests that may match the request, in the order they were logged, up to the first request
+     * that has not yet been published
+     */
+    synchronized List<HttpRequest> candidates(HttpRequest httpRequest) {
+        update();
+        long firstSequence = requestLog.firstSequence();
+
+        String[] keys = matcherKeys(httpRequest);
+        int narrowestField = -1;
+        int narrowestSize = Integer.MAX_VALUE;
+        for (int field = 0; field < NUMBER_OF_FIELDS; field++) {
+            if (keys[field] != null) {
+                ArrayDeque<Long> sequences = literalSequences.get(field).get(keys[field]);
+                int size = (sequences != null ? sequences.size() : 0) + fallbackSequences.get(field).size();
+                if (size < narrowestSize) {
+                    narrowestField = field;
+                    narrowestSize = size;
+                }
+            }
+        }
+
+        if (narrowestField == -1) {
+            return requestLog.snapshot(firstSequence, indexedSequence);
+        }
+        List<HttpRequest> candidates = new ArrayList<HttpRequest>(narrowestSize);
+        ArrayDeque<Long> literals = literalSequences.get(narrowestField).get(keys[narrowestField]);
+        Iterator<Long> literalIterator = literals != null ? literals.iterator() : Collections.<Long>emptyList().iterator();
+        Iterator<Long> fallbackIterator = fallbackSequences.get(narrowestField).iterator();
+        Long literal = next(literalIterator);
+        Long fallback = next(fallbackIterator);
+        // merge both sorted lists of sequences so candidates are in the order they were logged
+        while (literal != null || fallback != null) {
+            long sequence;
+            if (fallback == null || (literal != null && literal < fallback)) {
+                sequence = literal;
+                literal = next(literalIterator);
+            } else {
+                sequence = fallback;
+                fallback = next(fallbackIterator);
+            }
+            if (sequence >= firstSequence) {
+                HttpRequest candidate = requestLog.get(sequence);
+                if (candidate != null) {
+                    candidates.add(candidate);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private static Long next(Iterator<Long> iterator) {
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    /**
+     * Prunes the requests that are no longer retained and indexes the requests published since the last update
+     */
+    private void update() {
+        long firstSequence = requestLog.firstSequence();
+        while (!indexedRequests.isEmpty() && indexedRequests.peekFirst().sequence < firstSequence) {
+            IndexedRequest indexedRequest = indexedRequests.pollFirst();
+            for (int field = 0; field < NUMBER_OF_FIELDS; field++) {
+                if (indexedRequest.keys[field] == null) {
+                    fallbackSequences.get(field).pollFirst();
+                } else {
+                    for (String key : indexedRequest.keys[field]) {
+                        ArrayDeque<Long> sequences = literalSequences.get(field).get(key);
+                        sequences.pollFirst();
+                        if (sequences.isEmpty()) {
+                            literalSequences.get(field).remove(key);
+                        }
+                    }
+                }
+            }
+        }
+
+        indexedSequence = Math.max(indexedSequence, firstSequence);
+        long nextSequence = requestLog.nextSequence();
+        for (; indexedSequence < nextSequence && requestLog.isPublished(indexedSequence); indexedSequence++) {
+            HttpRequest httpRequest = requestLog.get(indexedSequence);
+            if (httpRequest != null) {
+                IndexedRequest indexedRequest = new IndexedRequest(indexedSequence, loggedKeys(httpRequest));
+                for (int field = 0; field < NUMBER_OF_FIELDS; field++) {
+                    if (indexedRequest.keys[field] == null) {
+                        fallbackSequences.get(field).addLast(indexedSequence);
+                    } else {
+                        for (String key : indexedRequest.keys[field]) {
+                            ArrayDeque<Long> sequences = literalSequences.get(field).get(key);
+                            if (sequences == null) {
+                                sequences = new ArrayDeque<Long>();
+                                literalSequences.get(field).put(key, sequences);
+                            }
+                            sequences.addLast(indexedSequence);
+                        }
+                    }
+                }
+                indexedRequests.addLast(indexedRequest);
+            }
+        }
+    }
+
+    /**
+     * The keys of a request used to retrieve, verify or clear logged requests, null for each field that any logged
+     * value may match
+     */
+    static String[] matcherKeys(HttpRequest httpRequest) {
+        String[] keys = new String[NUMBER_OF_FIELDS];
+        if (httpRequest != null && !httpRequest.isNot()) {
+            keys[METHOD] = literalKey(httpRequest.getMethod());
+            keys[PATH] = literalKey(httpRequest.getPath());
+            for (Header header : httpRequest.getHeaders()) {
+                if (HOST_HEADER.equals(literalKey(header.getName())) && !header.getValues().isEmpty()) {
+                    keys[HOST] = literalKey(header.getValues().get(0));
+                    break;
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * The keys of a logged request, null for each field that may match more than the requests with the same keys
+     */
+    static String[][] loggedKeys(HttpRequest httpRequest) {
+        String[][] keys = new String[NUMBER_OF_FIELDS][];
+        if (!httpRequest.isNot()) {
+            keys[METHOD] = loggedKey(httpRequest.getMethod());
+            keys[PATH] = loggedKey(httpRequest.getPath());
+            keys[HOST] = loggedHostKeys(httpRequest.getHeaders());
+        }
+        return keys;
+    }
+
+    private static String[] loggedKey(NottableString value) {
+        String key = literalKey(value);
+        return key != null ? new String[]{key} : null;
+    }
+
+    private static String[] loggedHostKeys(List<Header> headers) {
+        Set<String> keys = new LinkedHashSet<String>();
+        for (Header header : headers) {
+            String name = literalKey(header.getName());
+            if (name == null) {
+                // a header name that is a regex may match the Host header
+                return null;
+            } else if (name.equals(HOST_HEADER)) {
+                for (NottableString value : header.getValues()) {
+                    String key = literalKey(value);
+                    if (key == null) {
+                        return null;
+                    }
+                    keys.add(key);
+                }
+            }
+        }
+        // a request without a Host header has no keys as it can never match a Host header
+        return keys.toArray(new String[keys.size()]);
+    }
+
+    private static class IndexedRequest {
+        private final long sequence;
+        // null for each field that is in the fallback list
+        private final String[][] keys;
+
+        IndexedRequest(long sequence, String[][] keys) {
+            this.sequence = sequence;
+            this.keys = keys;
+        }
+    }
+}
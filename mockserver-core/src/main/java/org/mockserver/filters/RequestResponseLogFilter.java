@@ -25,8 +25,11 @@ import static org.mockserver.model.HttpResponse.notFoundResponse;
  */
 public class RequestResponseLogFilter implements ResponseFilter, RequestFilter {
 
+    private static final Logger logger = LoggerFactory.getLogger(RequestResponseLogFilter.class);
     // request / response persistence
     private final CircularMultiMap<HttpRequest, HttpResponse> requestResponseLog = new CircularMultiMap<HttpRequest, HttpResponse>(100, 50);
+    // the full request / response history, when configured
+    private final RequestJournal requestJournal = RequestJournal.requestJournal("responses");
     // matcher
     private final MatcherBuilder matcherBuilder = new MatcherBuilder();
     private Logger requestLogger = LoggerFactory.getLogger("REQUEST");
@@ -38,6 +41,13 @@ public class RequestResponseLogFilter implements ResponseFilter, RequestFilter {
         } else if (httpRequest != null) {
             requestResponseLog.put(httpRequest, notFoundResponse());
         }
+        if (httpRequest != null && requestJournal != null) {
+            try {
+                requestJournal.append(httpRequest, httpResponse != null ? httpResponse : notFoundResponse());
+            } catch (Exception e) {
+                logger.error("Exception while journalling request " + httpRequest, e);
+            }
+        }
         return httpResponse;
     }
 
@@ -49,9 +59,17 @@ public class RequestResponseLogFilter implements ResponseFilter, RequestFilter {
     public List<HttpResponse> httpResponses(HttpRequest httpRequest) {
         List<HttpResponse> httpResponses = new ArrayList<HttpResponse>();
         HttpRequestMatcher httpRequestMatcher = matcherBuilder.transformsToMatcher(httpRequest);
-        for (HttpRequest loggedHttpRequest : new LinkedList<HttpRequest>(requestResponseLog.keySet())) {
-            if (httpRequestMatcher.matches(loggedHttpRequest)) {
-                httpResponses.addAll(requestResponseLog.getAll(loggedHttpRequest));
+        if (requestJournal != null) {
+            for (Map.Entry<HttpRequest, HttpResponse> entry : requestJournal.entries(httpRequest)) {
+                if (httpRequestMatcher.matches(entry.getKey())) {
+                    httpResponses.add(entry.getValue());
+                }
+            }
+        } else {
+            for (HttpRequest loggedHttpRequest : new LinkedList<HttpRequest>(requestResponseLog.keySet())) {
+                if (httpRequestMatcher.matches(loggedHttpRequest)) {
+                    httpResponses.addAll(requestResponseLog.getAll(loggedHttpRequest));
+                }
             }
         }
         return httpResponses;
@@ -59,6 +77,9 @@ public class RequestResponseLogFilter implements ResponseFilter, RequestFilter {
 
     public void reset() {
         requestResponseLog.clear();
+        if (requestJournal != null) {
+            requestJournal.reset();
+        }
     }
 
     public void clear(HttpRequest httpRequest) {
@@ -69,6 +90,9 @@ public class RequestResponseLogFilter implements ResponseFilter, RequestFilter {
                     requestResponseLog.removeAll(key);
                 }
             }
+            if (requestJournal != null) {
+                requestJournal.clear(httpRequest);
+            }
         } else {
             reset();
         }
@@ -79,7 +103,7 @@ public class RequestResponseLogFilter implements ResponseFilter, RequestFilter {
         ExpectationToJavaSerializer expectationToJavaSerializer = new ExpectationToJavaSerializer();
         if (httpRequest != null) {
             HttpRequestMatcher httpRequestMatcher = matcherBuilder.transformsToMatcher(httpRequest);
-            for (Map.Entry<HttpRequest, HttpResponse> entry : requestResponseLog.entrySet()) {
+            for (Map.Entry<HttpRequest, HttpResponse> entry : entries(httpRequest)) {
                 if (httpRequestMatcher.matches(entry.getKey(), true)) {
                     if (asJava) {
                         requestLogger.warn(expectationToJavaSerializer.serializeAsJava(0, new Expectation(entry.getKey(), Times.once(), TimeToLive.unlimited()).thenRespond(entry.getValue())));
@@ -89,7 +113,7 @@ public class RequestResponseLogFilter implements ResponseFilter, RequestFilter {
                 }
             }
         } else {
-            for (Map.Entry<HttpRequest, HttpResponse> entry : requestResponseLog.entrySet()) {
+            for (Map.Entry<HttpRequest, HttpResponse> entry : entries(null)) {
                 if (asJava) {
                     requestLogger.warn(expectationToJavaSerializer.serializeAsJava(0, new Expectation(entry.getKey(), Times.once(), TimeToLive.unlimited()).thenRespond(entry.getValue())));
                 } else {
@@ -99,4 +123,12 @@ public class RequestResponseLogFilter implements ResponseFilter, RequestFilter {
         }
     }
 
+    /**
+     * @return the full request / response history that may match the request, or all of it if the request is null,
+     * when it is journalled, otherwise the requests retained by the log
+     */
+    private Iterable<Map.Entry<HttpRequest, HttpResponse>> entries(HttpRequest httpRequest) {
+        return requestJournal != null ? requestJournal.entries(httpRequest) : requestResponseLog.entrySet();
+    }
+
 }
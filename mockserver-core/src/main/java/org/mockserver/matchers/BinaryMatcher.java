@@ -16,6 +16,10 @@ public class BinaryMatcher extends BodyMatcher<byte[]> {
         this.matcher = matcher;
     }
 
+    public boolean matchesParsedBody(ParsedBody parsedBody) {
+        return matches(parsedBody.getBodyAsRawBytes());
+    }
+
     public boolean matches(byte[] matched) {
         boolean result = false;
 
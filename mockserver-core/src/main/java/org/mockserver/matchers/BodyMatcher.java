@@ -5,4 +5,9 @@ package org.mockserver.matchers;
  */
 public abstract class BodyMatcher<MatchedType> extends NotMatcher<MatchedType> {
 
+    /**
+     * Matches a request body using the parsed forms shared by every body matcher the request is matched against
+     */
+    public abstract boolean matchesParsedBody(ParsedBody parsedBody);
+
 }
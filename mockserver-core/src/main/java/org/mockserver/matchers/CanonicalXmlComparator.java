@@ -0,0 +1,198 @@
+package org.mockserver.matchers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.*;
+
+/**
+ * Compares XML documents in a canonical form without building a DOM, the expected document is parsed once into a list
+ * of canonical events and each actual document is streamed with StAX and compared event by event, stopping at the first
+ * difference
+ * <p>
+ * The canonical form ignores the XML declaration, DTD, whitespace only text, attribute order and the difference between
+ * CDATA sections and text, whitespace within text is collapsed to a single space
+ *
+ * @author jamesdbloom
+ */
+class CanonicalXmlComparator {
+
+    private static final Logger logger = LoggerFactory.getLogger(CanonicalXmlComparator.class);
+    private static final String ACCESS_EXTERNAL_DTD = "http://javax.xml.XMLConstants/property/accessExternalDTD";
+    // xml input factories are not guaranteed to be thread safe so one is kept per thread
+    private static final ThreadLocal<XMLInputFactory> XML_INPUT_FACTORY = new ThreadLocal<XMLInputFactory>() {
+        @Override
+        protected XMLInputFactory initialValue() {
+            XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+            xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+            // prevent XML external entity (XXE) attacks
+            xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            try {
+                xmlInputFactory.setProperty(ACCESS_EXTERNAL_DTD, "");
+            } catch (IllegalArgumentException iae) {
+                logger.warn("XML input factory does not support property [" + ACCESS_EXTERNAL_DTD + "]");
+            }
+            return xmlInputFactory;
+        }
+    };
+
+    private final List<Event> expected;
+
+    CanonicalXmlComparator(String expected) throws XMLStreamException {
+        this.expected = new ArrayList<Event>();
+        XMLStreamReader reader = XML_INPUT_FACTORY.get().createXMLStreamReader(new StringReader(expected));
+        try {
+            Event event;
+            while ((event = nextEvent(reader)) != null) {
+                this.expected.add(event);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    boolean matches(String actual) {
+        try {
+            XMLStreamReader reader = XML_INPUT_FACTORY.get().createXMLStreamReader(new StringReader(actual));
+            try {
+                for (Event expectedEvent : expected) {
+                    if (!expectedEvent.equals(nextEvent(reader))) {
+                        return false;
+                    }
+                }
+                return nextEvent(reader) == null;
+            } finally {
+                reader.close();
+            }
+        } catch (Exception e) {
+            logger.trace("Error while parsing xml [" + actual + "] assuming no match - " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @return the next canonical event or null when the end of the document has been reached
+     */
+    private static Event nextEvent(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder text = null;
+        while (reader.hasNext()) {
+            int eventType = reader.getEventType();
+            switch (eventType) {
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (text == null) {
+                        text = new StringBuilder();
+                    }
+                    text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    reader.next();
+                    break;
+                case XMLStreamConstants.START_ELEMENT:
+                case XMLStreamConstants.END_ELEMENT:
+                case XMLStreamConstants.COMMENT:
+                case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                    if (text != null) {
+                        String normalisedText = normaliseText(text);
+                        text = null;
+                        if (!normalisedText.isEmpty()) {
+                            return new Event(XMLStreamConstants.CHARACTERS, null, null, normalisedText);
+                        }
+                    }
+                    Event event = currentEvent(reader, eventType);
+                    reader.next();
+                    return event;
+                default:
+                    reader.next();
+            }
+        }
+        return null;
+    }
+
+    private static Event currentEvent(XMLStreamReader reader, int eventType) {
+        switch (eventType) {
+            case XMLStreamConstants.START_ELEMENT:
+                Map<String, String> attributes = null;
+                if (reader.getNamespaceCount() > 0 || reader.getAttributeCount() > 0) {
+                    attributes = new TreeMap<String, String>();
+                    for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                        String prefix = reader.getNamespacePrefix(i);
+                        attributes.put(prefix == null || prefix.isEmpty() ? "xmlns" : "xmlns:" + prefix, reader.getNamespaceURI(i));
+                    }
+                    for (int i = 0; i < reader.getAttributeCount(); i++) {
+                        attributes.put(qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)), reader.getAttributeValue(i));
+                    }
+                }
+                return new Event(eventType, qualifiedName(reader.getPrefix(), reader.getLocalName()), attributes, null);
+            case XMLStreamConstants.END_ELEMENT:
+                return new Event(eventType, qualifiedName(reader.getPrefix(), reader.getLocalName()), null, null);
+            case XMLStreamConstants.COMMENT:
+                return new Event(eventType, null, null, normaliseText(new StringBuilder(reader.getText())));
+            default:
+                return new Event(eventType, reader.getPITarget(), null, reader.getPIData());
+        }
+    }
+
+    private static String qualifiedName(String prefix, String localName) {
+        return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+    }
+
+    private static String normaliseText(CharSequence text) {
+        StringBuilder normalisedText = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char character = text.charAt(i);
+            if (Character.isWhitespace(character)) {
+                pendingSpace = normalisedText.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    normalisedText.append(' ');
+                    pendingSpace = false;
+                }
+                normalisedText.append(character);
+            }
+        }
+        return normalisedText.toString();
+    }
+
+    private static class Event {
+        private final int type;
+        private final String name;
+        private final Map<String, String> attributes;
+        private final String text;
+
+        Event(int type, String name, Map<String, String> attributes, String text) {
+            this.type = type;
+            this.name = name;
+            this.attributes = attributes;
+            this.text = text;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            } else if (!(other instanceof Event)) {
+                return false;
+            }
+            Event event = (Event) other;
+            return type == event.type
+                    && equal(name, event.name)
+                    && equal(attributes, event.attributes)
+                    && equal(text, event.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(new Object[]{type, name, attributes, text});
+        }
+
+        private static boolean equal(Object first, Object second) {
+            return first == null ? second == null : first.equals(second);
+        }
+    }
+}
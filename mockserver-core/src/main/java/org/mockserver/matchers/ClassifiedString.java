@@ -0,0 +1,147 @@
+package org.mockserver.matchers;
+
+import com.google.common.base.Strings;
+
+import java.util.regex.Pattern;
+
+/**
+ * A matcher string classified as a literal, a prefix (i.e. a literal followed by .*) or a regex, so that literals and
+ * prefixes can be matched with equals and startsWith instead of the regex engine
+ * <p>
+ * When matching bidirectionally the matched string can also be a regex for the matcher, this is only possible if the
+ * matched string contains regex characters, so any other matched string is matched using the strategy for the
+ * matcher's classification with the same result as matching both strings as regexes in both directions
+ *
+ * @author jamesdbloom
+ */
+public class ClassifiedString {
+
+    public static final String REGEX_CHARACTERS = "\\^$.|?*+()[]{}";
+    private static final String ANY_CHARACTERS_SUFFIX = ".*";
+
+    enum Type {
+        LITERAL,
+        PREFIX,
+        REGEX
+    }
+
+    private final String value;
+    private final boolean bidirectional;
+    private final Type type;
+    private final String prefix;
+    private final Pattern pattern;
+
+    ClassifiedString(String value, boolean bidirectional) {
+        this.value = value;
+        this.bidirectional = bidirectional;
+        if (Strings.isNullOrEmpty(value) || isLiteral(value)) {
+            this.type = Type.LITERAL;
+            this.prefix = null;
+            this.pattern = null;
+        } else if (value.endsWith(ANY_CHARACTERS_SUFFIX) && isLiteral(value.substring(0, value.length() - ANY_CHARACTERS_SUFFIX.length()))) {
+            this.type = Type.PREFIX;
+            this.prefix = value.substring(0, value.length() - ANY_CHARACTERS_SUFFIX.length());
+            this.pattern = null;
+        } else {
+            this.type = Type.REGEX;
+            this.prefix = null;
+            this.pattern = RegexStringMatcher.compile(value);
+        }
+    }
+
+    public static boolean isLiteral(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (REGEX_CHARACTERS.indexOf(value.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    Type getType() {
+        return type;
+    }
+
+    boolean matches(String matched, boolean ignoreCase) {
+        if (Strings.isNullOrEmpty(value)) {
+            return true;
+        } else if (matched == null) {
+            return false;
+        } else if (matched.equals(value)) {
+            return true;
+        } else if (bidirectional && !isLiteral(matched)) {
+            return matchesInBothDirections(matched, ignoreCase);
+        }
+        switch (type) {
+            case LITERAL:
+                return ignoreCase && (matched.equalsIgnoreCase(value) || (!isAscii(matched, value) && matched.toLowerCase().equals(value.toLowerCase())));
+            case PREFIX:
+                return startsWithPrefix(matched, prefix) || (ignoreCase && startsWithPrefix(matched.toLowerCase(), prefix.toLowerCase()));
+            default:
+                return matches(pattern, matched) || (ignoreCase && (matched.equalsIgnoreCase(value) || matches(RegexStringMatcher.compile(value.toLowerCase()), matched.toLowerCase())));
+        }
+    }
+
+    private boolean matchesInBothDirections(String matched, boolean ignoreCase) {
+        // match as regex - matcher -> matched
+        if (matches(pattern != null ? pattern : RegexStringMatcher.compile(value), matched)) {
+            return true;
+        }
+        // match as regex - matched -> matcher
+        if (matches(RegexStringMatcher.compile(matched), value)) {
+            return true;
+        }
+        // case insensitive comparison is mainly to improve matching in web containers like Tomcat that convert header names to lower case
+        if (ignoreCase) {
+            // match as exact string lower-case
+            if (matched.equalsIgnoreCase(value)) {
+                return true;
+            }
+            String matcherLowerCase = value.toLowerCase();
+            String matchedLowerCase = matched.toLowerCase();
+            // match as regex - matcher -> matched
+            if (matches(RegexStringMatcher.compile(matcherLowerCase), matchedLowerCase)) {
+                return true;
+            }
+            // match as regex - matched -> matcher
+            if (matches(RegexStringMatcher.compile(matchedLowerCase), matcherLowerCase)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Same as matching the regex prefix + ".*", which doesn't match line terminators after the prefix
+     */
+    private static boolean startsWithPrefix(String matched, String prefix) {
+        if (!matched.startsWith(prefix)) {
+            return false;
+        }
+        for (int i = prefix.length(); i < matched.length(); i++) {
+            char character = matched.charAt(i);
+            if (character == '\n' || character == '\r' || character == '\u0085' || character == 0x2028 || character == 0x2029) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAscii(String first, String second) {
+        for (int i = 0; i < first.length(); i++) {
+            if (first.charAt(i) > 127) {
+                return false;
+            }
+        }
+        for (int i = 0; i < second.length(); i++) {
+            if (second.charAt(i) > 127) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(Pattern pattern, String matched) {
+        return pattern != null && pattern.matcher(matched).matches();
+    }
+}
@@ -46,6 +46,10 @@ public class ExactStringMatcher extends BodyMatcher<NottableString> {
         return matches(string(matched));
     }
 
+    public boolean matchesParsedBody(ParsedBody parsedBody) {
+        return matches(string(parsedBody.getBodyAsString()));
+    }
+
     public boolean matches(NottableString matched) {
         boolean result = false;
 
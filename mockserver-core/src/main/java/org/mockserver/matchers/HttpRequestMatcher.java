@@ -1,14 +1,11 @@
 package org.mockserver.matchers;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.common.base.Charsets;
 import com.google.common.base.Strings;
 import org.mockserver.client.serialization.ObjectMapperFactory;
 import org.mockserver.client.serialization.model.*;
 import org.mockserver.logging.LogFormatter;
 import org.mockserver.model.*;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -20,6 +17,20 @@ import static org.mockserver.model.NottableString.string;
  */
 public class HttpRequestMatcher extends NotMatcher<HttpRequest> {
 
+    /**
+     * The fields of a request in the order they are matched, from cheapest to most expensive
+     */
+    enum Field {
+        KEEP_ALIVE,
+        SSL,
+        METHOD,
+        PATH,
+        QUERY_STRING_PARAMETERS,
+        HEADERS,
+        COOKIES,
+        BODY
+    }
+
     private LogFormatter logFormatter = new LogFormatter(logger);
     private HttpRequest httpRequest;
     private RegexStringMatcher methodMatcher = null;
@@ -31,7 +42,6 @@ public class HttpRequestMatcher extends NotMatcher<HttpRequest> {
     private BooleanMatcher keepAliveMatcher = null;
     private BodyDTO bodyDTOMatcher = null;
     private BooleanMatcher sslMatcher = null;
-    private ObjectMapper objectMapper = ObjectMapperFactory.createObjectMapper();
 
     public HttpRequestMatcher(HttpRequest httpRequest) {
         this.httpRequest = httpRequest;
@@ -45,7 +55,7 @@ public class HttpRequestMatcher extends NotMatcher<HttpRequest> {
             withKeepAlive(httpRequest.isKeepAlive());
             withSsl(httpRequest.isSecure());
         }
-        addFieldsExcludedFromEqualsAndHashCode("logFormatter", "objectMapper");
+        addFieldsExcludedFromEqualsAndHashCode("logFormatter");
     }
 
     private HttpRequestMatcher withMethod(NottableString method) {
@@ -153,77 +163,212 @@ public class HttpRequestMatcher extends NotMatcher<HttpRequest> {
         return matches(httpRequest, false);
     }
 
+    /**
+     * Matches a request for a control plane operation (i.e. clear, retrieve or verify) where the body of the request
+     * being matched may be a serialised body matcher, such as an xpath or json schema, instead of an actual body
+     */
     public boolean matches(HttpRequest httpRequest, boolean logMatchResults) {
+        return matches(new MatchContext(httpRequest), logMatchResults, true);
+    }
+
+    /**
+     * Same as {@link #matches(HttpRequest, boolean)} but reusing the forms of the request already parsed in the context
+     */
+    public boolean matches(MatchContext matchContext, boolean logMatchResults) {
+        return matches(matchContext, logMatchResults, true);
+    }
+
+    /**
+     * Matches a request received by MockServer, the body of the request is never treated as a serialised body matcher
+     */
+    public boolean matchesIncomingRequest(HttpRequest httpRequest, boolean logMatchResults) {
+        return matches(new MatchContext(httpRequest), logMatchResults, false);
+    }
+
+    /**
+     * Same as {@link #matchesIncomingRequest(HttpRequest, boolean)} but reusing the forms of the request already parsed
+     * in the context
+     */
+    public boolean matchesIncomingRequest(MatchContext matchContext, boolean logMatchResults) {
+        return matches(matchContext, logMatchResults, false);
+    }
+
+    /**
+     * @return true if match results are logged when matching with logMatchResults enabled
+     */
+    boolean logsMatchResults() {
+        return logger.isInfoEnabled();
+    }
+
+    private boolean matches(MatchContext matchContext, boolean logMatchResults, boolean matchSerialisedBodies) {
+        HttpRequest httpRequest = matchContext.getHttpRequest();
         if (httpRequest == this.httpRequest) {
             return true;
         } else if (this.httpRequest == null) {
             return true;
         } else {
             if (httpRequest != null) {
-                boolean methodMatches = Strings.isNullOrEmpty(httpRequest.getMethod().getValue()) || matches(methodMatcher, httpRequest.getMethod());
-                boolean pathMatches = Strings.isNullOrEmpty(httpRequest.getPath().getValue()) || matches(pathMatcher, httpRequest.getPath());
-                boolean queryStringParametersMatches = matches(queryStringParameterMatcher, (httpRequest.getQueryStringParameters() != null ? new ArrayList<KeyToMultiValue>(httpRequest.getQueryStringParameters()) : null));
-                boolean bodyMatches;
-                String bodyAsString = httpRequest.getBody() != null ? new String(httpRequest.getBody().getRawBytes(), httpRequest.getBody().getCharset(Charsets.UTF_8)) : "";
-                BodyDTO bodyDTO = null;
-                try {
-                    bodyDTO = objectMapper.readValue(bodyAsString, BodyDTO.class);
-                } catch (IOException e) {
-                    // ignore this exception as this exception will always get thrown for "normal" HTTP requests (i.e. not clear or retrieve)
-                }
-                if (bodyDTO == null || bodyDTOMatcher == null || bodyDTO.getType() == Body.Type.STRING) {
-                    if (bodyMatcher instanceof BinaryMatcher) {
-                        bodyMatches = matches(bodyMatcher, httpRequest.getBodyAsRawBytes());
-                    } else {
-                        if (bodyMatcher instanceof ExactStringMatcher || bodyMatcher instanceof RegexStringMatcher || bodyMatcher instanceof XmlStringMatcher) {
-                            bodyMatches = matches(bodyMatcher, string(bodyAsString));
-                        } else {
-                            bodyMatches = matches(bodyMatcher, bodyAsString);
-                        }
-                    }
-                } else {
-                    bodyMatches = bodyDTOMatcher.equals(bodyDTO);
-                }
-                boolean headersMatch = matches(headerMatcher, (httpRequest.getHeaders() != null ? new ArrayList<KeyToMultiValue>(httpRequest.getHeaders()) : null));
-                boolean cookiesMatch = matches(cookieMatcher, (httpRequest.getCookies() != null ? new ArrayList<KeyAndValue>(httpRequest.getCookies()) : null));
-                boolean keepAliveMatches = matches(keepAliveMatcher, httpRequest.isKeepAlive());
-                boolean sslMatches = matches(sslMatcher, httpRequest.isSecure());
-
-                boolean totalResult = methodMatches && pathMatches && queryStringParametersMatches && bodyMatches && headersMatch && cookiesMatch && keepAliveMatches && sslMatches;
-                boolean totalResultAfterNotOperatorApplied = httpRequest.isNot() == (this.httpRequest.isNot() == (not != totalResult));
-
                 if (logMatchResults && logger.isInfoEnabled()) {
-                    if (!totalResultAfterNotOperatorApplied) {
-                        StringBuilder becauseBuilder = new StringBuilder();
-                        becauseBuilder.append("method matches = ").append(methodMatches).append(NEW_LINE);
-                        becauseBuilder.append("path matches = ").append(pathMatches).append(NEW_LINE);
-                        becauseBuilder.append("query string parameters match = ").append(queryStringParametersMatches).append(NEW_LINE);
-                        becauseBuilder.append("body matches = ").append(bodyMatches).append(NEW_LINE);
-                        becauseBuilder.append("headers match = ").append(headersMatch).append(NEW_LINE);
-                        becauseBuilder.append("cookies match = ").append(cookiesMatch).append(NEW_LINE);
-                        becauseBuilder.append("keep-alive matches = ").append(keepAliveMatches).append(NEW_LINE);
-                        becauseBuilder.append("ssl matches = ").append(sslMatches).append(NEW_LINE);
-                        if (httpRequest.isNot()) {
-                            becauseBuilder.append("request \'not\' operator is enabled").append(NEW_LINE);
-                        }
-                        if (this.httpRequest.isNot()) {
-                            becauseBuilder.append("expectation's request \'not\' operator is enabled").append(NEW_LINE);
-                        }
-                        if (not) {
-                            becauseBuilder.append("expectation's request matcher \'not\' operator is enabled").append(NEW_LINE);
-                        }
-                        logFormatter.infoLog("request:{}" + NEW_LINE + " did" + (totalResult ? "" : " not") + " match expectation:{}" + NEW_LINE + " because:{}", httpRequest, this, becauseBuilder.toString());
-                    } else {
-                        logFormatter.infoLog("request:{}" + NEW_LINE + " matched expectation:{}", httpRequest, this);
-                    }
+                    return matchesAndLogResult(matchContext, matchSerialisedBodies);
                 }
-                return totalResultAfterNotOperatorApplied;
+                // fields are checked from cheapest to most expensive so the body is only decoded if everything else matched
+                boolean totalResult = keepAliveMatches(httpRequest)
+                        && sslMatches(httpRequest)
+                        && methodMatches(httpRequest)
+                        && pathMatches(httpRequest)
+                        && queryStringParametersMatches(matchContext)
+                        && headersMatch(matchContext)
+                        && cookiesMatch(httpRequest)
+                        && bodyMatches(matchContext, matchSerialisedBodies);
+                return httpRequest.isNot() == (this.httpRequest.isNot() == (not != totalResult));
             } else {
                 return false;
             }
         }
     }
 
+    private boolean matchesAndLogResult(MatchContext matchContext, boolean matchSerialisedBodies) {
+        HttpRequest httpRequest = matchContext.getHttpRequest();
+        boolean methodMatches = methodMatches(httpRequest);
+        boolean pathMatches = pathMatches(httpRequest);
+        boolean queryStringParametersMatches = queryStringParametersMatches(matchContext);
+        boolean bodyMatches = bodyMatches(matchContext, matchSerialisedBodies);
+        boolean headersMatch = headersMatch(matchContext);
+        boolean cookiesMatch = cookiesMatch(httpRequest);
+        boolean keepAliveMatches = keepAliveMatches(httpRequest);
+        boolean sslMatches = sslMatches(httpRequest);
+
+        boolean totalResult = methodMatches && pathMatches && queryStringParametersMatches && bodyMatches && headersMatch && cookiesMatch && keepAliveMatches && sslMatches;
+        boolean totalResultAfterNotOperatorApplied = httpRequest.isNot() == (this.httpRequest.isNot() == (not != totalResult));
+
+        if (!totalResultAfterNotOperatorApplied) {
+            StringBuilder becauseBuilder = new StringBuilder();
+            becauseBuilder.append("method matches = ").append(methodMatches).append(NEW_LINE);
+            becauseBuilder.append("path matches = ").append(pathMatches).append(NEW_LINE);
+            becauseBuilder.append("query string parameters match = ").append(queryStringParametersMatches).append(NEW_LINE);
+            becauseBuilder.append("body matches = ").append(bodyMatches).append(NEW_LINE);
+            becauseBuilder.append("headers match = ").append(headersMatch).append(NEW_LINE);
+            becauseBuilder.append("cookies match = ").append(cookiesMatch).append(NEW_LINE);
+            becauseBuilder.append("keep-alive matches = ").append(keepAliveMatches).append(NEW_LINE);
+            becauseBuilder.append("ssl matches = ").append(sslMatches).append(NEW_LINE);
+            if (httpRequest.isNot()) {
+                becauseBuilder.append("request \'not\' operator is enabled").append(NEW_LINE);
+            }
+            if (this.httpRequest.isNot()) {
+                becauseBuilder.append("expectation's request \'not\' operator is enabled").append(NEW_LINE);
+            }
+            if (not) {
+                becauseBuilder.append("expectation's request matcher \'not\' operator is enabled").append(NEW_LINE);
+            }
+            logFormatter.infoLog("request:{}" + NEW_LINE + " did" + (totalResult ? "" : " not") + " match expectation:{}" + NEW_LINE + " because:{}", httpRequest, this, becauseBuilder.toString());
+        } else {
+            logFormatter.infoLog("request:{}" + NEW_LINE + " matched expectation:{}", httpRequest, this);
+        }
+        return totalResultAfterNotOperatorApplied;
+    }
+
+    private boolean methodMatches(HttpRequest httpRequest) {
+        return Strings.isNullOrEmpty(httpRequest.getMethod().getValue()) || matches(methodMatcher, httpRequest.getMethod());
+    }
+
+    private boolean pathMatches(HttpRequest httpRequest) {
+        return Strings.isNullOrEmpty(httpRequest.getPath().getValue()) || matches(pathMatcher, httpRequest.getPath());
+    }
+
+    private boolean queryStringParametersMatches(MatchContext matchContext) {
+        return queryStringParameterMatcher == null || queryStringParameterMatcher.matchesIndex(matchContext.getQueryStringParameterIndex());
+    }
+
+    private boolean headersMatch(MatchContext matchContext) {
+        return headerMatcher == null || headerMatcher.matchesIndex(matchContext.getHeaderIndex());
+    }
+
+    private boolean cookiesMatch(HttpRequest httpRequest) {
+        return matches(cookieMatcher, (httpRequest.getCookies() != null ? new ArrayList<KeyAndValue>(httpRequest.getCookies()) : null));
+    }
+
+    private boolean keepAliveMatches(HttpRequest httpRequest) {
+        return matches(keepAliveMatcher, httpRequest.isKeepAlive());
+    }
+
+    private boolean sslMatches(HttpRequest httpRequest) {
+        return matches(sslMatcher, httpRequest.isSecure());
+    }
+
+    private boolean bodyMatches(MatchContext matchContext, boolean matchSerialisedBodies) {
+        if (bodyMatcher == null && (!matchSerialisedBodies || bodyDTOMatcher == null)) {
+            return true;
+        }
+        ParsedBody parsedBody = matchContext.getParsedBody();
+        BodyDTO bodyDTO = null;
+        if (matchSerialisedBodies && bodyDTOMatcher != null) {
+            bodyDTO = parsedBody.getBodyDTO();
+        }
+        if (bodyDTO == null || bodyDTOMatcher == null || bodyDTO.getType() == Body.Type.STRING) {
+            return bodyMatcher == null || bodyMatcher.matchesParsedBody(parsedBody);
+        } else {
+            return bodyDTOMatcher.equals(bodyDTO);
+        }
+    }
+
+    /**
+     * @return true if this matcher only matches a request when every field matches, i.e. neither the matcher nor the
+     * request it was created from is negated, so the fields can be matched independently of each other
+     */
+    boolean isConjunctionOfFields() {
+        return httpRequest != null && !httpRequest.isNot() && !not;
+    }
+
+    /**
+     * @return the matcher for the field of a received request, two fields with equal matchers always have the same
+     * result for the same request
+     */
+    Object fieldMatcher(Field field) {
+        switch (field) {
+            case KEEP_ALIVE:
+                return keepAliveMatcher;
+            case SSL:
+                return sslMatcher;
+            case METHOD:
+                return methodMatcher;
+            case PATH:
+                return pathMatcher;
+            case QUERY_STRING_PARAMETERS:
+                return queryStringParameterMatcher;
+            case HEADERS:
+                return headerMatcher;
+            case COOKIES:
+                return cookieMatcher;
+            default:
+                return bodyMatcher;
+        }
+    }
+
+    /**
+     * Matches a single field of a request received by MockServer
+     */
+    boolean fieldMatches(Field field, MatchContext matchContext) {
+        HttpRequest httpRequest = matchContext.getHttpRequest();
+        switch (field) {
+            case KEEP_ALIVE:
+                return keepAliveMatches(httpRequest);
+            case SSL:
+                return sslMatches(httpRequest);
+            case METHOD:
+                return methodMatches(httpRequest);
+            case PATH:
+                return pathMatches(httpRequest);
+            case QUERY_STRING_PARAMETERS:
+                return queryStringParametersMatches(matchContext);
+            case HEADERS:
+                return headersMatch(matchContext);
+            case COOKIES:
+                return cookiesMatch(httpRequest);
+            default:
+                return bodyMatches(matchContext, false);
+        }
+    }
+
     private <T> boolean matches(Matcher<T> matcher, T t) {
         boolean result = false;
 
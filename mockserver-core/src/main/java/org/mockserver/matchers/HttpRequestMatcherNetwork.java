@@ -0,0 +1,169 @@
+package org.mockserver.matchers;
+
+import org.mockserver.model.HttpRequest;
+
+import java.util.*;
+
+/**
+ * A network compiled from a set of request matchers, where each condition (i.e. a field of a request matcher, such as
+ * a path, a set of headers or ssl) is a node that is shared by every request matcher with an equal condition, so a
+ * condition common to many expectations, such as Content-Type: application/json, is evaluated at most once per request
+ * and its result is reused by every request matcher that depends on it
+ * <p>
+ * Conditions are only evaluated when a request matcher that depends on them is matched, in the same cheapest first
+ * order as {@link HttpRequestMatcher}, so a request matcher is never more expensive to match than when matched alone,
+ * request matchers that are negated can't be split into independent conditions and are matched as a whole
+ *
+ * @author jamesdbloom
+ */
+public class HttpRequestMatcherNetwork {
+
+    private static final byte UNKNOWN = 0;
+    private static final byte MATCHED = 1;
+    private static final byte NOT_MATCHED = 2;
+
+    private final List<Condition> conditions;
+    private final Map<Condition, Integer> conditionIds;
+    private final Map<HttpRequestMatcher, int[]> conditionsByMatcher;
+
+    public HttpRequestMatcherNetwork(Collection<HttpRequestMatcher> httpRequestMatchers) {
+        this(new ArrayList<Condition>(), new HashMap<Condition, Integer>(), new IdentityHashMap<HttpRequestMatcher, int[]>(), httpRequestMatchers);
+    }
+
+    private HttpRequestMatcherNetwork(List<Condition> conditions, Map<Condition, Integer> conditionIds, Map<HttpRequestMatcher, int[]> conditionsByMatcher, Collection<HttpRequestMatcher> httpRequestMatchers) {
+        this.conditions = conditions;
+        this.conditionIds = conditionIds;
+        this.conditionsByMatcher = conditionsByMatcher;
+        for (HttpRequestMatcher httpRequestMatcher : httpRequestMatchers) {
+            if (httpRequestMatcher.isConjunctionOfFields() && !conditionsByMatcher.containsKey(httpRequestMatcher)) {
+                List<Integer> matcherConditions = new ArrayList<Integer>();
+                for (HttpRequestMatcher.Field field : HttpRequestMatcher.Field.values()) {
+                    Object fieldMatcher = httpRequestMatcher.fieldMatcher(field);
+                    if (fieldMatcher != null) {
+                        Condition condition = new Condition(field, fieldMatcher, httpRequestMatcher);
+                        Integer conditionId = conditionIds.get(condition);
+                        if (conditionId == null) {
+                            conditionId = conditions.size();
+                            conditions.add(condition);
+                            conditionIds.put(condition, conditionId);
+                        }
+                        matcherConditions.add(conditionId);
+                    }
+                }
+                int[] ids = new int[matcherConditions.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = matcherConditions.get(i);
+                }
+                conditionsByMatcher.put(httpRequestMatcher, ids);
+            }
+        }
+    }
+
+    /**
+     * @return a network with the request matchers of this network and the added request matchers, only the conditions
+     * of the added request matchers are compiled as the conditions of this network are reused, this network is unchanged
+     * so it can still be used by evaluations that have already started
+     */
+    public HttpRequestMatcherNetwork with(Collection<HttpRequestMatcher> httpRequestMatchers) {
+        if (httpRequestMatchers.isEmpty()) {
+            return this;
+        }
+        return new HttpRequestMatcherNetwork(new ArrayList<Condition>(conditions), new HashMap<Condition, Integer>(conditionIds), new IdentityHashMap<HttpRequestMatcher, int[]>(conditionsByMatcher), httpRequestMatchers);
+    }
+
+    /**
+     * @return the number of request matchers that have been split into conditions
+     */
+    public int numberOfRequestMatchers() {
+        return conditionsByMatcher.size();
+    }
+
+    /**
+     * @return the number of distinct conditions shared by the request matchers
+     */
+    public int numberOfConditions() {
+        return conditions.size();
+    }
+
+    /**
+     * Starts matching a request received by MockServer, the evaluation remembers the result of each condition so it
+     * should only be used by a single thread
+     */
+    public Evaluation evaluate(HttpRequest httpRequest) {
+        return evaluate(new MatchContext(httpRequest));
+    }
+
+    /**
+     * Same as {@link #evaluate(HttpRequest)} but reusing the forms of the request already parsed in the context
+     */
+    public Evaluation evaluate(MatchContext matchContext) {
+        return new Evaluation(matchContext);
+    }
+
+    public class Evaluation {
+
+        private final MatchContext matchContext;
+        private final byte[] results = new byte[conditions.size()];
+
+        private Evaluation(MatchContext matchContext) {
+            this.matchContext = matchContext;
+        }
+
+        /**
+         * Returns the same result as {@link HttpRequestMatcher#matchesIncomingRequest(HttpRequest, boolean)}, the match
+         * results are logged in the same way when info logging is enabled
+         */
+        public boolean matches(HttpRequestMatcher httpRequestMatcher) {
+            int[] conditionIds = conditionsByMatcher.get(httpRequestMatcher);
+            HttpRequest httpRequest = matchContext.getHttpRequest();
+            // the request matcher logs why it did or didn't match, which needs the result of every field
+            if (conditionIds == null || httpRequest == null || httpRequest.isNot() || httpRequestMatcher.logsMatchResults()) {
+                return httpRequestMatcher.matchesIncomingRequest(matchContext, true);
+            }
+            for (int conditionId : conditionIds) {
+                if (results[conditionId] == UNKNOWN) {
+                    Condition condition = conditions.get(conditionId);
+                    results[conditionId] = condition.httpRequestMatcher.fieldMatches(condition.field, matchContext) ? MATCHED : NOT_MATCHED;
+                }
+                if (results[conditionId] == NOT_MATCHED) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A field and its matcher, equal to any other condition for the same field with an equal matcher
+     */
+    private static class Condition {
+        private final HttpRequestMatcher.Field field;
+        private final Object fieldMatcher;
+        // the first request matcher with this condition, which is used to evaluate it
+        private final HttpRequestMatcher httpRequestMatcher;
+        private final int hashCode;
+
+        Condition(HttpRequestMatcher.Field field, Object fieldMatcher, HttpRequestMatcher httpRequestMatcher) {
+            this.field = field;
+            this.fieldMatcher = fieldMatcher;
+            this.httpRequestMatcher = httpRequestMatcher;
+            this.hashCode = 31 * field.hashCode() + fieldMatcher.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            } else if (!(other instanceof Condition)) {
+                return false;
+            }
+            Condition that = (Condition) other;
+            return field == that.field && hashCode == that.hashCode && fieldMatcher.equals(that.fieldMatcher);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -38,4 +38,22 @@ public class JsonSchemaMatcher extends BodyMatcher<String> {
         return reverseResultIfNot(result);
     }
 
+    public boolean matchesParsedBody(ParsedBody parsedBody) {
+        boolean result = false;
+
+        try {
+            String validation = jsonSchemaValidator.isValidJsonNode(parsedBody.getJson());
+
+            result = validation.isEmpty();
+
+            if (!result) {
+                logger.trace("Failed to perform JSON match \"{}\" with schema \"{}\" because {}", parsedBody.getBodyAsString(), this.schema, validation);
+            }
+        } catch (Exception e) {
+            logger.trace("Failed to perform JSON match \"{}\" with schema \"{}\" because {}", parsedBody.getBodyAsString(), this.schema, e.getMessage());
+        }
+
+        return reverseResultIfNot(result);
+    }
+
 }
@@ -1,10 +1,7 @@
 package org.mockserver.matchers;
 
-import org.mockserver.model.JsonBody;
-import org.skyscreamer.jsonassert.JSONCompareMode;
-import org.skyscreamer.jsonassert.JSONCompareResult;
-
-import static org.skyscreamer.jsonassert.JSONCompare.compareJSON;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.mockserver.client.serialization.ObjectMapperFactory;
 
 /**
  * @author jamesdbloom
@@ -12,34 +9,44 @@ import static org.skyscreamer.jsonassert.JSONCompare.compareJSON;
 public class JsonStringMatcher extends BodyMatcher<String> {
     private final String matcher;
     private final MatchType matchType;
+    private final JsonTreeComparator jsonTreeComparator;
+    private JsonNode expected = null;
 
     public JsonStringMatcher(String matcher, MatchType matchType) {
         this.matcher = matcher;
         this.matchType = matchType;
+        this.jsonTreeComparator = new JsonTreeComparator(matchType);
+        if (matcher != null) {
+            try {
+                expected = ObjectMapperFactory.createObjectMapper().readTree(matcher);
+            } catch (Exception e) {
+                logger.trace("Error while parsing json [" + matcher + "] assuming matcher never matches - " + e.getMessage());
+            }
+        }
     }
 
     public boolean matches(String matched) {
-        boolean result = false;
-
-        JSONCompareResult jsonCompareResult;
-        try {
-            JSONCompareMode jsonCompareMode = JSONCompareMode.LENIENT;
-            if (matchType == MatchType.STRICT) {
-                jsonCompareMode = JSONCompareMode.STRICT;
-            }
-            jsonCompareResult = compareJSON(matcher, matched, jsonCompareMode);
+        return matchesParsedBody(new ParsedBody(matched));
+    }
 
-            if (jsonCompareResult.passed()) {
-                result = true;
-            }
+    public boolean matchesParsedBody(ParsedBody parsedBody) {
+        boolean result;
 
+        if (logger.isTraceEnabled()) {
+            StringBuilder difference = new StringBuilder();
+            result = jsonTreeComparator.matches(expected, parsedBody.getJson(), difference);
             if (!result) {
-                logger.trace("Failed to perform JSON match \"{}\" with \"{}\" because {}", matched, this.matcher, jsonCompareResult.getMessage());
+                logger.trace("Failed to perform JSON match \"{}\" with \"{}\" because {}", parsedBody.getBodyAsString(), this.matcher, difference);
             }
-        } catch (Exception e) {
-            logger.trace("Failed to perform JSON match \"{}\" with \"{}\" because {}", matched, this.matcher, e.getMessage());
+        } else {
+            result = jsonTreeComparator.matches(expected, parsedBody.getJson(), null);
         }
 
         return reverseResultIfNot(result);
     }
+
+    @Override
+    public String[] fieldsExcludedFromEqualsAndHashCode() {
+        return new String[]{"logger", "jsonTreeComparator", "expected"};
+    }
 }
@@ -0,0 +1,266 @@
+package org.mockserver.matchers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.*;
+
+import static org.mockserver.character.Character.NEW_LINE;
+
+/**
+ * Compares two parsed JSON trees with the same semantics as JSONAssert, STRICT requires arrays in the same order and
+ * objects with no extra fields, ONLY_MATCHING_FIELDS allows arrays in any order and extra fields
+ * <p>
+ * Comparison stops at the first difference, a description of the difference is only built if a StringBuilder is
+ * provided so nothing is allocated when the result is not logged
+ *
+ * @author jamesdbloom
+ */
+class JsonTreeComparator {
+
+    private final boolean strictOrder;
+    private final boolean extensible;
+
+    JsonTreeComparator(MatchType matchType) {
+        this.strictOrder = matchType == MatchType.STRICT;
+        this.extensible = matchType != MatchType.STRICT;
+    }
+
+    boolean matches(JsonNode expected, JsonNode actual, StringBuilder difference) {
+        if (expected == null || actual == null) {
+            if (difference != null) {
+                difference.append("Expected and actual must both be valid JSON");
+            }
+            return false;
+        } else if (expected.isObject() && actual.isObject()) {
+            return compareObjects("", expected, actual, difference);
+        } else if (expected.isArray() && actual.isArray()) {
+            return compareArrays("", expected, actual, difference);
+        } else {
+            if (difference != null) {
+                difference.append("Expected and actual must both be either a JSON object or a JSON array");
+            }
+            return false;
+        }
+    }
+
+    private boolean compareObjects(String prefix, JsonNode expected, JsonNode actual, StringBuilder difference) {
+        Iterator<Map.Entry<String, JsonNode>> expectedFields = expected.fields();
+        while (expectedFields.hasNext()) {
+            Map.Entry<String, JsonNode> expectedField = expectedFields.next();
+            JsonNode actualValue = actual.get(expectedField.getKey());
+            if (actualValue == null) {
+                if (difference != null) {
+                    difference.append(prefix).append(NEW_LINE).append("Expected: ").append(expectedField.getKey()).append(NEW_LINE).append("     but none found");
+                }
+                return false;
+            } else if (!compareValues(qualify(prefix, expectedField.getKey()), expectedField.getValue(), actualValue, difference)) {
+                return false;
+            }
+        }
+        if (!extensible && actual.size() != expected.size()) {
+            Iterator<String> actualFieldNames = actual.fieldNames();
+            while (actualFieldNames.hasNext()) {
+                String actualFieldName = actualFieldNames.next();
+                if (!expected.has(actualFieldName)) {
+                    if (difference != null) {
+                        difference.append(prefix).append(NEW_LINE).append("Unexpected: ").append(actualFieldName);
+                    }
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean compareValues(String prefix, JsonNode expected, JsonNode actual, StringBuilder difference) {
+        boolean result;
+        if (expected.isNumber() && actual.isNumber()) {
+            result = expected.doubleValue() == actual.doubleValue();
+        } else if (expected.isObject() && actual.isObject()) {
+            return compareObjects(prefix, expected, actual, difference);
+        } else if (expected.isArray() && actual.isArray()) {
+            return compareArrays(prefix, expected, actual, difference);
+        } else {
+            result = expected.equals(actual);
+        }
+        if (!result && difference != null) {
+            difference.append(prefix).append(NEW_LINE).append("Expected: ").append(expected).append(NEW_LINE).append("     got: ").append(actual);
+        }
+        return result;
+    }
+
+    private boolean compareArrays(String prefix, JsonNode expected, JsonNode actual, StringBuilder difference) {
+        if (expected.size() != actual.size()) {
+            if (difference != null) {
+                difference.append(prefix).append("[]: Expected ").append(expected.size()).append(" values but got ").append(actual.size());
+            }
+            return false;
+        } else if (expected.size() == 0) {
+            return true;
+        } else if (strictOrder) {
+            for (int i = 0; i < expected.size(); i++) {
+                if (!compareValues(prefix + "[" + i + "]", expected.get(i), actual.get(i), difference)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (allSimpleValues(expected)) {
+            return compareArraysOfSimpleValues(prefix, expected, actual, difference);
+        } else if (allObjects(expected)) {
+            String uniqueKey = findUniqueKey(expected);
+            if (uniqueKey == null || !allHaveKey(actual, uniqueKey)) {
+                return recursivelyCompareArrays(prefix, expected, actual, difference);
+            } else {
+                return compareArraysOfObjects(prefix, uniqueKey, expected, actual, difference);
+            }
+        } else {
+            return recursivelyCompareArrays(prefix, expected, actual, difference);
+        }
+    }
+
+    private boolean compareArraysOfSimpleValues(String prefix, JsonNode expected, JsonNode actual, StringBuilder difference) {
+        Map<JsonNode, Integer> expectedCount = cardinality(expected);
+        Map<JsonNode, Integer> actualCount = cardinality(actual);
+        for (Map.Entry<JsonNode, Integer> expectedEntry : expectedCount.entrySet()) {
+            Integer count = actualCount.get(expectedEntry.getKey());
+            if (!expectedEntry.getValue().equals(count)) {
+                if (difference != null) {
+                    difference.append(prefix).append("[]: Expected ").append(expectedEntry.getValue()).append(" occurrence(s) of ").append(expectedEntry.getKey()).append(" but got ").append(count != null ? count : 0);
+                }
+                return false;
+            }
+        }
+        for (JsonNode actualValue : actualCount.keySet()) {
+            if (!expectedCount.containsKey(actualValue)) {
+                if (difference != null) {
+                    difference.append(prefix).append("[]").append(NEW_LINE).append("Unexpected: ").append(actualValue);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean compareArraysOfObjects(String prefix, String uniqueKey, JsonNode expected, JsonNode actual, StringBuilder difference) {
+        Map<JsonNode, JsonNode> expectedById = byKey(expected, uniqueKey);
+        Map<JsonNode, JsonNode> actualById = byKey(actual, uniqueKey);
+        for (Map.Entry<JsonNode, JsonNode> expectedEntry : expectedById.entrySet()) {
+            JsonNode actualValue = actualById.get(expectedEntry.getKey());
+            if (actualValue == null) {
+                if (difference != null) {
+                    difference.append(prefix).append("[").append(uniqueKey).append("=").append(expectedEntry.getKey()).append("]").append(NEW_LINE).append("Expected: ").append(expectedEntry.getValue()).append(NEW_LINE).append("     but none found");
+                }
+                return false;
+            } else if (!compareValues(prefix + "[" + uniqueKey + "=" + expectedEntry.getKey() + "]", expectedEntry.getValue(), actualValue, difference)) {
+                return false;
+            }
+        }
+        for (JsonNode id : actualById.keySet()) {
+            if (!expectedById.containsKey(id)) {
+                if (difference != null) {
+                    difference.append(prefix).append("[").append(uniqueKey).append("=").append(id).append("]").append(NEW_LINE).append("Unexpected: ").append(actualById.get(id));
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean recursivelyCompareArrays(String prefix, JsonNode expected, JsonNode actual, StringBuilder difference) {
+        boolean[] matched = new boolean[actual.size()];
+        for (int i = 0; i < expected.size(); i++) {
+            JsonNode expectedElement = expected.get(i);
+            boolean matchFound = false;
+            for (int j = 0; j < actual.size() && !matchFound; j++) {
+                if (!matched[j]) {
+                    JsonNode actualElement = actual.get(j);
+                    if (expectedElement.isObject() && actualElement.isObject()) {
+                        matchFound = compareObjects(prefix, expectedElement, actualElement, null);
+                    } else if (expectedElement.isArray() && actualElement.isArray()) {
+                        matchFound = compareArrays(prefix, expectedElement, actualElement, null);
+                    } else {
+                        matchFound = expectedElement.equals(actualElement);
+                    }
+                    matched[j] = matchFound;
+                }
+            }
+            if (!matchFound) {
+                if (difference != null) {
+                    difference.append(prefix).append("[").append(i).append("] Could not find match for element ").append(expectedElement);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean allSimpleValues(JsonNode array) {
+        for (JsonNode element : array) {
+            if (element.isContainerNode()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean allObjects(JsonNode array) {
+        for (JsonNode element : array) {
+            if (!element.isObject()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean allHaveKey(JsonNode array, String key) {
+        for (JsonNode element : array) {
+            if (!element.isObject() || !element.has(key)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String findUniqueKey(JsonNode expected) {
+        Iterator<String> candidateKeys = expected.get(0).fieldNames();
+        while (candidateKeys.hasNext()) {
+            String candidateKey = candidateKeys.next();
+            if (isUsableAsUniqueKey(candidateKey, expected)) {
+                return candidateKey;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isUsableAsUniqueKey(String candidateKey, JsonNode array) {
+        Set<JsonNode> seenValues = new HashSet<JsonNode>();
+        for (JsonNode element : array) {
+            JsonNode value = element.get(candidateKey);
+            if (value == null || value.isContainerNode() || !seenValues.add(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<JsonNode, Integer> cardinality(JsonNode array) {
+        Map<JsonNode, Integer> cardinality = new HashMap<JsonNode, Integer>();
+        for (JsonNode element : array) {
+            Integer count = cardinality.get(element);
+            cardinality.put(element, count != null ? count + 1 : 1);
+        }
+        return cardinality;
+    }
+
+    private static Map<JsonNode, JsonNode> byKey(JsonNode array, String key) {
+        Map<JsonNode, JsonNode> byKey = new HashMap<JsonNode, JsonNode>();
+        for (JsonNode element : array) {
+            byKey.put(element.get(key), element);
+        }
+        return byKey;
+    }
+
+    private static String qualify(String prefix, String key) {
+        return prefix.isEmpty() ? key : prefix + "." + key;
+    }
+}
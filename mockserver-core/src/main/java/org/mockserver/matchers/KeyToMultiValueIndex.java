@@ -0,0 +1,146 @@
+package org.mockserver.matchers;
+
+import org.mockserver.model.KeyToMultiValue;
+import org.mockserver.model.NottableString;
+
+import java.util.*;
+
+import static org.mockserver.model.NottableString.string;
+
+/**
+ * Index of the keys and values of a request's headers or parameters, this is built once per request so that each
+ * expectation can find the values for a key without a case insensitive regex comparison against every key
+ * <p>
+ * A key that is a plain ascii string (i.e. not notted and without any regex characters) can only match another plain
+ * key that is equal ignoring case, so these keys are hashed by their lower case form, any other key may match keys
+ * that differ from it and so is compared with every key that is looked up
+ *
+ * @author jamesdbloom
+ */
+public class KeyToMultiValueIndex {
+
+    private final List<? extends KeyToMultiValue> keyToMultiValues;
+    private final Map<String, List<NottableString[]>> entriesByLiteralKey = new HashMap<String, List<NottableString[]>>();
+    private final List<NottableString[]> entriesWithOtherKeys = new ArrayList<NottableString[]>();
+    private final List<NottableString[]> allEntries = new ArrayList<NottableString[]>();
+
+    public KeyToMultiValueIndex(List<? extends KeyToMultiValue> keyToMultiValues) {
+        this.keyToMultiValues = keyToMultiValues;
+        if (keyToMultiValues != null) {
+            for (KeyToMultiValue keyToMultiValue : keyToMultiValues) {
+                NottableString key = keyToMultiValue.getName();
+                String literalKey = literalKey(key);
+                for (NottableString value : keyToMultiValue.getValues()) {
+                    NottableString[] entry = new NottableString[]{key, value};
+                    allEntries.add(entry);
+                    if (literalKey != null) {
+                        List<NottableString[]> entries = entriesByLiteralKey.get(literalKey);
+                        if (entries == null) {
+                            entries = new ArrayList<NottableString[]>();
+                            entriesByLiteralKey.put(literalKey, entries);
+                        }
+                        entries.add(entry);
+                    } else {
+                        entriesWithOtherKeys.add(entry);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the lower case form of the key if it is a plain ascii string, or null if it may match a different key
+     */
+    public static String literalKey(NottableString key) {
+        if (key == null || key.isNot() || key.getValue() == null || key.getValue().isEmpty()) {
+            return null;
+        }
+        String value = key.getValue();
+        char[] lowerCase = new char[value.length()];
+        for (int i = 0; i < value.length(); i++) {
+            char character = value.charAt(i);
+            if (character > 127 || ClassifiedString.REGEX_CHARACTERS.indexOf(character) >= 0) {
+                return null;
+            }
+            lowerCase[i] = character >= 'A' && character <= 'Z' ? (char) (character + ('a' - 'A')) : character;
+        }
+        return new String(lowerCase);
+    }
+
+    public boolean isEmpty() {
+        return allEntries.isEmpty();
+    }
+
+    /**
+     * Returns true if any entry matches both the key and the value, using the same case insensitive regex matching as
+     * {@link org.mockserver.collections.CaseInsensitiveRegexMultiMap#containsKeyValue(NottableString, NottableString)}
+     */
+    public boolean containsKeyValue(NottableString key, NottableString value) {
+        return containsKeyValue(key, value, true);
+    }
+
+    /**
+     * @param bidirectional true if the matched keys and values can also be regexes for the key and value
+     */
+    public boolean containsKeyValue(NottableString key, NottableString value, boolean bidirectional) {
+        return containsKeyValue(new ClassifiedKeyValue(key, value, bidirectional));
+    }
+
+    /**
+     * @param keyValue the key and value classified once when the matcher was built
+     */
+    boolean containsKeyValue(ClassifiedKeyValue keyValue) {
+        if (keyValue.literalKey != null) {
+            List<NottableString[]> entries = entriesByLiteralKey.get(keyValue.literalKey);
+            return (entries != null && containsKeyValue(entries, keyValue)) || containsKeyValue(entriesWithOtherKeys, keyValue);
+        } else {
+            return containsKeyValue(allEntries, keyValue);
+        }
+    }
+
+    private static boolean containsKeyValue(List<NottableString[]> entries, ClassifiedKeyValue keyValue) {
+        for (NottableString[] entry : entries) {
+            if (RegexStringMatcher.matches(keyValue.key, keyValue.classifiedKey, entry[0], true)
+                    && RegexStringMatcher.matches(keyValue.value, keyValue.classifiedValue, entry[1], true)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A key and value to look up, with the literal form of the key and both the key and value classified, so a matcher
+     * can classify its keys and values once and reuse them for every request
+     */
+    static class ClassifiedKeyValue {
+        private final NottableString key;
+        private final NottableString value;
+        private final String literalKey;
+        private final ClassifiedString classifiedKey;
+        private final ClassifiedString classifiedValue;
+
+        ClassifiedKeyValue(NottableString key, NottableString value, boolean bidirectional) {
+            this(key, value, new ClassifiedString(key.getValue(), bidirectional), new ClassifiedString(value.getValue(), bidirectional));
+        }
+
+        private ClassifiedKeyValue(NottableString key, NottableString value, ClassifiedString classifiedKey, ClassifiedString classifiedValue) {
+            this.key = key;
+            this.value = value;
+            this.literalKey = literalKey(key);
+            this.classifiedKey = classifiedKey;
+            this.classifiedValue = classifiedValue;
+        }
+
+        /**
+         * @return the same key and value without not, reusing the classification as it only depends on the values
+         */
+        ClassifiedKeyValue withoutNot() {
+            return new ClassifiedKeyValue(string(key.getValue()), string(value.getValue()), classifiedKey, classifiedValue);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(keyToMultiValues);
+    }
+}
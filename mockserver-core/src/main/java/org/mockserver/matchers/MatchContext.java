@@ -0,0 +1,50 @@
+package org.mockserver.matchers;
+
+import org.mockserver.model.HttpRequest;
+
+/**
+ * A request being matched and the lazily computed forms of its body, query string parameters and headers, so each
+ * form is computed once however many matchers the request is matched against
+ * <p>
+ * A context is created for a single matching pass, such as finding the expectation matched by a received request or
+ * matching a logged request against several verifications, and is never held by the request, so the parsed forms
+ * are discarded when the pass ends and are never shared between threads
+ *
+ * @author jamesdbloom
+ */
+public class MatchContext {
+
+    private final HttpRequest httpRequest;
+    private ParsedBody parsedBody;
+    private KeyToMultiValueIndex queryStringParameterIndex;
+    private KeyToMultiValueIndex headerIndex;
+
+    public MatchContext(HttpRequest httpRequest) {
+        this.httpRequest = httpRequest;
+    }
+
+    public HttpRequest getHttpRequest() {
+        return httpRequest;
+    }
+
+    public ParsedBody getParsedBody() {
+        if (parsedBody == null) {
+            parsedBody = new ParsedBody(httpRequest.getBody());
+        }
+        return parsedBody;
+    }
+
+    public KeyToMultiValueIndex getQueryStringParameterIndex() {
+        if (queryStringParameterIndex == null) {
+            queryStringParameterIndex = new KeyToMultiValueIndex(httpRequest.getQueryStringParameters());
+        }
+        return queryStringParameterIndex;
+    }
+
+    public KeyToMultiValueIndex getHeaderIndex() {
+        if (headerIndex == null) {
+            headerIndex = new KeyToMultiValueIndex(httpRequest.getHeaders());
+        }
+        return headerIndex;
+    }
+}
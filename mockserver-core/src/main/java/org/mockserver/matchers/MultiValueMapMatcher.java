@@ -1,32 +1,117 @@
 package org.mockserver.matchers;
 
 import org.mockserver.collections.CaseInsensitiveRegexMultiMap;
-import org.mockserver.model.ObjectWithReflectiveEqualsHashCodeToString;
+import org.mockserver.configuration.ConfigurationProperties;
 import org.mockserver.model.KeyToMultiValue;
+import org.mockserver.model.NottableString;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author jamesdbloom
  */
 public class MultiValueMapMatcher extends NotMatcher<List<KeyToMultiValue>> {
     private final CaseInsensitiveRegexMultiMap multiMap;
+    private final boolean bidirectionalRegexMatching = ConfigurationProperties.bidirectionalRegexMatching();
+    // the entries of the map with their keys and values classified, only classified again if the map is changed
+    private volatile ClassifiedEntries classifiedEntries;
 
     public MultiValueMapMatcher(CaseInsensitiveRegexMultiMap multiMap) {
         this.multiMap = multiMap;
+        if (multiMap != null) {
+            this.classifiedEntries = new ClassifiedEntries(multiMap.entryList(), bidirectionalRegexMatching);
+        }
+        addFieldsExcludedFromEqualsAndHashCode("bidirectionalRegexMatching", "classifiedEntries");
     }
 
     public boolean matches(List<KeyToMultiValue> values) {
+        return matchesIndex(new KeyToMultiValueIndex(values));
+    }
+
+    public boolean matchesIndex(KeyToMultiValueIndex values) {
         boolean result = false;
 
         if (multiMap == null) {
             result = true;
-        } else if (KeyToMultiValue.toMultiMap(values).containsAll(multiMap)) {
+        } else if (containsAll(values)) {
             result = true;
         } else {
-            logger.trace("Map [{}] is not a subset of [{}]", multiMap, KeyToMultiValue.toMultiMap(values));
+            logger.trace("Map [{}] is not a subset of [{}]", multiMap, values);
         }
 
         return reverseResultIfNot(result);
     }
+
+    /**
+     * Same logic as {@link CaseInsensitiveRegexMultiMap#containsAll(CaseInsensitiveRegexMultiMap)} but using an index
+     * of the matched values
+     */
+    private boolean containsAll(KeyToMultiValueIndex values) {
+        if (values.isEmpty() && allKeysNotted()) {
+            return true;
+        } else {
+            ClassifiedEntries classifiedEntries = classifiedEntries();
+            for (int i = 0; i < classifiedEntries.entries.size(); i++) {
+                KeyToMultiValueIndex.ClassifiedKeyValue withoutNot = classifiedEntries.withoutNot.get(i);
+                if (withoutNot != null && values.containsKeyValue(withoutNot)) {
+                    return false;
+                } else if (!values.containsKeyValue(classifiedEntries.classified.get(i))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private ClassifiedEntries classifiedEntries() {
+        List<Map.Entry<NottableString, NottableString>> entries = multiMap.entryList();
+        ClassifiedEntries classifiedEntries = this.classifiedEntries;
+        if (!classifiedEntries.isFor(entries)) {
+            classifiedEntries = new ClassifiedEntries(entries, bidirectionalRegexMatching);
+            this.classifiedEntries = classifiedEntries;
+        }
+        return classifiedEntries;
+    }
+
+    private boolean allKeysNotted() {
+        for (NottableString key : multiMap.keySet()) {
+            if (!key.isNot()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class ClassifiedEntries {
+        private final List<Map.Entry<NottableString, NottableString>> entries;
+        private final List<KeyToMultiValueIndex.ClassifiedKeyValue> classified = new ArrayList<KeyToMultiValueIndex.ClassifiedKeyValue>();
+        // the entry without not for each notted entry, otherwise null
+        private final List<KeyToMultiValueIndex.ClassifiedKeyValue> withoutNot = new ArrayList<KeyToMultiValueIndex.ClassifiedKeyValue>();
+
+        ClassifiedEntries(List<Map.Entry<NottableString, NottableString>> entries, boolean bidirectionalRegexMatching) {
+            this.entries = entries;
+            for (Map.Entry<NottableString, NottableString> entry : entries) {
+                KeyToMultiValueIndex.ClassifiedKeyValue classifiedEntry = new KeyToMultiValueIndex.ClassifiedKeyValue(entry.getKey(), entry.getValue(), bidirectionalRegexMatching);
+                classified.add(classifiedEntry);
+                withoutNot.add(entry.getKey().isNot() || entry.getValue().isNot() ? classifiedEntry.withoutNot() : null);
+            }
+        }
+
+        /**
+         * @return true if the entries are the same keys and values that were classified
+         */
+        boolean isFor(List<Map.Entry<NottableString, NottableString>> entries) {
+            if (entries.size() != this.entries.size()) {
+                return false;
+            }
+            for (int i = 0; i < entries.size(); i++) {
+                if (entries.get(i).getKey() != this.entries.get(i).getKey() || entries.get(i).getValue() != this.entries.get(i).getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
 }
@@ -0,0 +1,176 @@
+package org.mockserver.matchers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.base.Charsets;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.mockserver.client.serialization.ObjectMapperFactory;
+import org.mockserver.client.serialization.model.BodyDTO;
+import org.mockserver.model.Body;
+import org.mockserver.model.KeyToMultiValue;
+import org.mockserver.model.Parameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * Lazily computed forms of a request body, this is held by a {@link MatchContext} so that each form is only computed
+ * once no matter how many matchers the request is matched against in a single matching pass
+ * <p>
+ * The parsed forms are shared by the matchers and so must not be modified by them, a parsed body is not thread safe,
+ * as a DOM document is not thread safe even for reading, so it must only be used by the thread that created it
+ *
+ * @author jamesdbloom
+ */
+public class ParsedBody {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParsedBody.class);
+
+    private final Body body;
+    private String bodyAsString;
+    private boolean bodyDTOParsed;
+    private BodyDTO bodyDTO;
+    private boolean jsonParsed;
+    private JsonNode json;
+    private boolean xmlParsed;
+    private Document xmlDocument;
+    private boolean parametersParsed;
+    private List<KeyToMultiValue> parameters;
+    private KeyToMultiValueIndex parameterIndex;
+
+    public ParsedBody(Body body) {
+        this.body = body;
+    }
+
+    public ParsedBody(String bodyAsString) {
+        this.body = null;
+        this.bodyAsString = bodyAsString != null ? bodyAsString : "";
+    }
+
+    public byte[] getBodyAsRawBytes() {
+        if (body != null) {
+            return body.getRawBytes();
+        } else if (bodyAsString != null) {
+            return bodyAsString.getBytes(Charsets.UTF_8);
+        } else {
+            return new byte[0];
+        }
+    }
+
+    /**
+     * @return the charset used to decode the raw bytes of the body into a string
+     */
+    public Charset getCharset() {
+        return body != null ? body.getCharset(Charsets.UTF_8) : Charsets.UTF_8;
+    }
+
+    public String getBodyAsString() {
+        if (bodyAsString == null) {
+            bodyAsString = body != null ? new String(body.getRawBytes(), getCharset()) : "";
+        }
+        return bodyAsString;
+    }
+
+    /**
+     * The body parsed as a serialised body matcher, this is only relevant for control plane requests (i.e. clear,
+     * retrieve or verify) where the request being matched can describe a body matcher instead of an actual body
+     *
+     * @return the parsed body matcher or null if the body is not a serialised body matcher
+     */
+    public BodyDTO getBodyDTO() {
+        if (!bodyDTOParsed) {
+            String bodyAsString = getBodyAsString();
+            if (startsLikeJsonObject(bodyAsString)) {
+                try {
+                    bodyDTO = ObjectMapperFactory.createObjectMapper().readValue(bodyAsString, BodyDTO.class);
+                } catch (IOException e) {
+                    // ignore this exception as this exception will always get thrown for "normal" HTTP requests (i.e. not clear or retrieve)
+                }
+            }
+            bodyDTOParsed = true;
+        }
+        return bodyDTO;
+    }
+
+    /**
+     * @return the body parsed as a JSON tree or null if the body is not valid JSON
+     */
+    public JsonNode getJson() {
+        if (!jsonParsed) {
+            try {
+                json = ObjectMapperFactory.createObjectMapper().readTree(getBodyAsString());
+            } catch (Exception e) {
+                logger.trace("Failed to parse [{}] as JSON because {}", getBodyAsString(), e.getMessage());
+            }
+            jsonParsed = true;
+        }
+        return json;
+    }
+
+    /**
+     * @return the body parsed as a DOM document or null if the body is not valid XML
+     */
+    public Document getXmlDocument() {
+        if (!xmlParsed) {
+            try {
+                xmlDocument = new StringToXmlDocumentParser().buildDocument(getBodyAsString(), new StringToXmlDocumentParser.ErrorLogger() {
+                    @Override
+                    public void logError(final String matched, final Exception exception) {
+                        logger.debug("SAXParseException while parsing [" + matched + "]", exception);
+                    }
+                });
+            } catch (Exception e) {
+                logger.trace("Failed to parse [{}] as XML because {}", getBodyAsString(), e.getMessage());
+            }
+            xmlParsed = true;
+        }
+        return xmlDocument;
+    }
+
+    /**
+     * @return the body decoded as form parameters
+     */
+    public List<KeyToMultiValue> getParameters() {
+        if (!parametersParsed) {
+            Map<String, Parameter> mappedParameters = new LinkedHashMap<String, Parameter>();
+            Map<String, List<String>> parameters = new QueryStringDecoder("?" + getBodyAsString()).parameters();
+            for (String name : parameters.keySet()) {
+                // TODO(jamesdbloom) support nottable parameters
+                for (String value : parameters.get(name)) {
+                    if (mappedParameters.containsKey(name)) {
+                        mappedParameters.get(name).addValue(value);
+                    } else {
+                        mappedParameters.put(name, new Parameter(name, value));
+                    }
+                }
+            }
+            this.parameters = Collections.unmodifiableList(new ArrayList<KeyToMultiValue>(mappedParameters.values()));
+            parametersParsed = true;
+        }
+        return parameters;
+    }
+
+    /**
+     * @return an index of the body decoded as form parameters
+     */
+    public KeyToMultiValueIndex getParameterIndex() {
+        if (parameterIndex == null) {
+            parameterIndex = new KeyToMultiValueIndex(getParameters());
+        }
+        return parameterIndex;
+    }
+
+    private static boolean startsLikeJsonObject(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char character = value.charAt(i);
+            if (!Character.isWhitespace(character)) {
+                // comments are allowed by the object mapper
+                return character == '{' || character == '/';
+            }
+        }
+        return false;
+    }
+}
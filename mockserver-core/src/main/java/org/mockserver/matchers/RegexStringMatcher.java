@@ -1,10 +1,16 @@
 package org.mockserver.matchers;
 
-import com.google.common.base.Strings;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import org.mockserver.configuration.ConfigurationProperties;
 import org.mockserver.model.NottableString;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 import static org.mockserver.model.NottableString.string;
@@ -14,84 +20,91 @@ import static org.mockserver.model.NottableString.string;
  */
 public class RegexStringMatcher extends BodyMatcher<NottableString> {
     private static final Logger logger = LoggerFactory.getLogger(RegexStringMatcher.class);
+    private static final int MAXIMUM_NUMBER_OF_CACHED_PATTERNS = 5000;
+    // longer values, such as request bodies, are compiled without caching to avoid holding large strings
+    private static final int MAXIMUM_LENGTH_OF_CACHED_PATTERN = 1024;
+    // patterns that fail to compile are cached as absent so invalid regexes are only compiled once
+    private static final LoadingCache<String, Optional<Pattern>> PATTERN_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_NUMBER_OF_CACHED_PATTERNS)
+            .build(new CacheLoader<String, Optional<Pattern>>() {
+                @Override
+                public Optional<Pattern> load(String regex) {
+                    return compileUncached(regex);
+                }
+            });
     private final NottableString matcher;
+    private final ClassifiedString classifiedMatcher;
 
     public RegexStringMatcher(String matcher) {
-        this.matcher = string(matcher);
+        this(string(matcher));
     }
 
     public RegexStringMatcher(NottableString matcher) {
         this.matcher = matcher;
+        this.classifiedMatcher = matcher != null ? new ClassifiedString(matcher.getValue(), ConfigurationProperties.bidirectionalRegexMatching()) : null;
+        addFieldsExcludedFromEqualsAndHashCode("classifiedMatcher");
     }
 
-    public static boolean matches(NottableString matcher, NottableString matched, boolean ignoreCase) {
-        return matcher.isNot() != (matched.isNot() != matches(matcher.getValue(), matched.getValue(), ignoreCase));
+    /**
+     * Returns the compiled pattern for the regex from a bounded cache shared by all matchers
+     *
+     * @return the compiled pattern or null if the regex is not a valid pattern
+     */
+    static Pattern compile(String regex) {
+        if (regex.length() > MAXIMUM_LENGTH_OF_CACHED_PATTERN) {
+            return compileUncached(regex).orNull();
+        }
+        return PATTERN_CACHE.getUnchecked(regex).orNull();
     }
 
-    public static boolean matches(String matcher, String matched, boolean ignoreCase) {
-        boolean result = false;
+    /**
+     * @return true if the result of compiling the regex, even if it is not a valid pattern, is in the cache
+     */
+    @VisibleForTesting
+    static boolean isCached(String regex) {
+        return PATTERN_CACHE.getIfPresent(regex) != null;
+    }
 
-        if (Strings.isNullOrEmpty(matcher)) {
-            result = true;
-        } else if (matched != null) {
-            // match as exact string
-            if (matched.equals(matcher)) {
-                result = true;
-            }
-            if (!result) {
-                // match as regex - matcher -> matched
-                try {
-                    if (matched.matches(matcher)) {
-                        result = true;
-                    }
-                } catch (PatternSyntaxException pse) {
-                    logger.trace("Error while matching regex [" + matcher + "] for string [" + matched + "] " + pse.getMessage());
-                }
-                // match as regex - matched -> matcher
-                try {
-                    if (matcher.matches(matched)) {
-                        result = true;
-                    }
-                } catch (PatternSyntaxException pse) {
-                    logger.trace("Error while matching regex [" + matched + "] for string [" + matcher + "] " + pse.getMessage());
-                }
-                // case insensitive comparison is mainly to improve matching in web containers like Tomcat that convert header names to lower case
-                if (!result && ignoreCase) {
-                    // match as exact string lower-case
-                    if (matched.equalsIgnoreCase(matcher)) {
-                        result = true;
-                    }
-                    // match as regex - matcher -> matched
-                    try {
-                        if (matched.toLowerCase().matches(matcher.toLowerCase())) {
-                            result = true;
-                        }
-                    } catch (PatternSyntaxException pse) {
-                        logger.trace("Error while matching regex [" + matcher.toLowerCase() + "] for string [" + matched.toLowerCase() + "] " + pse.getMessage());
-                    }
-                    // match as regex - matched -> matcher
-                    try {
-                        if (matcher.toLowerCase().matches(matched.toLowerCase())) {
-                            result = true;
-                        }
-                    } catch (PatternSyntaxException pse) {
-                        logger.trace("Error while matching regex [" + matched.toLowerCase() + "] for string [" + matcher.toLowerCase() + "] " + pse.getMessage());
-                    }
-                }
-            }
+    private static Optional<Pattern> compileUncached(String regex) {
+        try {
+            return Optional.of(Pattern.compile(regex));
+        } catch (PatternSyntaxException pse) {
+            logger.trace("Error while compiling regex [" + regex + "] " + pse.getMessage());
+            return Optional.absent();
         }
+    }
 
-        return result;
+    public static boolean matches(NottableString matcher, NottableString matched, boolean ignoreCase) {
+        return matches(matcher, matched, ignoreCase, true);
+    }
+
+    public static boolean matches(NottableString matcher, NottableString matched, boolean ignoreCase, boolean bidirectional) {
+        return matches(matcher, new ClassifiedString(matcher.getValue(), bidirectional), matched, ignoreCase);
+    }
+
+    /**
+     * @param classifiedMatcher the value of the matcher classified once when the enclosing matcher was built
+     */
+    static boolean matches(NottableString matcher, ClassifiedString classifiedMatcher, NottableString matched, boolean ignoreCase) {
+        return matcher.isNot() != (matched.isNot() != classifiedMatcher.matches(matched.getValue(), ignoreCase));
+    }
+
+    public static boolean matches(String matcher, String matched, boolean ignoreCase) {
+        return new ClassifiedString(matcher, true).matches(matched, ignoreCase);
     }
 
     public boolean matches(String matched) {
         return matches(string(matched));
     }
 
+    public boolean matchesParsedBody(ParsedBody parsedBody) {
+        return matches(string(parsedBody.getBodyAsString()));
+    }
+
     public boolean matches(NottableString matched) {
         boolean result = false;
 
-        if (matches(matcher.getValue(), matched.getValue(), false)) {
+        if (classifiedMatcher.matches(matched.getValue(), false)) {
             result = true;
         }
 
@@ -5,6 +5,8 @@ import org.apache.xml.serialize.Method;
 import org.apache.xml.serialize.OutputFormat;
 import org.apache.xml.serialize.XMLSerializer;
 import org.mockserver.model.ObjectWithReflectiveEqualsHashCodeToString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 import org.xml.sax.ErrorHandler;
 import org.xml.sax.InputSource;
@@ -23,6 +25,27 @@ import java.io.StringReader;
  */
 public class StringToXmlDocumentParser extends ObjectWithReflectiveEqualsHashCodeToString {
 
+    private static final Logger logger = LoggerFactory.getLogger(StringToXmlDocumentParser.class);
+    private static final String[] DISABLED_FEATURES = new String[]{
+            "http://xml.org/sax/features/external-general-entities",
+            "http://xml.org/sax/features/external-parameter-entities",
+            "http://apache.org/xml/features/nonvalidating/load-external-dtd"
+    };
+    private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY = createDocumentBuilderFactory();
+    // document builders are expensive to create and are not thread safe so one is kept per thread
+    private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDER = new ThreadLocal<DocumentBuilder>() {
+        @Override
+        protected DocumentBuilder initialValue() {
+            try {
+                synchronized (DOCUMENT_BUILDER_FACTORY) {
+                    return DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
+                }
+            } catch (ParserConfigurationException pce) {
+                throw new RuntimeException("Exception creating document builder", pce);
+            }
+        }
+    };
+
     public String normaliseXmlString(String matched, ErrorLogger errorLogger) throws IOException, SAXException, ParserConfigurationException {
         return prettyPrintXmlDocument(buildDocument(matched, errorLogger));
     }
@@ -34,8 +57,7 @@ public class StringToXmlDocumentParser extends ObjectWithReflectiveEqualsHashCod
     }
 
     public Document buildDocument(final String matched, final ErrorLogger errorLogger) throws ParserConfigurationException, IOException, SAXException {
-        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
+        DocumentBuilder documentBuilder = DOCUMENT_BUILDER.get();
         documentBuilder.setErrorHandler(new ErrorHandler() {
             @Override
             public void warning(SAXParseException exception) throws SAXException {
@@ -55,6 +77,19 @@ public class StringToXmlDocumentParser extends ObjectWithReflectiveEqualsHashCod
         return documentBuilder.parse(new InputSource(new StringReader(matched)));
     }
 
+    private static DocumentBuilderFactory createDocumentBuilderFactory() {
+        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        // prevent XML external entity (XXE) attacks, attributes are used as older parsers don't support setFeature
+        for (String feature : DISABLED_FEATURES) {
+            try {
+                documentBuilderFactory.setAttribute(feature, false);
+            } catch (IllegalArgumentException iae) {
+                logger.warn("XML parser does not support feature [" + feature + "]");
+            }
+        }
+        return documentBuilderFactory;
+    }
+
     public static interface ErrorLogger {
         public void logError(final String matched, final Exception exception);
     }
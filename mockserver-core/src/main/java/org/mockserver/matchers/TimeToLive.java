@@ -1,8 +1,8 @@
 package org.mockserver.matchers;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.mockserver.model.ObjectWithReflectiveEqualsHashCodeToString;
 
-import java.util.Date;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -10,20 +10,22 @@ import java.util.concurrent.TimeUnit;
  */
 public class TimeToLive extends ObjectWithReflectiveEqualsHashCodeToString {
 
+    // a time to live longer than this would overflow the monotonic clock, so is treated as this long (over 70 years)
+    private static final long MAX_TIME_TO_LIVE_NANOS = Long.MAX_VALUE / 4;
     private final TimeUnit timeUnit;
     private final Long timeToLive;
     private final boolean unlimited;
-    private final Date createdDate;
-    private Date endDate;
+    private final long endNanos;
 
     private TimeToLive(TimeUnit timeUnit, Long timeToLive, boolean unlimited) {
-        addFieldsExcludedFromEqualsAndHashCode("createdDate", "endDate");
+        addFieldsExcludedFromEqualsAndHashCode("endNanos");
         this.timeUnit = timeUnit;
         this.timeToLive = timeToLive;
         this.unlimited = unlimited;
-        createdDate = new Date();
         if (!unlimited) {
-            endDate = new Date(System.currentTimeMillis() + timeUnit.toMillis(timeToLive));
+            endNanos = System.nanoTime() + Math.min(timeUnit.toNanos(timeToLive), MAX_TIME_TO_LIVE_NANOS);
+        } else {
+            endNanos = 0;
         }
     }
 
@@ -47,18 +49,22 @@ public class TimeToLive extends ObjectWithReflectiveEqualsHashCodeToString {
         return unlimited;
     }
 
+    /**
+     * @return the time, from the monotonic clock of {@link System#nanoTime()}, at which this expires
+     */
+    @JsonIgnore
+    public long getEndNanos() {
+        return endNanos;
+    }
+
     public boolean stillAlive() {
-        if (unlimited || isAfterNow(endDate)) {
+        if (unlimited || System.nanoTime() - endNanos < 0) {
             return true;
         } else {
             if (logger.isTraceEnabled()) {
-                logger.trace("Remaining time is " + (endDate.getTime() - createdDate.getTime()) + "ms");
+                logger.trace("Time to live of " + timeToLive + " " + timeUnit + " has expired");
             }
             return false;
         }
     }
-
-    private boolean isAfterNow(Date date) {
-        return date.getTime() > System.currentTimeMillis();
-    }
 }
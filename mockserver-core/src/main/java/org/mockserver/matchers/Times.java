@@ -2,13 +2,16 @@ package org.mockserver.matchers;
 
 import org.mockserver.model.ObjectWithReflectiveEqualsHashCodeToString;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
 /**
  * @author jamesdbloom
  */
 public class Times extends ObjectWithReflectiveEqualsHashCodeToString {
 
-    private int remainingTimes;
-    private boolean unlimited;
+    private static final AtomicIntegerFieldUpdater<Times> REMAINING_TIMES = AtomicIntegerFieldUpdater.newUpdater(Times.class, "remainingTimes");
+    private volatile int remainingTimes;
+    private volatile boolean unlimited;
 
     private Times(int remainingTimes, boolean unlimited) {
         this.remainingTimes = remainingTimes;
@@ -46,13 +49,34 @@ public class Times extends ObjectWithReflectiveEqualsHashCodeToString {
 
     public Times decrement() {
         if (!unlimited) {
-            remainingTimes--;
+            REMAINING_TIMES.decrementAndGet(this);
         }
         return this;
     }
 
+    /**
+     * Atomically consumes one of the remaining times, so that concurrent requests can never consume more than the
+     * remaining number of times
+     *
+     * @return true if unlimited or a remaining time was consumed, false if no times remain
+     */
+    public boolean tryConsume() {
+        while (!unlimited) {
+            int current = remainingTimes;
+            if (current <= 0) {
+                logger.trace("Remaining count is 0");
+                return false;
+            }
+            if (REMAINING_TIMES.compareAndSet(this, current, current - 1)) {
+                return true;
+            }
+        }
+        return true;
+    }
+
     public Times setNotUnlimitedResponses() {
         if (unlimited) {
+            // remainingTimes must be written before unlimited so any thread that sees limited also sees the count
             remainingTimes = 1;
             unlimited = false;
         }
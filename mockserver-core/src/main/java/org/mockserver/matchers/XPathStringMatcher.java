@@ -1,9 +1,12 @@
 package org.mockserver.matchers;
 
 import org.apache.commons.lang3.StringUtils;
+import org.mockserver.collections.ThreadLocalCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
 
+import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
@@ -14,39 +17,60 @@ import javax.xml.xpath.XPathFactory;
  */
 public class XPathStringMatcher extends BodyMatcher<String> {
     private static Logger logger = LoggerFactory.getLogger(XPathStringMatcher.class);
+    // xpath factories, xpaths and compiled expressions are not thread safe so one of each is kept per thread
+    private static final ThreadLocal<XPath> XPATH = new ThreadLocal<XPath>() {
+        @Override
+        protected XPath initialValue() {
+            return XPathFactory.newInstance().newXPath();
+        }
+    };
+    // the compiled expressions are keyed by expression, null if the expression is not valid
+    private static final ThreadLocalCache<String, XPathExpression> XPATH_EXPRESSIONS = new ThreadLocalCache<String, XPathExpression>(256) {
+        @Override
+        protected XPathExpression create(String matcher) {
+            return compile(matcher);
+        }
+    };
     private final String matcher;
-    private final StringToXmlDocumentParser stringToXmlDocumentParser = new StringToXmlDocumentParser();
-    private XPathExpression xpathExpression = null;
+    private final boolean validXPath;
 
     public XPathStringMatcher(String matcher) {
         this.matcher = matcher;
+        this.validXPath = XPATH_EXPRESSIONS.get(matcher) != null;
+    }
+
+    private static XPathExpression compile(String matcher) {
         if (StringUtils.isNotEmpty(matcher)) {
             try {
-                xpathExpression = XPathFactory.newInstance().newXPath().compile(matcher);
+                return XPATH.get().compile(matcher);
             } catch (XPathExpressionException e) {
                 logger.trace("Error while creating xpath expression for [" + matcher + "] assuming matcher not xpath - " + e.getMessage(), e);
             }
         }
+        return null;
     }
 
     public boolean matches(final String matched) {
+        return matchesParsedBody(new ParsedBody(matched));
+    }
+
+    public boolean matchesParsedBody(ParsedBody parsedBody) {
         boolean result = false;
 
-        if (xpathExpression == null) {
+        String matched = parsedBody.getBodyAsString();
+        if (!validXPath) {
             logger.warn("Attempting match against null XPath Expression for [" + matched + "]" + new RuntimeException("Attempting match against null XPath Expression for [" + matched + "]"));
         } else if (matcher.equals(matched)) {
             result = true;
-        } else if (matched != null) {
+        } else {
             // match as xpath - matcher -> matched
-            try {
-                result = (Boolean) xpathExpression.evaluate(stringToXmlDocumentParser.buildDocument(matched, new StringToXmlDocumentParser.ErrorLogger() {
-                    @Override
-                    public void logError(final String matched, final Exception exception) {
-                        logger.debug("SAXParseException while performing match between [" + matcher + "] and [" + matched + "]", exception);
-                    }
-                }), XPathConstants.BOOLEAN);
-            } catch (Exception e) {
-                logger.trace("Error while matching xpath [" + matcher + "] against string [" + matched + "] assuming no match - " + e.getMessage());
+            Document document = parsedBody.getXmlDocument();
+            if (document != null) {
+                try {
+                    result = (Boolean) XPATH_EXPRESSIONS.get(matcher).evaluate(document, XPathConstants.BOOLEAN);
+                } catch (Exception e) {
+                    logger.trace("Error while matching xpath [" + matcher + "] against string [" + matched + "] assuming no match - " + e.getMessage());
+                }
             }
         }
 
@@ -59,6 +83,6 @@ public class XPathStringMatcher extends BodyMatcher<String> {
 
     @Override
     public String[] fieldsExcludedFromEqualsAndHashCode() {
-        return new String[]{"logger", "xpathExpression"};
+        return new String[]{"logger"};
     }
 }
@@ -20,6 +20,27 @@ public class XmlSchemaMatcher extends BodyMatcher<String> {
         return new String[]{"logger", "xmlSchemaValidator"};
     }
 
+    public boolean matchesParsedBody(ParsedBody parsedBody) {
+        boolean result = false;
+
+        try {
+            // validate directly from the raw bytes so large bodies are streamed to the validator instead of copied
+            String validation = xmlSchemaValidator.isValid(parsedBody.getBodyAsRawBytes(), parsedBody.getCharset());
+
+            result = validation.isEmpty();
+
+            if (!result && logger.isTraceEnabled()) {
+                logger.trace("Failed to perform XML match \"{}\" with schema \"{}\" because {}", parsedBody.getBodyAsString(), this.schema, validation);
+            }
+        } catch (Exception e) {
+            if (logger.isTraceEnabled()) {
+                logger.trace("Failed to perform XML match \"{}\" with schema \"{}\" because {}", parsedBody.getBodyAsString(), this.schema, e.getMessage());
+            }
+        }
+
+        return reverseResultIfNot(result);
+    }
+
     public boolean matches(String matched) {
         boolean result = false;
 
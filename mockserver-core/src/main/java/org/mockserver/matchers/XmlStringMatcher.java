@@ -17,10 +17,12 @@ public class XmlStringMatcher extends BodyMatcher<NottableString> {
     private static Logger logger = LoggerFactory.getLogger(XmlStringMatcher.class);
     private NottableString matcher = string("THIS SHOULD NEVER MATCH");
     private StringToXmlDocumentParser stringToXmlDocumentParser = new StringToXmlDocumentParser();
+    private CanonicalXmlComparator canonicalXmlComparator = null;
 
     public XmlStringMatcher(final String matcher) {
         try {
             this.matcher = string(normaliseXmlString(matcher));
+            this.canonicalXmlComparator = new CanonicalXmlComparator(matcher);
         } catch (Exception e) {
             logger.error("Error while creating xml string matcher for [" + matcher + "]" + e.getMessage(), e);
         }
@@ -29,6 +31,7 @@ public class XmlStringMatcher extends BodyMatcher<NottableString> {
     public XmlStringMatcher(final NottableString matcher) {
         try {
             this.matcher = normaliseXmlNottableString(matcher);
+            this.canonicalXmlComparator = new CanonicalXmlComparator(matcher.getValue());
         } catch (Exception e) {
             logger.error("Error while creating xml string matcher for [" + matcher + "]" + e.getMessage(), e);
         }
@@ -48,18 +51,22 @@ public class XmlStringMatcher extends BodyMatcher<NottableString> {
     }
 
     public boolean matches(String matched) {
-        return matches(string(matched));
+        return matchesXml(matched);
     }
 
     public boolean matches(NottableString matched) {
+        return matchesXml(matched.getValue());
+    }
+
+    public boolean matchesParsedBody(ParsedBody parsedBody) {
+        return matchesXml(parsedBody.getBodyAsString());
+    }
+
+    private boolean matchesXml(String matched) {
         boolean result = false;
 
-        try {
-            if (ExactStringMatcher.matches(matcher.getValue(), normaliseXmlString(matched.getValue()), false)) {
-                result = true;
-            }
-        } catch (Exception e) {
-            logger.trace("Error while matching xml string [" + matcher + "] against xml string [" + matched + "] assuming no match - " + e.getMessage());
+        if (canonicalXmlComparator != null && matched != null && canonicalXmlComparator.matches(matched)) {
+            result = true;
         }
 
         if (!result) {
@@ -68,4 +75,9 @@ public class XmlStringMatcher extends BodyMatcher<NottableString> {
 
         return matcher.isNot() != reverseResultIfNot(result);
     }
+
+    @Override
+    public String[] fieldsExcludedFromEqualsAndHashCode() {
+        return new String[]{"logger", "canonicalXmlComparator"};
+    }
 }
@@ -2,6 +2,8 @@ package org.mockserver.mock;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.mockserver.matchers.HttpRequestMatcher;
+import org.mockserver.matchers.HttpRequestMatcherNetwork;
+import org.mockserver.matchers.MatchContext;
 import org.mockserver.matchers.MatcherBuilder;
 import org.mockserver.matchers.TimeToLive;
 import org.mockserver.matchers.Times;
@@ -176,6 +178,33 @@ public class Expectation extends ObjectWithJsonToString {
         return hasRemainingMatches() && isStillAlive() && httpRequestMatcher.matches(httpRequest, true);
     }
 
+    /**
+     * Matches a request received by MockServer, unlike {@link #matches(HttpRequest)} the request body is never
+     * treated as a serialised body matcher
+     */
+    public boolean matchesIncomingRequest(HttpRequest httpRequest) {
+        return hasRemainingMatches() && isStillAlive() && httpRequestMatcher.matchesIncomingRequest(httpRequest, true);
+    }
+
+    /**
+     * Same as {@link #matchesIncomingRequest(HttpRequest)} but reusing the forms of the request already parsed in the
+     * context
+     */
+    public boolean matchesIncomingRequest(MatchContext matchContext) {
+        return hasRemainingMatches() && isStillAlive() && httpRequestMatcher.matchesIncomingRequest(matchContext, true);
+    }
+
+    /**
+     * Same as {@link #matchesIncomingRequest(HttpRequest)} but reusing the conditions already evaluated for the request
+     */
+    public boolean matchesIncomingRequest(HttpRequestMatcherNetwork.Evaluation evaluation) {
+        return hasRemainingMatches() && isStillAlive() && evaluation.matches(httpRequestMatcher);
+    }
+
+    HttpRequestMatcher getHttpRequestMatcher() {
+        return httpRequestMatcher;
+    }
+
     public boolean hasRemainingMatches() {
         return times == null || times.greaterThenZero();
     }
@@ -191,6 +220,16 @@ public class Expectation extends ObjectWithJsonToString {
         }
     }
 
+    /**
+     * Atomically consumes one remaining match, this should be called after a request has matched to ensure an
+     * expectation limited by {@link Times} is never used more than the number of times specified
+     *
+     * @return true if a match was consumed, false if no matches remain
+     */
+    public boolean consumeRemainingMatch() {
+        return times == null || times.tryConsume();
+    }
+
     public void setNotUnlimitedResponses() {
         if (times != null) {
             times.setNotUnlimitedResponses();
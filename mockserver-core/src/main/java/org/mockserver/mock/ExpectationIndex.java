@@ -0,0 +1,834 @@
+package org.mockserver.mock;
+
+import com.google.common.base.Strings;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.mockserver.matchers.ClassifiedString;
+import org.mockserver.matchers.HttpRequestMatcher;
+import org.mockserver.matchers.HttpRequestMatcherNetwork;
+import org.mockserver.matchers.MatchContext;
+import org.mockserver.matchers.ParsedBody;
+import org.mockserver.model.BinaryBody;
+import org.mockserver.model.Body;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.model.NottableString;
+import org.mockserver.model.StringBody;
+
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static org.mockserver.matchers.ClassifiedString.REGEX_CHARACTERS;
+import static org.mockserver.model.NottableString.string;
+
+/**
+ * An immutable, versioned snapshot of the active expectations, indexed by method and by literal (i.e. non-regex) path
+ * so that only expectations that could match a request are evaluated, expectations with an empty, negated or regex
+ * method or path are held in a fallback bucket for that field and are always treated as candidates, candidates are
+ * always returned in the order the expectations were registered so the first registered matching expectation still wins
+ * <p>
+ * Regex paths are held in a trie of their literal prefixes (i.e. the characters before the first regex character), a
+ * regex path can only match a literal request path that starts with its literal prefix, so a single walk of the trie
+ * along the request path finds every regex path that could match it, a regex path made of '/' separated segments that
+ * are each either literal or a regex that cannot match '/' (such as /accounts/[0-9]+/transactions) is instead held in a
+ * tree of its segments, where literal segments are hashed and regex segments are matched against the request segment,
+ * so finding the candidate templates for a request path costs the depth of the path rather than the number of templates
+ * <p>
+ * Exact string and binary bodies are indexed by a digest of the body, so the body of a request is hashed once and the
+ * expectations with a different exact body are never compared with it, as digests can collide the body of each
+ * candidate is still compared in full by its matcher
+ * <p>
+ * Adding or removing expectations never modifies a snapshot, instead a new snapshot is returned that shares every
+ * bucket not affected by the change, this allows readers to walk a snapshot without locking or copying, the literal
+ * buckets of each field are split into shards by key so a change only copies the shards of the keys it changes, and
+ * many expectations can be added in one change so a bulk load copies the entries and each bucket once
+ *
+ * @author jamesdbloom
+ */
+class ExpectationIndex {
+
+    static final ExpectationIndex EMPTY = new ExpectationIndex();
+
+    private static final int METHOD = 0;
+    private static final int PATH = 1;
+    private static final int STRING_BODY = 2;
+    private static final int BINARY_BODY = 3;
+    private static final int NUMBER_OF_FIELDS = 4;
+    private static final int MINIMUM_REMOVED_REQUEST_MATCHERS = 64;
+    private static final HashFunction BODY_DIGEST = Hashing.murmur3_128();
+
+    private final long version;
+    private final long matchesVersion;
+    private final long nextSequence;
+    private final List<Entry> entries;
+    private final List<Expectation> expectations;
+    private final List<Buckets> literalBuckets;
+    private final List<List<Entry>> fallbackBuckets;
+    private final PrefixTrie regexPathTrie;
+    private final SegmentTree regexPathTree;
+    // compiled on first use unless derived from the network of the previous snapshot, a snapshot is immutable so a
+    // network compiled concurrently by another thread is the same
+    private volatile HttpRequestMatcherNetwork httpRequestMatcherNetwork;
+
+    private ExpectationIndex() {
+        this.version = 0;
+        this.matchesVersion = 0;
+        this.nextSequence = 0;
+        this.entries = Collections.emptyList();
+        this.expectations = Collections.emptyList();
+        this.literalBuckets = new ArrayList<Buckets>();
+        this.fallbackBuckets = new ArrayList<List<Entry>>();
+        for (int field = 0; field < NUMBER_OF_FIELDS; field++) {
+            literalBuckets.add(Buckets.EMPTY);
+            fallbackBuckets.add(Collections.<Entry>emptyList());
+        }
+        this.regexPathTrie = PrefixTrie.EMPTY;
+        this.regexPathTree = SegmentTree.EMPTY;
+    }
+
+    private ExpectationIndex(long version, long matchesVersion, long nextSequence, List<Entry> entries, List<Expectation> expectations, List<Buckets> literalBuckets, List<List<Entry>> fallbackBuckets, PrefixTrie regexPathTrie, SegmentTree regexPathTree, HttpRequestMatcherNetwork httpRequestMatcherNetwork) {
+        this.version = version;
+        this.matchesVersion = matchesVersion;
+        this.nextSequence = nextSequence;
+        this.entries = entries;
+        this.expectations = Collections.unmodifiableList(expectations);
+        this.literalBuckets = literalBuckets;
+        this.fallbackBuckets = fallbackBuckets;
+        this.regexPathTrie = regexPathTrie;
+        this.regexPathTree = regexPathTree;
+        this.httpRequestMatcherNetwork = httpRequestMatcherNetwork;
+    }
+
+    static boolean isLiteral(NottableString nottableString) {
+        if (nottableString == null || nottableString.isNot() || Strings.isNullOrEmpty(nottableString.getValue())) {
+            return false;
+        }
+        return ClassifiedString.isLiteral(nottableString.getValue());
+    }
+
+    /**
+     * The keys of an expectation's request, equal for any two expectations with equal requests
+     */
+    static String[] keys(HttpRequest httpRequest) {
+        String[] keys = new String[NUMBER_OF_FIELDS];
+        if (httpRequest != null && !httpRequest.isNot()) {
+            keys[METHOD] = isLiteral(httpRequest.getMethod()) ? httpRequest.getMethod().getValue() : null;
+            keys[PATH] = isLiteral(httpRequest.getPath()) ? httpRequest.getPath().getValue() : null;
+            Body body = httpRequest.getBody();
+            if (body instanceof StringBody && !body.isNot() && !Strings.isNullOrEmpty(((StringBody) body).getValue())) {
+                keys[STRING_BODY] = digest(((StringBody) body).getValue());
+            } else if (body instanceof BinaryBody && !body.isNot() && ((BinaryBody) body).getValue() != null && ((BinaryBody) body).getValue().length > 0) {
+                keys[BINARY_BODY] = digest(((BinaryBody) body).getValue());
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * The keys of a received request, the body is only hashed if an expectation has an exact body of the same kind
+     */
+    private String[] requestKeys(MatchContext matchContext) {
+        HttpRequest httpRequest = matchContext.getHttpRequest();
+        String[] keys = new String[NUMBER_OF_FIELDS];
+        if (httpRequest != null && !httpRequest.isNot()) {
+            keys[METHOD] = isLiteral(httpRequest.getMethod()) ? httpRequest.getMethod().getValue() : null;
+            keys[PATH] = isLiteral(httpRequest.getPath()) ? httpRequest.getPath().getValue() : null;
+            if (!literalBuckets.get(STRING_BODY).isEmpty() || !literalBuckets.get(BINARY_BODY).isEmpty()) {
+                ParsedBody parsedBody = matchContext.getParsedBody();
+                if (!literalBuckets.get(STRING_BODY).isEmpty()) {
+                    keys[STRING_BODY] = digest(parsedBody.getBodyAsString());
+                }
+                if (!literalBuckets.get(BINARY_BODY).isEmpty()) {
+                    keys[BINARY_BODY] = digest(parsedBody.getBodyAsRawBytes());
+                }
+            }
+        }
+        return keys;
+    }
+
+    private static String digest(String body) {
+        return BODY_DIGEST.hashUnencodedChars(body).toString();
+    }
+
+    private static String digest(byte[] body) {
+        return BODY_DIGEST.hashBytes(body).toString();
+    }
+
+    /**
+     * @return the literal prefix of the request's path if the path is a regex, otherwise null
+     */
+    private static String regexPathPrefix(HttpRequest httpRequest) {
+        if (httpRequest != null && !httpRequest.isNot()) {
+            NottableString path = httpRequest.getPath();
+            if (path != null && !path.isNot() && !Strings.isNullOrEmpty(path.getValue()) && !isLiteral(path)) {
+                return literalPrefix(path.getValue());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the characters at the start of the regex that every string matching the regex must start with
+     */
+    static String literalPrefix(String regex) {
+        // an alternative may start with anything, so alternation is treated as having no prefix
+        if (regex.indexOf('|') != -1) {
+            return "";
+        }
+        int end = 0;
+        while (end < regex.length() && REGEX_CHARACTERS.indexOf(regex.charAt(end)) == -1) {
+            end++;
+        }
+        // these quantifiers make the preceding character optional
+        if (end > 0 && end < regex.length() && "?*{".indexOf(regex.charAt(end)) != -1) {
+            end--;
+        }
+        return regex.substring(0, end);
+    }
+
+    /**
+     * @return the '/' separated segments of the regex if every segment is either literal or a regex that cannot match
+     * '/', so the regex only matches paths with the same number of segments where each segment matches, otherwise null
+     */
+    static String[] pathSegments(String regex) {
+        String[] segments = regex.split("/", -1);
+        for (String segment : segments) {
+            if (!isSingleSegmentRegex(segment)) {
+                return null;
+            }
+        }
+        try {
+            for (String segment : segments) {
+                Pattern.compile(segment);
+            }
+        } catch (PatternSyntaxException pse) {
+            return null;
+        }
+        return segments;
+    }
+
+    /**
+     * Conservatively checks that the regex cannot match '/' and has no alternation or group that could span segments
+     */
+    private static boolean isSingleSegmentRegex(String segment) {
+        // a leading quantifier would apply to the '/' before the segment
+        if (!segment.isEmpty() && "?*+{".indexOf(segment.charAt(0)) != -1) {
+            return false;
+        }
+        int depth = 0;
+        for (int i = 0; i < segment.length(); i++) {
+            char character = segment.charAt(i);
+            switch (character) {
+                case '\\':
+                    // only escaped regex characters or character classes that exclude '/'
+                    if (i + 1 == segment.length() || "dw".indexOf(segment.charAt(i + 1)) == -1 && REGEX_CHARACTERS.indexOf(segment.charAt(i + 1)) == -1) {
+                        return false;
+                    }
+                    i++;
+                    break;
+                case '[':
+                    i = endOfCharacterClass(segment, i);
+                    if (i == -1) {
+                        return false;
+                    }
+                    break;
+                case '(':
+                    if (i + 1 < segment.length() && segment.charAt(i + 1) == '?') {
+                        return false;
+                    }
+                    depth++;
+                    break;
+                case ')':
+                    if (--depth < 0) {
+                        return false;
+                    }
+                    break;
+                case '|':
+                    if (depth == 0) {
+                        return false;
+                    }
+                    break;
+                case '.':
+                case '^':
+                case '$':
+                case ']':
+                    return false;
+                default:
+            }
+        }
+        return depth == 0;
+    }
+
+    /**
+     * @return the index of the ']' ending a simple character class that cannot match '/', or -1
+     */
+    private static int endOfCharacterClass(String segment, int start) {
+        if (start + 1 < segment.length() && (segment.charAt(start + 1) == '^' || segment.charAt(start + 1) == ']')) {
+            return -1;
+        }
+        for (int i = start + 1; i < segment.length(); i++) {
+            char character = segment.charAt(i);
+            if (character == ']') {
+                return i;
+            } else if (character == '/' || character == '\\' || character == '[' || character == '&') {
+                return -1;
+            } else if (i + 2 < segment.length() && segment.charAt(i + 1) == '-' && segment.charAt(i + 2) != ']' && character <= '/' && segment.charAt(i + 2) >= '/') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The version is incremented every time an expectation is added or removed
+     */
+    long version() {
+        return version;
+    }
+
+    /**
+     * The matches version is incremented every time an expectation is added or an expectation that could still match is
+     * removed, but not when expectations that can no longer match are removed, so while it is unchanged the first
+     * expectation matched by a request is unchanged unless that expectation can no longer match
+     */
+    long matchesVersion() {
+        return matchesVersion;
+    }
+
+    /**
+     * @return a network compiled from the request matchers of every expectation in this snapshot, which may also hold
+     * the matchers of expectations removed since it was compiled
+     */
+    HttpRequestMatcherNetwork httpRequestMatcherNetwork() {
+        HttpRequestMatcherNetwork httpRequestMatcherNetwork = this.httpRequestMatcherNetwork;
+        if (httpRequestMatcherNetwork == null) {
+            List<HttpRequestMatcher> httpRequestMatchers = new ArrayList<HttpRequestMatcher>(expectations.size());
+            for (Expectation expectation : expectations) {
+                httpRequestMatchers.add(expectation.getHttpRequestMatcher());
+            }
+            httpRequestMatcherNetwork = new HttpRequestMatcherNetwork(httpRequestMatchers);
+            this.httpRequestMatcherNetwork = httpRequestMatcherNetwork;
+        }
+        return httpRequestMatcherNetwork;
+    }
+
+    /**
+     * All expectations in registration order
+     */
+    List<Expectation> expectations() {
+        return expectations;
+    }
+
+    ExpectationIndex add(Expectation expectation) {
+        return add(Collections.singletonList(expectation));
+    }
+
+    /**
+     * Adds the expectations, in order, in a single snapshot so the entries and each affected bucket are copied once
+     */
+    ExpectationIndex add(Collection<Expectation> expectationsToAdd) {
+        if (expectationsToAdd.isEmpty()) {
+            return this;
+        }
+        List<Entry> entries = new ArrayList<Entry>(this.entries.size() + expectationsToAdd.size());
+        entries.addAll(this.entries);
+        List<Expectation> expectations = new ArrayList<Expectation>(this.expectations.size() + expectationsToAdd.size());
+        expectations.addAll(this.expectations);
+
+        List<Map<String, List<Entry>>> changedBuckets = changedBuckets();
+        List<List<Entry>> fallbackBuckets = new ArrayList<List<Entry>>(this.fallbackBuckets);
+        boolean[] fallbackBucketCopied = new boolean[NUMBER_OF_FIELDS];
+        PrefixTrie regexPathTrie = this.regexPathTrie;
+        SegmentTree regexPathTree = this.regexPathTree;
+        long sequence = nextSequence;
+        for (Expectation expectation : expectationsToAdd) {
+            String regexPathPrefix = regexPathPrefix(expectation.getHttpRequest());
+            Entry entry = new Entry(sequence++, expectation, keys(expectation.getHttpRequest()), regexPathPrefix, regexPathPrefix != null ? pathSegments(expectation.getHttpRequest().getPath().getValue()) : null);
+            entries.add(entry);
+            expectations.add(expectation);
+            for (int field = 0; field < NUMBER_OF_FIELDS; field++) {
+                String key = entry.keys[field];
+                if (field == PATH && entry.pathSegments != null) {
+                    regexPathTree = regexPathTree.add(entry.pathSegments, 0, entry);
+                } else if (field == PATH && entry.regexPathPrefix != null) {
+                    regexPathTrie = regexPathTrie.add(entry.regexPathPrefix, 0, entry);
+                } else if (key == null) {
+                    if (!fallbackBucketCopied[field]) {
+                        fallbackBuckets.set(field, new ArrayList<Entry>(fallbackBuckets.get(field)));
+                        fallbackBucketCopied[field] = true;
+                    }
+                    fallbackBuckets.get(field).add(entry);
+                } else {
+                    List<Entry> bucket = changedBuckets.get(field).get(key);
+                    if (bucket == null) {
+                        List<Entry> existingBucket = literalBuckets.get(field).get(key);
+                        bucket = existingBucket != null ? new ArrayList<Entry>(existingBucket) : new ArrayList<Entry>();
+                        changedBuckets.get(field).put(key, bucket);
+                    }
+                    bucket.add(entry);
+                }
+            }
+        }
+
+        // only the added request matchers are compiled into the network of this snapshot, if it has been compiled
+        HttpRequestMatcherNetwork httpRequestMatcherNetwork = this.httpRequestMatcherNetwork;
+        if (httpRequestMatcherNetwork != null) {
+            List<HttpRequestMatcher> httpRequestMatchers = new ArrayList<HttpRequestMatcher>(expectationsToAdd.size());
+            for (Expectation expectation : expectations.subList(this.expectations.size(), expectations.size())) {
+                httpRequestMatchers.add(expectation.getHttpRequestMatcher());
+            }
+            httpRequestMatcherNetwork = httpRequestMatcherNetwork.with(httpRequestMatchers);
+        }
+        return new ExpectationIndex(version + 1, matchesVersion + 1, sequence, entries, expectations, literalBuckets(changedBuckets), fallbackBuckets, regexPathTrie, regexPathTree, httpRequestMatcherNetwork);
+    }
+
+    ExpectationIndex remove(Expectation expectation) {
+        return remove(Collections.singletonList(expectation));
+    }
+
+    /**
+     * Removes expectations that may still match a request
+     */
+    ExpectationIndex remove(Collection<Expectation> expectationsToRemove) {
+        return remove(expectationsToRemove, true);
+    }
+
+    /**
+     * Removes expectations that can no longer match a request, because they have no remaining matches or their time to
+     * live has expired, so the matches version is unchanged
+     */
+    ExpectationIndex removeSpent(Collection<Expectation> expectationsToRemove) {
+        return remove(expectationsToRemove, false);
+    }
+
+    private ExpectationIndex remove(Collection<Expectation> expectationsToRemove, boolean couldStillMatch) {
+        Set<Expectation> toRemove = Collections.newSetFromMap(new IdentityHashMap<Expectation, Boolean>());
+        toRemove.addAll(expectationsToRemove);
+
+        List<Entry> entries = new ArrayList<Entry>(this.entries.size());
+        List<Expectation> expectations = new ArrayList<Expectation>(this.entries.size());
+        Set<Entry> removedEntries = Collections.newSetFromMap(new IdentityHashMap<Entry, Boolean>());
+        for (Entry entry : this.entries) {
+            if (toRemove.contains(entry.expectation)) {
+                removedEntries.add(entry);
+            } else {
+                entries.add(entry);
+                expectations.add(entry.expectation);
+            }
+        }
+        if (removedEntries.isEmpty()) {
+            return this;
+        }
+
+        List<Map<String, List<Entry>>> changedBuckets = changedBuckets();
+        List<List<Entry>> fallbackBuckets = new ArrayList<List<Entry>>(this.fallbackBuckets);
+        boolean[] fallbackBucketChanged = new boolean[NUMBER_OF_FIELDS];
+        PrefixTrie regexPathTrie = this.regexPathTrie;
+        SegmentTree regexPathTree = this.regexPathTree;
+        for (Entry entry : removedEntries) {
+            for (int field = 0; field < NUMBER_OF_FIELDS; field++) {
+                String key = entry.keys[field];
+                if (field == PATH && entry.pathSegments != null) {
+                    regexPathTree = regexPathTree.remove(entry.pathSegments, 0, entry);
+                } else if (field == PATH && entry.regexPathPrefix != null) {
+                    regexPathTrie = regexPathTrie.remove(entry.regexPathPrefix, 0, entry);
+                } else if (key == null) {
+                    fallbackBucketChanged[field] = true;
+                } else if (!changedBuckets.get(field).containsKey(key)) {
+                    changedBuckets.get(field).put(key, without(literalBuckets.get(field).get(key), removedEntries));
+                }
+            }
+        }
+        for (int field = 0; field < NUMBER_OF_FIELDS; field++) {
+            if (fallbackBucketChanged[field]) {
+                fallbackBuckets.set(field, without(fallbackBuckets.get(field), removedEntries));
+            }
+        }
+
+        // the network of this snapshot is still valid as it only has extra matchers that are no longer candidates, unless
+        // most of its matchers have been removed in which case it is compiled again so removed matchers aren't retained
+        HttpRequestMatcherNetwork httpRequestMatcherNetwork = this.httpRequestMatcherNetwork;
+        if (httpRequestMatcherNetwork != null && httpRequestMatcherNetwork.numberOfRequestMatchers() > 2 * expectations.size() + MINIMUM_REMOVED_REQUEST_MATCHERS) {
+            httpRequestMatcherNetwork = null;
+        }
+        return new ExpectationIndex(version + 1, couldStillMatch ? matchesVersion + 1 : matchesVersion, nextSequence, entries, expectations, literalBuckets(changedBuckets), fallbackBuckets, regexPathTrie, regexPathTree, httpRequestMatcherNetwork);
+    }
+
+    ExpectationIndex clear() {
+        return new ExpectationIndex(version + 1, matchesVersion + 1, nextSequence, Collections.<Entry>emptyList(), Collections.<Expectation>emptyList(), EMPTY.literalBuckets, EMPTY.fallbackBuckets, PrefixTrie.EMPTY, SegmentTree.EMPTY, null);
+    }
+
+    private static List<Map<String, List<Entry>>> changedBuckets() {
+        List<Map<String, List<Entry>>> changedBuckets = new ArrayList<Map<String, List<Entry>>>(NUMBER_OF_FIELDS);
+        for (int field = 0; field < NUMBER_OF_FIELDS; field++) {
+            changedBuckets.add(new HashMap<String, List<Entry>>());
+        }
+        return changedBuckets;
+    }
+
+    private List<Buckets> literalBuckets(List<Map<String, List<Entry>>> changedBuckets) {
+        List<Buckets> literalBuckets = new ArrayList<Buckets>(NUMBER_OF_FIELDS);
+        for (int field = 0; field < NUMBER_OF_FIELDS; field++) {
+            literalBuckets.add(this.literalBuckets.get(field).with(changedBuckets.get(field)));
+        }
+        return literalBuckets;
+    }
+
+    /**
+     * Returns, in registration order, the expectations that could match the request, any expectation not returned
+     * is guaranteed not to match the request's method, path or exact body
+     */
+    List<Expectation> candidates(HttpRequest httpRequest) {
+        return candidates(new MatchContext(httpRequest));
+    }
+
+    /**
+     * Same as {@link #candidates(HttpRequest)} but reusing the forms of the request already parsed in the context
+     */
+    List<Expectation> candidates(MatchContext matchContext) {
+        String[] requestKeys = requestKeys(matchContext);
+
+        // the regex paths with a literal prefix of the request path or with segments matching the request path
+        List<List<Entry>> regexPathEntries = new ArrayList<List<Entry>>();
+        int regexPathSize = 0;
+        if (requestKeys[PATH] != null) {
+            regexPathTrie.collect(requestKeys[PATH], regexPathEntries);
+            regexPathTree.collect(requestKeys[PATH].split("/", -1), 0, regexPathEntries);
+            for (List<Entry> bucket : regexPathEntries) {
+                regexPathSize += bucket.size();
+            }
+        }
+
+        // use the field with the fewest candidates and then filter on the remaining fields
+        int selectedField = -1;
+        int selectedSize = entries.size();
+        for (int field = 0; field < NUMBER_OF_FIELDS; field++) {
+            if (requestKeys[field] != null) {
+                List<Entry> literalBucket = literalBuckets.get(field).get(requestKeys[field]);
+                int size = (literalBucket != null ? literalBucket.size() : 0) + fallbackBuckets.get(field).size() + (field == PATH ? regexPathSize : 0);
+                if (size < selectedSize) {
+                    selectedField = field;
+                    selectedSize = size;
+                }
+            }
+        }
+
+        if (selectedField == -1) {
+            return expectations;
+        }
+
+        List<Entry> selectedEntries = merge(literalBuckets.get(selectedField).get(requestKeys[selectedField]), fallbackBuckets.get(selectedField));
+        if (selectedField == PATH) {
+            for (List<Entry> bucket : regexPathEntries) {
+                selectedEntries = merge(selectedEntries, bucket);
+            }
+        }
+        List<Expectation> candidates = new ArrayList<Expectation>(selectedEntries.size());
+        for (Entry entry : selectedEntries) {
+            if (entry.couldMatch(requestKeys)) {
+                candidates.add(entry.expectation);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns, in registration order, the expectations that could have a request equal to the request provided
+     */
+    List<Expectation> withSameKeys(HttpRequest httpRequest) {
+        String[] requestKeys = keys(httpRequest);
+        List<Entry> selectedEntries = entries;
+        for (int field = 0; field < NUMBER_OF_FIELDS; field++) {
+            if (requestKeys[field] != null) {
+                List<Entry> literalBucket = literalBuckets.get(field).get(requestKeys[field]);
+                selectedEntries = literalBucket != null ? literalBucket : Collections.<Entry>emptyList();
+                break;
+            }
+        }
+        List<Expectation> expectations = new ArrayList<Expectation>(selectedEntries.size());
+        for (Entry entry : selectedEntries) {
+            if (Arrays.equals(entry.keys, requestKeys)) {
+                expectations.add(entry.expectation);
+            }
+        }
+        return expectations;
+    }
+
+    private static List<Entry> append(List<Entry> bucket, Entry entry) {
+        List<Entry> appended = new ArrayList<Entry>(bucket != null ? bucket.size() + 1 : 1);
+        if (bucket != null) {
+            appended.addAll(bucket);
+        }
+        appended.add(entry);
+        return appended;
+    }
+
+    private static List<Entry> without(List<Entry> bucket, Entry entry) {
+        List<Entry> remaining = new ArrayList<Entry>(bucket.size());
+        for (Entry existingEntry : bucket) {
+            if (existingEntry != entry) {
+                remaining.add(existingEntry);
+            }
+        }
+        return remaining;
+    }
+
+    private static List<Entry> without(List<Entry> bucket, Set<Entry> entries) {
+        List<Entry> remaining = new ArrayList<Entry>(bucket.size());
+        for (Entry existingEntry : bucket) {
+            if (!entries.contains(existingEntry)) {
+                remaining.add(existingEntry);
+            }
+        }
+        return remaining;
+    }
+
+    private static List<Entry> merge(List<Entry> first, List<Entry> second) {
+        if (first == null || first.isEmpty()) {
+            return second;
+        } else if (second.isEmpty()) {
+            return first;
+        }
+        List<Entry> merged = new ArrayList<Entry>(first.size() + second.size());
+        int firstIndex = 0;
+        int secondIndex = 0;
+        while (firstIndex < first.size() && secondIndex < second.size()) {
+            if (first.get(firstIndex).sequence < second.get(secondIndex).sequence) {
+                merged.add(first.get(firstIndex++));
+            } else {
+                merged.add(second.get(secondIndex++));
+            }
+        }
+        merged.addAll(first.subList(firstIndex, first.size()));
+        merged.addAll(second.subList(secondIndex, second.size()));
+        return merged;
+    }
+
+    private static class Entry {
+        private final long sequence;
+        private final Expectation expectation;
+        private final String[] keys;
+        private final String regexPathPrefix;
+        private final String[] pathSegments;
+
+        Entry(long sequence, Expectation expectation, String[] keys, String regexPathPrefix, String[] pathSegments) {
+            this.sequence = sequence;
+            this.expectation = expectation;
+            this.keys = keys;
+            this.regexPathPrefix = regexPathPrefix;
+            this.pathSegments = pathSegments;
+        }
+
+        boolean couldMatch(String[] requestKeys) {
+            for (int field = 0; field < NUMBER_OF_FIELDS; field++) {
+                if (keys[field] != null && requestKeys[field] != null && !keys[field].equals(requestKeys[field])) {
+                    return false;
+                }
+            }
+            return regexPathPrefix == null || requestKeys[PATH] == null || requestKeys[PATH].startsWith(regexPathPrefix);
+        }
+    }
+
+    /**
+     * The immutable literal buckets of a field, split into shards by the hash of the key so a change only copies the
+     * shards of the keys it changes
+     */
+    private static class Buckets {
+
+        private static final int SHARDS = 64;
+        private static final Buckets EMPTY = new Buckets(Collections.nCopies(SHARDS, Collections.<String, List<Entry>>emptyMap()), 0);
+
+        private final List<Map<String, List<Entry>>> shards;
+        private final int size;
+
+        private Buckets(List<Map<String, List<Entry>>> shards, int size) {
+            this.shards = shards;
+            this.size = size;
+        }
+
+        List<Entry> get(String key) {
+            return shards.get(shard(key)).get(key);
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * @param changedBuckets the new bucket of each key that changed, an empty bucket removes the key
+         */
+        Buckets with(Map<String, List<Entry>> changedBuckets) {
+            if (changedBuckets.isEmpty()) {
+                return this;
+            }
+            List<Map<String, List<Entry>>> shards = new ArrayList<Map<String, List<Entry>>>(this.shards);
+            boolean[] shardCopied = new boolean[SHARDS];
+            int size = this.size;
+            for (Map.Entry<String, List<Entry>> changedBucket : changedBuckets.entrySet()) {
+                int shard = shard(changedBucket.getKey());
+                if (!shardCopied[shard]) {
+                    shards.set(shard, new HashMap<String, List<Entry>>(shards.get(shard)));
+                    shardCopied[shard] = true;
+                }
+                if (changedBucket.getValue().isEmpty()) {
+                    if (shards.get(shard).remove(changedBucket.getKey()) != null) {
+                        size--;
+                    }
+                } else if (shards.get(shard).put(changedBucket.getKey(), changedBucket.getValue()) == null) {
+                    size++;
+                }
+            }
+            return new Buckets(shards, size);
+        }
+
+        private static int shard(String key) {
+            int hash = key.hashCode();
+            return (hash ^ (hash >>> 16)) & (SHARDS - 1);
+        }
+    }
+
+    /**
+     * An immutable trie of entries keyed by prefix, adding or removing an entry copies only the nodes on the path to
+     * its prefix so every other node is shared with the previous trie
+     */
+    private static class PrefixTrie {
+
+        private static final PrefixTrie EMPTY = new PrefixTrie(Collections.<Character, PrefixTrie>emptyMap(), Collections.<Entry>emptyList());
+
+        private final Map<Character, PrefixTrie> children;
+        private final List<Entry> entries;
+
+        private PrefixTrie(Map<Character, PrefixTrie> children, List<Entry> entries) {
+            this.children = children;
+            this.entries = entries;
+        }
+
+        PrefixTrie add(String prefix, int index, Entry entry) {
+            if (index == prefix.length()) {
+                return new PrefixTrie(children, append(entries, entry));
+            }
+            Character character = prefix.charAt(index);
+            PrefixTrie child = children.get(character);
+            Map<Character, PrefixTrie> updatedChildren = new HashMap<Character, PrefixTrie>(children);
+            updatedChildren.put(character, (child != null ? child : EMPTY).add(prefix, index + 1, entry));
+            return new PrefixTrie(updatedChildren, entries);
+        }
+
+        PrefixTrie remove(String prefix, int index, Entry entry) {
+            if (index == prefix.length()) {
+                return new PrefixTrie(children, without(entries, entry));
+            }
+            Character character = prefix.charAt(index);
+            PrefixTrie child = children.get(character);
+            if (child == null) {
+                return this;
+            }
+            PrefixTrie updatedChild = child.remove(prefix, index + 1, entry);
+            Map<Character, PrefixTrie> updatedChildren = new HashMap<Character, PrefixTrie>(children);
+            if (updatedChild.children.isEmpty() && updatedChild.entries.isEmpty()) {
+                updatedChildren.remove(character);
+            } else {
+                updatedChildren.put(character, updatedChild);
+            }
+            return new PrefixTrie(updatedChildren, entries);
+        }
+
+        /**
+         * Adds the entries of every node on the path of the value, i.e. every entry with a prefix of the value
+         */
+        void collect(String value, List<List<Entry>> collected) {
+            PrefixTrie node = this;
+            for (int index = 0; node != null; index++) {
+                if (!node.entries.isEmpty()) {
+                    collected.add(node.entries);
+                }
+                node = index < value.length() ? node.children.get(value.charAt(index)) : null;
+            }
+        }
+    }
+
+    /**
+     * An immutable tree of entries keyed by path segments, literal segments are hashed and regex segments are matched,
+     * adding or removing an entry copies only the nodes on the path to its segments so every other node is shared with
+     * the previous tree
+     */
+    private static class SegmentTree {
+
+        private static final SegmentTree EMPTY = new SegmentTree(null, Collections.<String, SegmentTree>emptyMap(), Collections.<String, SegmentTree>emptyMap(), Collections.<Entry>emptyList());
+
+        // the regex of the segment leading to this node, or null if the segment is literal
+        private final Pattern pattern;
+        private final Map<String, SegmentTree> literalChildren;
+        private final Map<String, SegmentTree> regexChildren;
+        private final List<Entry> entries;
+
+        private SegmentTree(Pattern pattern, Map<String, SegmentTree> literalChildren, Map<String, SegmentTree> regexChildren, List<Entry> entries) {
+            this.pattern = pattern;
+            this.literalChildren = literalChildren;
+            this.regexChildren = regexChildren;
+            this.entries = entries;
+        }
+
+        private boolean isEmpty() {
+            return literalChildren.isEmpty() && regexChildren.isEmpty() && entries.isEmpty();
+        }
+
+        SegmentTree add(String[] segments, int index, Entry entry) {
+            if (index == segments.length) {
+                return new SegmentTree(pattern, literalChildren, regexChildren, append(entries, entry));
+            }
+            String segment = segments[index];
+            boolean literal = isLiteral(string(segment)) || segment.isEmpty();
+            Map<String, SegmentTree> children = literal ? literalChildren : regexChildren;
+            SegmentTree child = children.get(segment);
+            if (child == null) {
+                child = new SegmentTree(literal ? null : Pattern.compile(segment), EMPTY.literalChildren, EMPTY.regexChildren, EMPTY.entries);
+            }
+            Map<String, SegmentTree> updatedChildren = new HashMap<String, SegmentTree>(children);
+            updatedChildren.put(segment, child.add(segments, index + 1, entry));
+            return literal ? new SegmentTree(pattern, updatedChildren, regexChildren, entries) : new SegmentTree(pattern, literalChildren, updatedChildren, entries);
+        }
+
+        SegmentTree remove(String[] segments, int index, Entry entry) {
+            if (index == segments.length) {
+                return new SegmentTree(pattern, literalChildren, regexChildren, without(entries, entry));
+            }
+            String segment = segments[index];
+            boolean literal = isLiteral(string(segment)) || segment.isEmpty();
+            Map<String, SegmentTree> children = literal ? literalChildren : regexChildren;
+            SegmentTree child = children.get(segment);
+            if (child == null) {
+                return this;
+            }
+            SegmentTree updatedChild = child.remove(segments, index + 1, entry);
+            Map<String, SegmentTree> updatedChildren = new HashMap<String, SegmentTree>(children);
+            if (updatedChild.isEmpty()) {
+                updatedChildren.remove(segment);
+            } else {
+                updatedChildren.put(segment, updatedChild);
+            }
+            return literal ? new SegmentTree(pattern, updatedChildren, regexChildren, entries) : new SegmentTree(pattern, literalChildren, updatedChildren, entries);
+        }
+
+        /**
+         * Adds the entries of every node reached by following the segments through matching literal or regex segments
+         */
+        void collect(String[] segments, int index, List<List<Entry>> collected) {
+            if (index == segments.length) {
+                if (!entries.isEmpty()) {
+                    collected.add(entries);
+                }
+                return;
+            }
+            SegmentTree literalChild = literalChildren.get(segments[index]);
+            if (literalChild != null) {
+                literalChild.collect(segments, index + 1, collected);
+            }
+            for (SegmentTree regexChild : regexChildren.values()) {
+                if (regexChild.pattern.matcher(segments[index]).matches()) {
+                    regexChild.collect(segments, index + 1, collected);
+                }
+            }
+        }
+    }
+}
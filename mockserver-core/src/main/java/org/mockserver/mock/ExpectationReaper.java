@@ -0,0 +1,235 @@
+package org.mockserver.mock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hashed timing wheel that removes expectations from their {@link MockServerMatcher} once their time to live has
+ * expired, so expired expectations are removed in the background instead of by the requests that are matched
+ * <p>
+ * Time is divided into ticks of a monotonic coarse clock (i.e. {@link System#nanoTime()} divided by the tick
+ * duration) and each expectation is placed in the slot of the tick at which it expires, together with the number of
+ * revolutions of the wheel remaining until that tick, so each tick only visits the expectations in a single slot
+ * <p>
+ * Expectations are scheduled by any thread into a queue that is moved into the wheel by the reaper on each tick, so
+ * the wheel itself is only ever accessed by a single thread, equally a cancelled timeout releases its matcher and
+ * expectation immediately and is queued to be removed from the wheel on the next tick
+ * <p>
+ * While the wheel is empty the reaper thread parks until an expectation is scheduled, so an idle MockServer has no
+ * thread waking every tick
+ *
+ * @author jamesdbloom
+ */
+class ExpectationReaper {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpectationReaper.class);
+    static final ExpectationReaper REAPER = new ExpectationReaper(TimeUnit.MILLISECONDS.toNanos(100), 512, true);
+
+    private final long tickNanos;
+    private final List<List<Timeout>> wheel;
+    private final boolean background;
+    private final Queue<Timeout> scheduledTimeouts = new ConcurrentLinkedQueue<Timeout>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<Timeout>();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile Thread reaperThread;
+    private final long startNanos = System.nanoTime();
+    // the next tick to process
+    private long tick = 0;
+    // the number of timeouts in the wheel
+    private int numberOfTimeouts = 0;
+
+    /**
+     * @param tickNanos  the duration of each tick, an expectation is removed up to one tick after it expires
+     * @param wheelSize  the number of slots, which must be a power of two
+     * @param background true to advance the wheel from a daemon thread, otherwise it is only advanced by {@link #advance(long)}
+     */
+    ExpectationReaper(long tickNanos, int wheelSize, boolean background) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheel size must be a power of two but was " + wheelSize);
+        }
+        this.tickNanos = tickNanos;
+        this.background = background;
+        this.wheel = new ArrayList<List<Timeout>>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            wheel.add(new ArrayList<Timeout>());
+        }
+    }
+
+    /**
+     * Removes the expectation from the matcher once its time to live has expired
+     *
+     * @return the timeout to cancel if the expectation is removed before it expires, or null if the expectation never expires
+     */
+    Timeout schedule(MockServerMatcher mockServerMatcher, Expectation expectation) {
+        if (expectation.getTimeToLive() != null && !expectation.getTimeToLive().isUnlimited()) {
+            Timeout timeout = new Timeout(this, mockServerMatcher, expectation, expectation.getTimeToLive().getEndNanos());
+            scheduledTimeouts.add(timeout);
+            if (background && started.compareAndSet(false, true)) {
+                Thread reaperThread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        reap();
+                    }
+                }, "MockServer-ExpectationReaper");
+                reaperThread.setDaemon(true);
+                this.reaperThread = reaperThread;
+                reaperThread.start();
+            }
+            // wakes the reaper if it is parked because the wheel is empty
+            Thread reaperThread = this.reaperThread;
+            if (reaperThread != null) {
+                LockSupport.unpark(reaperThread);
+            }
+            return timeout;
+        }
+        return null;
+    }
+
+    private void reap() {
+        while (true) {
+            // the timeout is queued before the reaper is unparked so it can't park after missing a scheduled timeout
+            while (numberOfTimeouts == 0 && scheduledTimeouts.isEmpty()) {
+                LockSupport.park(this);
+            }
+            long nextTickNanos = startNanos + (tick + 1) * tickNanos;
+            long sleepNanos;
+            while ((sleepNanos = nextTickNanos - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+            }
+            try {
+                advance(System.nanoTime());
+            } catch (Throwable throwable) {
+                logger.error("Exception removing expired expectations", throwable);
+            }
+        }
+    }
+
+    /**
+     * Processes every tick up to the time provided and removes the expectations that expired in those ticks, this
+     * must only be called by a single thread
+     */
+    void advance(long nowNanos) {
+        long currentTick = (nowNanos - startNanos) / tickNanos;
+        int mask = wheel.size() - 1;
+
+        if (numberOfTimeouts == 0) {
+            // no timeout can expire in the ticks that passed while the wheel was empty
+            tick = Math.max(tick, currentTick);
+        }
+        Timeout scheduledTimeout;
+        while ((scheduledTimeout = scheduledTimeouts.poll()) != null) {
+            if (!scheduledTimeout.isCancelled()) {
+                // the first tick starting at or after the deadline, or the next tick if the deadline has already passed
+                long deadlineTick = Math.max(ceilDiv(scheduledTimeout.deadlineNanos - startNanos, tickNanos), tick);
+                scheduledTimeout.remainingRounds = (deadlineTick - tick) / wheel.size();
+                scheduledTimeout.slot = (int) (deadlineTick & mask);
+                wheel.get(scheduledTimeout.slot).add(scheduledTimeout);
+                numberOfTimeouts++;
+            }
+        }
+        Timeout cancelledTimeout;
+        while ((cancelledTimeout = cancelledTimeouts.poll()) != null) {
+            if (cancelledTimeout.slot != Timeout.NOT_IN_WHEEL && wheel.get(cancelledTimeout.slot).remove(cancelledTimeout)) {
+                cancelledTimeout.slot = Timeout.NOT_IN_WHEEL;
+                numberOfTimeouts--;
+            }
+        }
+
+        Map<MockServerMatcher, List<Expectation>> expiredExpectations = new IdentityHashMap<MockServerMatcher, List<Expectation>>();
+        for (; tick <= currentTick; tick++) {
+            List<Timeout> slot = wheel.get((int) (tick & mask));
+            if (!slot.isEmpty()) {
+                Iterator<Timeout> timeouts = slot.iterator();
+                while (timeouts.hasNext()) {
+                    Timeout timeout = timeouts.next();
+                    if (timeout.remainingRounds > 0) {
+                        timeout.remainingRounds--;
+                    } else {
+                        timeouts.remove();
+                        timeout.slot = Timeout.NOT_IN_WHEEL;
+                        numberOfTimeouts--;
+                        // read both before checking they are still set as the timeout may be cancelled concurrently
+                        MockServerMatcher mockServerMatcher = timeout.mockServerMatcher;
+                        Expectation expectation = timeout.expectation;
+                        if (mockServerMatcher != null && expectation != null) {
+                            List<Expectation> expectations = expiredExpectations.get(mockServerMatcher);
+                            if (expectations == null) {
+                                expectations = new ArrayList<Expectation>();
+                                expiredExpectations.put(mockServerMatcher, expectations);
+                            }
+                            expectations.add(expectation);
+                        }
+                    }
+                }
+            }
+        }
+
+        for (Map.Entry<MockServerMatcher, List<Expectation>> entry : expiredExpectations.entrySet()) {
+            entry.getKey().expire(entry.getValue());
+        }
+    }
+
+    /**
+     * @return the number of timeouts in the wheel, this must only be called by the thread that advances the wheel
+     */
+    int numberOfTimeouts() {
+        return numberOfTimeouts;
+    }
+
+    /**
+     * @return the thread that advances the wheel in the background, or null if it hasn't been started
+     */
+    Thread reaperThread() {
+        return reaperThread;
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        return quotient * divisor < dividend ? quotient + 1 : quotient;
+    }
+
+    /**
+     * The handle of a scheduled expectation, the matcher and expectation are only referenced until the timeout expires
+     * or is cancelled
+     */
+    static class Timeout {
+        private static final int NOT_IN_WHEEL = -1;
+
+        private final ExpectationReaper expectationReaper;
+        private final long deadlineNanos;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private volatile MockServerMatcher mockServerMatcher;
+        private volatile Expectation expectation;
+        // only accessed by the reaper
+        private long remainingRounds;
+        private int slot = NOT_IN_WHEEL;
+
+        Timeout(ExpectationReaper expectationReaper, MockServerMatcher mockServerMatcher, Expectation expectation, long deadlineNanos) {
+            this.expectationReaper = expectationReaper;
+            this.mockServerMatcher = mockServerMatcher;
+            this.expectation = expectation;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Stops the expectation being removed when it expires, called when the expectation is removed from its matcher
+         */
+        void cancel() {
+            if (cancelled.compareAndSet(false, true)) {
+                mockServerMatcher = null;
+                expectation = null;
+                expectationReaper.cancelledTimeouts.add(this);
+            }
+        }
+
+        boolean isCancelled() {
+            return cancelled.get();
+        }
+    }
+}
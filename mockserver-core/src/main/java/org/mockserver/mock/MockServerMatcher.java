@@ -1,9 +1,14 @@
 package org.mockserver.mock;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.mockserver.client.serialization.Base64Converter;
 import org.mockserver.client.serialization.ExpectationSerializer;
+import org.mockserver.configuration.ConfigurationProperties;
 import org.mockserver.matchers.HttpRequestMatcher;
+import org.mockserver.matchers.HttpRequestMatcherNetwork;
+import org.mockserver.matchers.MatchContext;
 import org.mockserver.matchers.MatcherBuilder;
 import org.mockserver.matchers.TimeToLive;
 import org.mockserver.matchers.Times;
@@ -13,10 +18,8 @@ import org.mockserver.model.ObjectWithReflectiveEqualsHashCodeToString;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -25,18 +28,108 @@ import java.util.regex.Pattern;
  */
 public class MockServerMatcher extends ObjectWithReflectiveEqualsHashCodeToString {
 
-    protected final List<Expectation> expectations = Collections.synchronizedList(new ArrayList<Expectation>());
+    private final Object writeLock = new Object();
+    private volatile ExpectationIndex expectationIndex = ExpectationIndex.EMPTY;
     private Logger requestLogger = LoggerFactory.getLogger("REQUEST");
+    private final boolean compiledExpectationMatching;
+    private final Cache<String, MatchedExpectation> matchedExpectationCache;
+    private final AtomicLong matchedExpectationCacheHits = new AtomicLong();
+    private final AtomicLong matchedExpectationCacheMisses = new AtomicLong();
+    private final AtomicLong expiredExpectations = new AtomicLong();
+    // the timeouts of the expectations with a limited time to live, guarded by writeLock
+    private final Map<Expectation, ExpectationReaper.Timeout> timeouts = new IdentityHashMap<Expectation, ExpectationReaper.Timeout>();
+
+    public MockServerMatcher() {
+        this.compiledExpectationMatching = ConfigurationProperties.compiledExpectationMatching();
+        long matchedExpectationCacheSize = ConfigurationProperties.matchedExpectationCacheSize();
+        this.matchedExpectationCache = matchedExpectationCacheSize > 0 ? CacheBuilder.newBuilder().maximumSize(matchedExpectationCacheSize).<String, MatchedExpectation>build() : null;
+        publish(ExpectationIndex.EMPTY);
+        addFieldsExcludedFromEqualsAndHashCode("writeLock", "expectationIndex", "compiledExpectationMatching", "matchedExpectationCache", "matchedExpectationCacheHits", "matchedExpectationCacheMisses", "expiredExpectations", "timeouts");
+    }
+
+    protected List<Expectation> expectations() {
+        return expectationIndex.expectations();
+    }
+
+    /**
+     * The version of the expectations, which is incremented every time an expectation is added or removed
+     */
+    public long expectationsVersion() {
+        return expectationIndex.version();
+    }
 
     public Expectation when(HttpRequest httpRequest) {
         return when(httpRequest, Times.unlimited(), TimeToLive.unlimited());
     }
 
     public Expectation when(final HttpRequest httpRequest, Times times, TimeToLive timeToLive) {
-        Expectation expectation;
+        synchronized (writeLock) {
+            Expectation expectation = newExpectation(httpRequest, times, timeToLive, Collections.<Expectation>emptyList());
+            publish(expectationIndex.add(expectation));
+            scheduleTimeout(expectation);
+            return expectation;
+        }
+    }
+
+    /**
+     * Adds the expectations as if each was added by {@link #when(HttpRequest, Times, TimeToLive)} followed by its
+     * actions, but in a single change to the expectations so adding many expectations takes linear time
+     *
+     * @return the added expectations in the same order
+     */
+    public List<Expectation> add(Collection<Expectation> expectations) {
+        synchronized (writeLock) {
+            List<Expectation> addedExpectations = new ArrayList<Expectation>(expectations.size());
+            Map<List<String>, List<Expectation>> addedExpectationsWithSameKeys = new HashMap<List<String>, List<Expectation>>();
+            for (Expectation expectation : expectations) {
+                List<String> keys = Arrays.asList(ExpectationIndex.keys(expectation.getHttpRequest()));
+                List<Expectation> expectationsWithSameKeys = addedExpectationsWithSameKeys.get(keys);
+                if (expectationsWithSameKeys == null) {
+                    expectationsWithSameKeys = new ArrayList<Expectation>();
+                    addedExpectationsWithSameKeys.put(keys, expectationsWithSameKeys);
+                }
+                Expectation addedExpectation = newExpectation(expectation.getHttpRequest(), expectation.getTimes(), expectation.getTimeToLive(), expectationsWithSameKeys)
+                        .thenRespond(expectation.getHttpResponse())
+                        .thenForward(expectation.getHttpForward())
+                        .thenError(expectation.getHttpError())
+                        .thenCallback(expectation.getHttpClassCallback())
+                        .thenCallback(expectation.getHttpObjectCallback());
+                expectationsWithSameKeys.add(addedExpectation);
+                addedExpectations.add(addedExpectation);
+            }
+            publish(expectationIndex.add(addedExpectations));
+            for (Expectation addedExpectation : addedExpectations) {
+                scheduleTimeout(addedExpectation);
+            }
+            return addedExpectations;
+        }
+    }
+
+    /**
+     * Called with the write lock held, if compiled expectation matching is enabled the network of the expectations is
+     * compiled before they are published so it is never compiled by a request
+     */
+    private void publish(ExpectationIndex expectationIndex) {
+        if (compiledExpectationMatching) {
+            expectationIndex.httpRequestMatcherNetwork();
+        }
+        this.expectationIndex = expectationIndex;
+    }
+
+    /**
+     * Called with the write lock held
+     *
+     * @param addedExpectationsWithSameKeys expectations with the same keys that are about to be added
+     */
+    private Expectation newExpectation(HttpRequest httpRequest, Times times, TimeToLive timeToLive, List<Expectation> addedExpectationsWithSameKeys) {
         if (times.isUnlimited()) {
             Collection<Expectation> existingExpectationsWithMatchingRequest = new ArrayList<Expectation>();
-            for (Expectation potentialExpectation : new ArrayList<Expectation>(this.expectations)) {
+            for (Expectation potentialExpectation : expectationIndex.withSameKeys(httpRequest)) {
+                if (potentialExpectation.contains(httpRequest)) {
+                    existingExpectationsWithMatchingRequest.add(potentialExpectation);
+                }
+            }
+            for (Expectation potentialExpectation : addedExpectationsWithSameKeys) {
                 if (potentialExpectation.contains(httpRequest)) {
                     existingExpectationsWithMatchingRequest.add(potentialExpectation);
                 }
@@ -45,65 +138,196 @@ public class MockServerMatcher extends ObjectWithReflectiveEqualsHashCodeToStrin
                 for (Expectation existingExpectation : existingExpectationsWithMatchingRequest) {
                     existingExpectation.setNotUnlimitedResponses();
                 }
-                expectation = new Expectation(httpRequest, times, timeToLive);
+                return new Expectation(httpRequest, times, timeToLive);
             } else {
-                expectation = new Expectation(httpRequest, Times.unlimited(), timeToLive);
+                return new Expectation(httpRequest, Times.unlimited(), timeToLive);
             }
         } else {
-            expectation = new Expectation(httpRequest, times, timeToLive);
+            return new Expectation(httpRequest, times, timeToLive);
+        }
+    }
+
+    /**
+     * Called with the write lock held
+     */
+    private void scheduleTimeout(Expectation expectation) {
+        ExpectationReaper.Timeout timeout = ExpectationReaper.REAPER.schedule(this, expectation);
+        if (timeout != null) {
+            timeouts.put(expectation, timeout);
         }
-        this.expectations.add(expectation);
-        return expectation;
     }
 
+    /**
+     * Returns the action of the first expectation that matches the request, if the matched expectation cache is
+     * enabled the expectation matched by a request with the same fingerprint is reused until the expectations change
+     * <p>
+     * A cached match is only reused while the expectations have the same matches version, as adding an expectation may
+     * add an earlier match and removing spent expectations doesn't change the matches version, an expectation that matched
+     * before is still the first match for the same request unless it has since run out of matches or expired, in which
+     * case the expectations are matched again, equally a request that matched no expectations can't match until the
+     * expectations change, as two bodies may have the same digest a cached match is only reused for an equal body
+     */
     public Action retrieveAction(HttpRequest httpRequest) {
-        for (Expectation expectation : new ArrayList<Expectation>(this.expectations)) {
-            if (expectation.matches(httpRequest)) {
-                expectation.decrementRemainingMatches();
+        if (matchedExpectationCache == null) {
+            return retrieveAction(httpRequest, expectationIndex, null, null);
+        }
+        ExpectationIndex expectationIndex = this.expectationIndex;
+        String fingerprint = RequestFingerprint.fingerprint(httpRequest);
+        MatchedExpectation matchedExpectation = matchedExpectationCache.getIfPresent(fingerprint);
+        byte[] body = httpRequest.getBody() != null ? httpRequest.getBody().getRawBytes() : null;
+        // the fingerprint only has a digest of the body, so the body of the cached request is compared in full
+        if (matchedExpectation != null && matchedExpectation.expectationsVersion == expectationIndex.matchesVersion() && Arrays.equals(matchedExpectation.body, body)) {
+            Expectation expectation = matchedExpectation.expectation;
+            if (expectation == null) {
+                matchedExpectationCacheHits.incrementAndGet();
+                return null;
+            } else if (expectation.hasRemainingMatches() && expectation.isStillAlive() && expectation.consumeRemainingMatch()) {
+                matchedExpectationCacheHits.incrementAndGet();
                 if (!expectation.hasRemainingMatches()) {
-                    if (this.expectations.contains(expectation)) {
-                        this.expectations.remove(expectation);
-                    }
+                    removeSpent(Collections.singletonList(expectation));
                 }
                 return expectation.getAction();
-            } else if (!expectation.isStillAlive()) {
-                if (this.expectations.contains(expectation)) {
-                    this.expectations.remove(expectation);
+            }
+        }
+        matchedExpectationCacheMisses.incrementAndGet();
+        return retrieveAction(httpRequest, expectationIndex, fingerprint, body);
+    }
+
+    private Action retrieveAction(HttpRequest httpRequest, ExpectationIndex expectationIndex, String fingerprint, byte[] body) {
+        // the request is parsed at most once for all the expectations it is matched against
+        MatchContext matchContext = new MatchContext(httpRequest);
+        HttpRequestMatcherNetwork.Evaluation evaluation = null;
+        if (compiledExpectationMatching) {
+            evaluation = expectationIndex.httpRequestMatcherNetwork().evaluate(matchContext);
+        }
+        for (Expectation expectation : expectationIndex.candidates(matchContext)) {
+            if (evaluation != null ? expectation.matchesIncomingRequest(evaluation) : expectation.matchesIncomingRequest(matchContext)) {
+                if (expectation.consumeRemainingMatch()) {
+                    if (!expectation.hasRemainingMatches()) {
+                        removeSpent(Collections.singletonList(expectation));
+                    } else if (fingerprint != null) {
+                        matchedExpectationCache.put(fingerprint, new MatchedExpectation(expectationIndex.matchesVersion(), body, expectation));
+                    }
+                    return expectation.getAction();
                 }
             }
         }
+        if (fingerprint != null) {
+            matchedExpectationCache.put(fingerprint, new MatchedExpectation(expectationIndex.matchesVersion(), body, null));
+        }
         return null;
     }
 
+    /**
+     * Removes expectations whose time to live has expired, this is called by the {@link ExpectationReaper}
+     */
+    void expire(Collection<Expectation> expectations) {
+        synchronized (writeLock) {
+            int numberOfExpectations = expectationIndex.expectations().size();
+            publish(expectationIndex.removeSpent(expectations));
+            cancelTimeouts(expectations);
+            expiredExpectations.addAndGet(numberOfExpectations - expectationIndex.expectations().size());
+        }
+    }
+
+    /**
+     * @return the number of expectations removed because their time to live expired
+     */
+    public long expiredExpectations() {
+        return expiredExpectations.get();
+    }
+
+    /**
+     * @return the number of requests matched using the matched expectation cache
+     */
+    public long matchedExpectationCacheHits() {
+        return matchedExpectationCacheHits.get();
+    }
+
+    /**
+     * @return the number of requests that were matched against the expectations because no valid cached match existed
+     */
+    public long matchedExpectationCacheMisses() {
+        return matchedExpectationCacheMisses.get();
+    }
+
+    /**
+     * @return the proportion of requests matched using the matched expectation cache, or zero if no requests were matched
+     */
+    public double matchedExpectationCacheHitRate() {
+        long hits = matchedExpectationCacheHits.get();
+        long requests = hits + matchedExpectationCacheMisses.get();
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    private void remove(Collection<Expectation> expectations) {
+        if (!expectations.isEmpty()) {
+            synchronized (writeLock) {
+                publish(expectationIndex.remove(expectations));
+                cancelTimeouts(expectations);
+            }
+        }
+    }
+
+    /**
+     * Removes expectations that have no remaining matches, which doesn't invalidate cached matches
+     */
+    private void removeSpent(Collection<Expectation> expectations) {
+        synchronized (writeLock) {
+            publish(expectationIndex.removeSpent(expectations));
+            cancelTimeouts(expectations);
+        }
+    }
+
+    /**
+     * Called with the write lock held, so the reaper no longer references expectations that have been removed
+     */
+    private void cancelTimeouts(Collection<Expectation> expectations) {
+        if (!timeouts.isEmpty()) {
+            for (Expectation expectation : expectations) {
+                ExpectationReaper.Timeout timeout = timeouts.remove(expectation);
+                if (timeout != null) {
+                    timeout.cancel();
+                }
+            }
+        }
+    }
+
     public void clear(HttpRequest httpRequest) {
         if (httpRequest != null) {
             HttpRequestMatcher httpRequestMatcher = new MatcherBuilder().transformsToMatcher(httpRequest);
-            for (Expectation expectation : new ArrayList<Expectation>(this.expectations)) {
+            List<Expectation> matchingExpectations = new ArrayList<Expectation>();
+            for (Expectation expectation : expectationIndex.expectations()) {
                 if (httpRequestMatcher.matches(expectation.getHttpRequest(), true)) {
-                    if (this.expectations.contains(expectation)) {
-                        this.expectations.remove(expectation);
-                    }
+                    matchingExpectations.add(expectation);
                 }
             }
+            remove(matchingExpectations);
         } else {
             reset();
         }
     }
 
     public void reset() {
-        this.expectations.clear();
+        synchronized (writeLock) {
+            publish(expectationIndex.clear());
+            for (ExpectationReaper.Timeout timeout : timeouts.values()) {
+                timeout.cancel();
+            }
+            timeouts.clear();
+        }
     }
 
     public void dumpToLog(HttpRequest httpRequest) {
         ExpectationSerializer expectationSerializer = new ExpectationSerializer();
         if (httpRequest != null) {
-            for (Expectation expectation : new ArrayList<Expectation>(this.expectations)) {
+            for (Expectation expectation : expectationIndex.expectations()) {
                 if (expectation.matches(httpRequest)) {
                     requestLogger.warn(cleanBase64Response(expectationSerializer.serialize(expectation)));
                 }
             }
         } else {
-            for (Expectation expectation : new ArrayList<Expectation>(this.expectations)) {
+            for (Expectation expectation : expectationIndex.expectations()) {
                 requestLogger.warn(cleanBase64Response(expectationSerializer.serialize(expectation)));
             }
         }
@@ -123,14 +347,28 @@ public class MockServerMatcher extends ObjectWithReflectiveEqualsHashCodeToStrin
     public Expectation[] retrieveExpectations(HttpRequest httpRequest) {
         List<Expectation> expectations = new ArrayList<Expectation>();
         if (httpRequest != null) {
-            for (Expectation expectation : new ArrayList<Expectation>(this.expectations)) {
+            for (Expectation expectation : expectationIndex.expectations()) {
                 if (expectation.matches(httpRequest)) {
                     expectations.add(expectation);
                 }
             }
         } else {
-            expectations.addAll(this.expectations);
+            expectations.addAll(expectationIndex.expectations());
         }
         return expectations.toArray(new Expectation[expectations.size()]);
     }
+
+    private static class MatchedExpectation {
+        private final long expectationsVersion;
+        // the body of the matched request, null if it had no body
+        private final byte[] body;
+        // null if the request didn't match any expectation
+        private final Expectation expectation;
+
+        MatchedExpectation(long expectationsVersion, byte[] body, Expectation expectation) {
+            this.expectationsVersion = expectationsVersion;
+            this.body = body;
+            this.expectation = expectation;
+        }
+    }
 }
@@ -0,0 +1,105 @@
+package org.mockserver.mock;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.mockserver.model.*;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A canonical form of every part of a request that an expectation can match, two requests with the same fingerprint
+ * are matched by exactly the same expectations, query string parameters, headers and cookies are sorted by name as
+ * their order never affects matching and the body is reduced to a 128 bit digest, which isn't collision resistant so
+ * requests with the same fingerprint must also have equal bodies to be matched by the same expectations
+ *
+ * @author jamesdbloom
+ */
+class RequestFingerprint {
+
+    private static final HashFunction BODY_DIGEST = Hashing.murmur3_128();
+    private static final Comparator<KeyToMultiValue> KEY_TO_MULTI_VALUE_COMPARATOR = new Comparator<KeyToMultiValue>() {
+        @Override
+        public int compare(KeyToMultiValue first, KeyToMultiValue second) {
+            return compareNottableStrings(first.getName(), second.getName());
+        }
+    };
+    private static final Comparator<KeyAndValue> KEY_AND_VALUE_COMPARATOR = new Comparator<KeyAndValue>() {
+        @Override
+        public int compare(KeyAndValue first, KeyAndValue second) {
+            int result = compareNottableStrings(first.getName(), second.getName());
+            return result != 0 ? result : compareNottableStrings(first.getValue(), second.getValue());
+        }
+    };
+
+    private RequestFingerprint() {
+
+    }
+
+    static String fingerprint(HttpRequest httpRequest) {
+        StringBuilder fingerprint = new StringBuilder();
+        append(fingerprint, String.valueOf(httpRequest.isNot()));
+        append(fingerprint, httpRequest.getMethod());
+        append(fingerprint, httpRequest.getPath());
+        appendKeyToMultiValues(fingerprint, httpRequest.getQueryStringParameters());
+        appendKeyToMultiValues(fingerprint, httpRequest.getHeaders());
+        List<KeyAndValue> cookies = new ArrayList<KeyAndValue>(httpRequest.getCookies());
+        Collections.sort(cookies, KEY_AND_VALUE_COMPARATOR);
+        append(fingerprint, String.valueOf(cookies.size()));
+        for (KeyAndValue cookie : cookies) {
+            append(fingerprint, cookie.getName());
+            append(fingerprint, cookie.getValue());
+        }
+        append(fingerprint, String.valueOf(httpRequest.isKeepAlive()));
+        append(fingerprint, String.valueOf(httpRequest.isSecure()));
+        Body body = httpRequest.getBody();
+        if (body != null) {
+            append(fingerprint, body.getType().name());
+            append(fingerprint, String.valueOf(body.isNot()));
+            Charset charset = body.getCharset(null);
+            append(fingerprint, charset != null ? charset.name() : "");
+            append(fingerprint, BODY_DIGEST.hashBytes(body.getRawBytes()).toString());
+        } else {
+            append(fingerprint, "");
+        }
+        return fingerprint.toString();
+    }
+
+    private static void appendKeyToMultiValues(StringBuilder fingerprint, List<? extends KeyToMultiValue> keyToMultiValues) {
+        List<KeyToMultiValue> sorted = new ArrayList<KeyToMultiValue>(keyToMultiValues);
+        Collections.sort(sorted, KEY_TO_MULTI_VALUE_COMPARATOR);
+        append(fingerprint, String.valueOf(sorted.size()));
+        for (KeyToMultiValue keyToMultiValue : sorted) {
+            append(fingerprint, keyToMultiValue.getName());
+            append(fingerprint, String.valueOf(keyToMultiValue.getValues().size()));
+            for (NottableString value : keyToMultiValue.getValues()) {
+                append(fingerprint, value);
+            }
+        }
+    }
+
+    private static void append(StringBuilder fingerprint, NottableString value) {
+        append(fingerprint, canonical(value));
+    }
+
+    private static String canonical(NottableString value) {
+        return value != null && value.getValue() != null ? (value.isNot() ? "!" : "=") + value.getValue() : null;
+    }
+
+    /**
+     * Prefixes each value with its length so no two different sequences of values have the same fingerprint
+     */
+    private static void append(StringBuilder fingerprint, String value) {
+        fingerprint.append(value != null ? value.length() : -1).append(':');
+        if (value != null) {
+            fingerprint.append(value);
+        }
+    }
+
+    private static int compareNottableStrings(NottableString first, NottableString second) {
+        return String.valueOf(canonical(first)).compareTo(String.valueOf(canonical(second)));
+    }
+}
@@ -1,8 +1,14 @@
 package org.mockserver.validator;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jsonschema.core.exceptions.ProcessingException;
 import com.github.fge.jsonschema.core.report.ProcessingReport;
+import com.github.fge.jsonschema.main.JsonSchema;
 import com.github.fge.jsonschema.main.JsonSchemaFactory;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import org.mockserver.client.serialization.ObjectMapperFactory;
 import org.mockserver.model.ObjectWithReflectiveEqualsHashCodeToString;
 import org.slf4j.Logger;
@@ -13,30 +19,86 @@ import org.slf4j.LoggerFactory;
  */
 public class JsonSchemaValidator extends ObjectWithReflectiveEqualsHashCodeToString implements Validator<String> {
 
+    private static final JsonSchemaFactory JSON_SCHEMA_FACTORY = JsonSchemaFactory.byDefault();
+    // schemas are compiled once and shared by every expectation with the same schema
+    private static final LoadingCache<String, CompiledSchema> COMPILED_SCHEMA_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(1000)
+            .build(new CacheLoader<String, CompiledSchema>() {
+                @Override
+                public CompiledSchema load(String schema) {
+                    return compile(schema);
+                }
+            });
+
     private final String schema;
     public Logger logger = LoggerFactory.getLogger(this.getClass());
     private ObjectMapper objectMapper = ObjectMapperFactory.createObjectMapper();
+    private final CompiledSchema compiledSchema;
 
     public JsonSchemaValidator(String schema) {
         this.schema = schema;
+        this.compiledSchema = schema != null ? COMPILED_SCHEMA_CACHE.getUnchecked(schema) : compile(null);
+        addFieldsExcludedFromEqualsAndHashCode("compiledSchema");
+    }
+
+    private static CompiledSchema compile(String schema) {
+        try {
+            return new CompiledSchema(JSON_SCHEMA_FACTORY.getJsonSchema(ObjectMapperFactory.createObjectMapper().readTree(schema)), null);
+        } catch (Exception e) {
+            return new CompiledSchema(null, e);
+        }
     }
 
     @Override
     public String isValid(String json) {
         try {
-            final ProcessingReport validate = JsonSchemaFactory
-                    .byDefault()
-                    .getValidator()
-                    .validate(objectMapper.readTree(schema), objectMapper.readTree(json), true);
-
-            if (validate.isSuccess()) {
-                return "";
-            } else {
-                return validate.toString();
+            compiledSchema.checkValid();
+            return validate(objectMapper.readTree(json));
+        } catch (Exception e) {
+            logger.info("Exception validating JSON", e);
+            return e.getClass().getSimpleName() + " - " + e.getMessage();
+        }
+    }
+
+    /**
+     * Validates JSON that has already been parsed, so a body matched against several schemas is only parsed once
+     */
+    public String isValidJsonNode(JsonNode json) {
+        try {
+            compiledSchema.checkValid();
+            if (json == null) {
+                return "JSON is empty or could not be parsed";
             }
+            return validate(json);
         } catch (Exception e) {
             logger.info("Exception validating JSON", e);
             return e.getClass().getSimpleName() + " - " + e.getMessage();
         }
     }
+
+    private String validate(JsonNode json) throws ProcessingException {
+        final ProcessingReport validate = compiledSchema.jsonSchema.validate(json, true);
+
+        if (validate.isSuccess()) {
+            return "";
+        } else {
+            return validate.toString();
+        }
+    }
+
+    private static class CompiledSchema {
+        private final JsonSchema jsonSchema;
+        private final Exception exception;
+
+        CompiledSchema(JsonSchema jsonSchema, Exception exception) {
+            this.jsonSchema = jsonSchema;
+            this.exception = exception;
+        }
+
+        void checkValid() throws Exception {
+            if (exception != null) {
+                throw exception;
+            }
+        }
+    }
 }
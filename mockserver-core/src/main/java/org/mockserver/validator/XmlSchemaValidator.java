@@ -2,6 +2,7 @@ package org.mockserver.validator;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import joptsimple.internal.Strings;
+import org.mockserver.collections.ThreadLocalCache;
 import org.mockserver.client.serialization.ObjectMapperFactory;
 import org.mockserver.file.FileReader;
 import org.mockserver.model.ObjectWithReflectiveEqualsHashCodeToString;
@@ -20,16 +21,31 @@ import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
 import java.io.*;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 
-import static org.apache.commons.lang3.CharEncoding.UTF_8;
-
 /**
  * @author jamesdbloom
  */
 public class XmlSchemaValidator extends ObjectWithReflectiveEqualsHashCodeToString implements Validator<String> {
 
+    private static final String ACCESS_EXTERNAL_DTD = "http://javax.xml.XMLConstants/property/accessExternalDTD";
+    private static final Logger LOGGER = LoggerFactory.getLogger(XmlSchemaValidator.class);
+    // validators are not thread safe so one per schema is kept per thread
+    private static final ThreadLocalCache<Schema, javax.xml.validation.Validator> VALIDATORS = new ThreadLocalCache<Schema, javax.xml.validation.Validator>(256) {
+        @Override
+        protected javax.xml.validation.Validator create(Schema schema) {
+            javax.xml.validation.Validator validator = schema.newValidator();
+            try {
+                // prevent XML external entity (XXE) attacks
+                validator.setProperty(ACCESS_EXTERNAL_DTD, "");
+            } catch (SAXException e) {
+                LOGGER.warn("XML validator does not support property [" + ACCESS_EXTERNAL_DTD + "]");
+            }
+            return validator;
+        }
+    };
     private final Schema schema;
     public Logger logger = LoggerFactory.getLogger(this.getClass());
     private final static SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
@@ -37,9 +53,9 @@ public class XmlSchemaValidator extends ObjectWithReflectiveEqualsHashCodeToStri
     public XmlSchemaValidator(String schema) {
         try {
             if (schema.trim().endsWith(">") || Strings.isNullOrEmpty(schema)) {
-                this.schema = schemaFactory.newSchema(new StreamSource(new StringReader(schema)));
+                this.schema = newSchema(new StreamSource(new StringReader(schema)));
             } else if (schema.trim().endsWith(".xsd")) {
-                this.schema = schemaFactory.newSchema(new StreamSource(FileReader.openReaderToFileFromClassPathOrPath(schema)));
+                this.schema = newSchema(new StreamSource(FileReader.openReaderToFileFromClassPathOrPath(schema)));
             } else {
                 throw new IllegalArgumentException("Schema must either be a path reference to a *.xsd file or an xml string");
             }
@@ -50,19 +66,46 @@ public class XmlSchemaValidator extends ObjectWithReflectiveEqualsHashCodeToStri
         }
     }
 
+    private static Schema newSchema(Source source) throws SAXException {
+        // schema factories are not thread safe
+        synchronized (schemaFactory) {
+            return schemaFactory.newSchema(source);
+        }
+    }
+
     @Override
     public String isValid(String xml) {
-        String errorMessage = "";
         try {
-            try {
-                schema.newValidator().validate(new StreamSource(new ByteArrayInputStream(xml.getBytes(UTF_8))));
-            } catch (SAXException e) {
-                errorMessage = e.getMessage();
-            }
+            return validate(new StreamSource(new StringReader(xml)));
         } catch (Exception e) {
-            logger.info("Exception validating JSON", e);
-            return e.getClass().getSimpleName() + " - " + e.getMessage();
+            return handleException(e);
         }
-        return errorMessage;
+    }
+
+    /**
+     * Validates the xml directly from its bytes, the bytes are decoded as they are streamed to the validator so no
+     * copy of the whole document is made, the charset is the one declared for the body and takes precedence over any
+     * encoding in the xml declaration
+     */
+    public String isValid(byte[] xml, Charset charset) {
+        try {
+            return validate(new StreamSource(new InputStreamReader(new ByteArrayInputStream(xml), charset)));
+        } catch (Exception e) {
+            return handleException(e);
+        }
+    }
+
+    private String validate(Source xml) throws IOException {
+        try {
+            VALIDATORS.get(schema).validate(xml);
+        } catch (SAXException e) {
+            return e.getMessage();
+        }
+        return "";
+    }
+
+    private String handleException(Exception e) {
+        logger.info("Exception validating JSON", e);
+        return e.getClass().getSimpleName() + " - " + e.getMessage();
     }
 }
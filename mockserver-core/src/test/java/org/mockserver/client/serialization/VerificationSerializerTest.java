@@ -20,6 +20,7 @@ import org.mockserver.verify.VerificationTimes;
 
 import java.io.IOException;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
@@ -87,6 +88,18 @@ public class VerificationSerializerTest {
         verificationSerializer.deserialize("requestBytes");
     }
 
+    @Test
+    public void deserializeArray() throws IOException {
+        // given
+        when(objectMapper.readValue(eq("requestBytes"), same(VerificationDTO[].class))).thenReturn(new VerificationDTO[]{fullVerificationDTO, fullVerificationDTO});
+
+        // when
+        Verification[] verifications = verificationSerializer.deserializeArray("requestBytes");
+
+        // then
+        assertArrayEquals(new Verification[]{fullVerification, fullVerification}, verifications);
+    }
+
     @Test
     public void serialize() throws IOException {
         // given
@@ -0,0 +1,119 @@
+package org.mockserver.collections;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author jamesdbloom
+ */
+public class RingBufferTest {
+
+    @Test
+    public void shouldEvictOldestValuesWhenFull() {
+        // given
+        RingBuffer<String> ringBuffer = new RingBuffer<String>(3);
+
+        // when
+        assertEquals(0, ringBuffer.add("1"));
+        assertEquals(1, ringBuffer.add("2"));
+        assertEquals(2, ringBuffer.add("3"));
+        assertEquals(3, ringBuffer.add("4"));
+
+        // then
+        assertEquals(Arrays.asList("2", "3", "4"), ringBuffer.snapshot());
+        assertEquals(1, ringBuffer.firstSequence());
+        assertEquals(4, ringBuffer.nextSequence());
+        assertEquals(1, ringBuffer.evictions());
+        assertNull(ringBuffer.get(0));
+        assertEquals("2", ringBuffer.get(1));
+    }
+
+    @Test
+    public void shouldSnapshotSequenceRange() {
+        // given
+        RingBuffer<String> ringBuffer = new RingBuffer<String>(5);
+        for (int i = 0; i < 8; i++) {
+            ringBuffer.add(String.valueOf(i));
+        }
+
+        // then
+        assertEquals(Arrays.asList("4", "5"), ringBuffer.snapshot(4, 6));
+        assertEquals(Arrays.asList("3", "4"), ringBuffer.snapshot(0, 5));
+        assertEquals(Collections.<String>emptyList(), ringBuffer.snapshot(8, 10));
+    }
+
+    @Test
+    public void shouldRemoveAndClearValues() {
+        // given
+        RingBuffer<String> ringBuffer = new RingBuffer<String>(3);
+        ringBuffer.add("1");
+        ringBuffer.add("2");
+        ringBuffer.add("3");
+
+        // when
+        assertFalse(ringBuffer.remove(1, "other"));
+        assertTrue(ringBuffer.remove(1, "2"));
+
+        // then
+        assertEquals(Arrays.asList("1", "3"), ringBuffer.snapshot());
+
+        // when
+        ringBuffer.clear();
+        ringBuffer.add("4");
+
+        // then
+        assertEquals(Collections.singletonList("4"), ringBuffer.snapshot());
+        assertEquals(0, ringBuffer.evictions());
+    }
+
+    @Test
+    public void shouldKeepMostRecentValuesFromConcurrentWriters() throws InterruptedException {
+        // given
+        final int numberOfWriters = 8;
+        final int valuesPerWriter = 10000;
+        final RingBuffer<Integer> ringBuffer = new RingBuffer<Integer>(1000);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(numberOfWriters);
+
+        // when
+        for (int writer = 0; writer < numberOfWriters; writer++) {
+            executorService.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException ie) {
+                        throw new RuntimeException(ie);
+                    }
+                    for (int i = 0; i < valuesPerWriter; i++) {
+                        ringBuffer.add(i);
+                    }
+                }
+            });
+        }
+        startLatch.countDown();
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(30, TimeUnit.SECONDS));
+
+        // then
+        List<Integer> snapshot = ringBuffer.snapshot();
+        assertEquals(1000, snapshot.size());
+        assertEquals(numberOfWriters * valuesPerWriter, ringBuffer.nextSequence());
+        assertEquals(numberOfWriters * valuesPerWriter - 1000, ringBuffer.evictions());
+        List<Integer> values = new ArrayList<Integer>();
+        for (long sequence = ringBuffer.firstSequence(); sequence < ringBuffer.nextSequence(); sequence++) {
+            values.add(ringBuffer.get(sequence));
+        }
+        assertEquals(values, snapshot);
+    }
+}
@@ -0,0 +1,69 @@
+package org.mockserver.collections;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author jamesdbloom
+ */
+public class StripedCounterTest {
+
+    @Test
+    public void shouldIncrementAndReset() {
+        // given
+        StripedCounter stripedCounter = new StripedCounter();
+
+        // when
+        stripedCounter.increment();
+        stripedCounter.increment();
+
+        // then
+        assertEquals(2, stripedCounter.sum());
+
+        // when
+        stripedCounter.reset();
+
+        // then
+        assertEquals(0, stripedCounter.sum());
+    }
+
+    @Test
+    public void shouldCountIncrementsFromConcurrentThreads() throws InterruptedException {
+        // given
+        final int numberOfThreads = 8;
+        final int incrementsPerThread = 100000;
+        final StripedCounter stripedCounter = new StripedCounter();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+
+        // when
+        for (int thread = 0; thread < numberOfThreads; thread++) {
+            executorService.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException ie) {
+                        throw new RuntimeException(ie);
+                    }
+                    for (int i = 0; i < incrementsPerThread; i++) {
+                        stripedCounter.increment();
+                    }
+                }
+            });
+        }
+        startLatch.countDown();
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(30, TimeUnit.SECONDS));
+
+        // then
+        assertEquals(numberOfThreads * incrementsPerThread, stripedCounter.sum());
+    }
+}
@@ -0,0 +1,86 @@
+package org.mockserver.collections;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author jamesdbloom
+ */
+public class ThreadLocalCacheTest {
+
+    private static class CreateCountingCache extends ThreadLocalCache<String, Object> {
+
+        private final AtomicInteger creates = new AtomicInteger();
+
+        CreateCountingCache(int maximumSize) {
+            super(maximumSize);
+        }
+
+        @Override
+        protected Object create(String key) {
+            creates.incrementAndGet();
+            return key.equals("invalid") ? null : new Object();
+        }
+    }
+
+    @Test
+    public void shouldCreateValueOncePerThread() throws InterruptedException {
+        // given
+        final CreateCountingCache cache = new CreateCountingCache(2);
+        Object value = cache.get("key");
+
+        // when
+        final AtomicReference<Object> otherThreadValue = new AtomicReference<Object>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                otherThreadValue.set(cache.get("key"));
+            }
+        });
+        thread.start();
+        thread.join();
+
+        // then
+        assertSame(value, cache.get("key"));
+        assertNotNull(otherThreadValue.get());
+        assertNotSame(value, otherThreadValue.get());
+        assertEquals(2, cache.creates.get());
+    }
+
+    @Test
+    public void shouldCacheNullValues() {
+        // given
+        CreateCountingCache cache = new CreateCountingCache(2);
+
+        // when
+        assertNull(cache.get("invalid"));
+        assertNull(cache.get("invalid"));
+
+        // then
+        assertEquals(1, cache.creates.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedValues() {
+        // given
+        CreateCountingCache cache = new CreateCountingCache(2);
+        Object first = cache.get("first");
+        cache.get("second");
+
+        // when
+        cache.get("first");
+        cache.get("third");
+
+        // then
+        assertEquals(2, cache.size());
+        assertSame(first, cache.get("first"));
+        assertEquals(3, cache.creates.get());
+        cache.get("second");
+        assertEquals(4, cache.creates.get());
+    }
+}
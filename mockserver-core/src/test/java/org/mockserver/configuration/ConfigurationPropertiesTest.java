@@ -72,6 +72,108 @@ public class ConfigurationPropertiesTest {
         assertEquals("false", System.getProperty("mockserver.enableCORSForAllResponses"));
     }
     
+    @Test
+    public void shouldSetAndReadBidirectionalRegexMatching() {
+        // given
+        System.clearProperty("mockserver.bidirectionalRegexMatching");
+
+        // when
+        assertEquals(true, ConfigurationProperties.bidirectionalRegexMatching());
+        ConfigurationProperties.bidirectionalRegexMatching(false);
+
+        // then
+        assertEquals(false, ConfigurationProperties.bidirectionalRegexMatching());
+        assertEquals("false", System.getProperty("mockserver.bidirectionalRegexMatching"));
+    }
+
+    @Test
+    public void shouldSetAndReadMatchedExpectationCacheSize() {
+        // given
+        System.clearProperty("mockserver.matchedExpectationCacheSize");
+
+        // when
+        assertEquals(0, ConfigurationProperties.matchedExpectationCacheSize());
+        ConfigurationProperties.matchedExpectationCacheSize(1000);
+
+        // then
+        assertEquals(1000, ConfigurationProperties.matchedExpectationCacheSize());
+        assertEquals("1000", System.getProperty("mockserver.matchedExpectationCacheSize"));
+    }
+
+    @Test
+    public void shouldSetAndReadRequestLogSize() {
+        // given
+        System.clearProperty("mockserver.requestLogSize");
+
+        // when
+        assertEquals(100, ConfigurationProperties.requestLogSize());
+        ConfigurationProperties.requestLogSize(5000);
+
+        // then
+        assertEquals(5000, ConfigurationProperties.requestLogSize());
+        assertEquals("5000", System.getProperty("mockserver.requestLogSize"));
+    }
+
+    @Test
+    public void shouldSetAndReadRequestJournalDirectory() {
+        // given
+        System.clearProperty("mockserver.requestJournalDirectory");
+
+        try {
+            // when
+            assertEquals("", ConfigurationProperties.requestJournalDirectory());
+            ConfigurationProperties.requestJournalDirectory("/tmp/journal");
+
+            // then
+            assertEquals("/tmp/journal", ConfigurationProperties.requestJournalDirectory());
+            assertEquals("/tmp/journal", System.getProperty("mockserver.requestJournalDirectory"));
+        } finally {
+            System.clearProperty("mockserver.requestJournalDirectory");
+        }
+    }
+
+    @Test
+    public void shouldSetAndReadRequestJournalSegmentSize() {
+        // given
+        System.clearProperty("mockserver.requestJournalSegmentSize");
+
+        // when
+        assertEquals(64L * 1024 * 1024, ConfigurationProperties.requestJournalSegmentSize());
+        ConfigurationProperties.requestJournalSegmentSize(1024);
+
+        // then
+        assertEquals(1024, ConfigurationProperties.requestJournalSegmentSize());
+        assertEquals("1024", System.getProperty("mockserver.requestJournalSegmentSize"));
+    }
+
+    @Test
+    public void shouldSetAndReadRequestJournalMaxSize() {
+        // given
+        System.clearProperty("mockserver.requestJournalMaxSize");
+
+        // when
+        assertEquals(1024L * 1024 * 1024, ConfigurationProperties.requestJournalMaxSize());
+        ConfigurationProperties.requestJournalMaxSize(4096);
+
+        // then
+        assertEquals(4096, ConfigurationProperties.requestJournalMaxSize());
+        assertEquals("4096", System.getProperty("mockserver.requestJournalMaxSize"));
+    }
+
+    @Test
+    public void shouldSetAndReadRequestJournalMaxAgeMillis() {
+        // given
+        System.clearProperty("mockserver.requestJournalMaxAgeMillis");
+
+        // when
+        assertEquals(0, ConfigurationProperties.requestJournalMaxAgeMillis());
+        ConfigurationProperties.requestJournalMaxAgeMillis(60000);
+
+        // then
+        assertEquals(60000, ConfigurationProperties.requestJournalMaxAgeMillis());
+        assertEquals("60000", System.getProperty("mockserver.requestJournalMaxAgeMillis"));
+    }
+
     @Test
     public void shouldSetAndReadMaxSocketTimeout() {
         // given
@@ -364,10 +466,16 @@ public class ConfigurationPropertiesTest {
         // given
         System.clearProperty("mockserver.logLevel");
 
-        // when
-        ConfigurationProperties.overrideLogLevel("TRACE");
-
-        // then
-        assertThat(System.getProperty("mockserver.logLevel"), is("TRACE"));
+        try {
+            // when
+            ConfigurationProperties.overrideLogLevel("TRACE");
+
+            // then
+            assertThat(System.getProperty("mockserver.logLevel"), is("TRACE"));
+        } finally {
+            // restore the level from logback-test.xml so later tests do not log at TRACE
+            ConfigurationProperties.overrideLogLevel("WARN");
+            System.clearProperty("mockserver.logLevel");
+        }
     }
 }
@@ -0,0 +1,291 @@
+package org.mockserver.filters;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.model.HttpResponse;
+
+import java.io.File;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+/**
+ * @author jamesdbloom
+ */
+public class RequestJournalTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldReadRequestsAndResponsesInOrder() throws Exception {
+        // given
+        RequestJournal requestJournal = new RequestJournal(temporaryFolder.getRoot(), "test", 4096, Long.MAX_VALUE, 0);
+        HttpRequest firstRequest = request().withMethod("POST").withPath("/some/path").withHeader("Host", "localhost").withBody("some_body").withSecure(true);
+        HttpRequest secondRequest = request().withPath("/other/path").withQueryStringParameter("name", "value");
+        HttpResponse firstResponse = response().withStatusCode(201).withBody("some_response");
+
+        // when
+        requestJournal.append(firstRequest, firstResponse);
+        requestJournal.append(secondRequest, null);
+
+        // then
+        List<Map.Entry<HttpRequest, HttpResponse>> entries = entries(requestJournal);
+        assertEquals(2, entries.size());
+        assertEquals(firstRequest, entries.get(0).getKey());
+        assertEquals(firstResponse, entries.get(0).getValue());
+        assertEquals(secondRequest, entries.get(1).getKey());
+        assertNull(entries.get(1).getValue());
+        assertEquals(Arrays.asList(firstRequest, secondRequest), requests(requestJournal));
+    }
+
+    @Test
+    public void shouldRollSegmentsAndDeleteOldestOnceMaxSizeReached() throws Exception {
+        // given - each segment holds a few requests and the journal keeps at most three segments
+        RequestJournal requestJournal = new RequestJournal(temporaryFolder.getRoot(), "test", 256, 3 * 256, 0);
+
+        // when
+        for (int i = 0; i < 100; i++) {
+            requestJournal.append(request().withPath("/path_" + i), null);
+        }
+
+        // then
+        assertEquals(3, requestJournal.numberOfSegments());
+        assertEquals(3, temporaryFolder.getRoot().listFiles().length);
+        List<HttpRequest> requests = requests(requestJournal);
+        assertEquals(request().withPath("/path_99"), requests.get(requests.size() - 1));
+        for (int i = 0; i < requests.size(); i++) {
+            assertEquals(request().withPath("/path_" + (100 - requests.size() + i)), requests.get(i));
+        }
+    }
+
+    @Test
+    public void shouldDeleteSegmentsOnceMaxAgeReached() throws Exception {
+        // given
+        RequestJournal requestJournal = new RequestJournal(temporaryFolder.getRoot(), "test", 128, Long.MAX_VALUE, 50);
+        for (int i = 0; i < 10; i++) {
+            requestJournal.append(request().withPath("/path_" + i), null);
+        }
+
+        // when
+        Thread.sleep(100);
+        requestJournal.append(request().withPath("/new_path"), null);
+
+        // then - only the current segment is kept
+        assertEquals(1, requestJournal.numberOfSegments());
+        List<HttpRequest> requests = requests(requestJournal);
+        assertEquals(request().withPath("/new_path"), requests.get(requests.size() - 1));
+        assertFalse(requests.contains(request().withPath("/path_0")));
+    }
+
+    @Test
+    public void shouldStoreRequestsLargerThanSegmentSize() throws Exception {
+        // given
+        RequestJournal requestJournal = new RequestJournal(temporaryFolder.getRoot(), "test", 64, Long.MAX_VALUE, 0);
+        char[] body = new char[1000];
+        Arrays.fill(body, 'a');
+        HttpRequest largeRequest = request().withPath("/large").withBody(new String(body));
+
+        // when
+        requestJournal.append(largeRequest, null);
+        requestJournal.append(request().withPath("/small"), null);
+
+        // then
+        assertEquals(Arrays.asList(largeRequest, request().withPath("/small")), requests(requestJournal));
+    }
+
+    @Test
+    public void shouldClearMatchingRequestsAndReset() throws Exception {
+        // given
+        RequestJournal requestJournal = new RequestJournal(temporaryFolder.getRoot(), "test", 4096, Long.MAX_VALUE, 0);
+        requestJournal.append(request().withPath("/some/path"), null);
+        requestJournal.append(request().withPath("/other/path"), null);
+
+        // when
+        requestJournal.clear(request().withPath("/some/path"));
+        requestJournal.append(request().withPath("/some/path"), null);
+
+        // then - only requests journalled before the clear are cleared
+        assertEquals(Arrays.asList(request().withPath("/other/path"), request().withPath("/some/path")), requests(requestJournal));
+
+        // when
+        requestJournal.reset();
+
+        // then
+        assertEquals(Collections.<HttpRequest>emptyList(), requests(requestJournal));
+        assertEquals(0, temporaryFolder.getRoot().listFiles().length);
+    }
+
+    @Test
+    public void shouldOnlyReadRequestsJournalledBeforeRead() throws Exception {
+        // given
+        RequestJournal requestJournal = new RequestJournal(temporaryFolder.getRoot(), "test", 4096, Long.MAX_VALUE, 0);
+        requestJournal.append(request().withPath("/first"), null);
+        Iterator<HttpRequest> requests = requestJournal.requests().iterator();
+
+        // when
+        requestJournal.append(request().withPath("/second"), null);
+
+        // then
+        List<HttpRequest> readRequests = new ArrayList<HttpRequest>();
+        while (requests.hasNext()) {
+            readRequests.add(requests.next());
+        }
+        assertEquals(Collections.singletonList(request().withPath("/first")), readRequests);
+    }
+
+    @Test
+    public void shouldNarrowRequestsByMethodPathAndHost() throws Exception {
+        // given - two segments each with several paths
+        RequestJournal requestJournal = new RequestJournal(temporaryFolder.getRoot(), "test", 256, Long.MAX_VALUE, 0);
+        for (int i = 0; i < 10; i++) {
+            requestJournal.append(request().withMethod(i % 2 == 0 ? "GET" : "POST").withPath("/path_" + (i % 3)), null);
+        }
+        requestJournal.append(request().withPath("/file.txt"), null);
+
+        // then - the logged regex path and empty method are always candidates
+        assertEquals(Arrays.asList(
+                request().withMethod("GET").withPath("/path_0"),
+                request().withMethod("POST").withPath("/path_0"),
+                request().withMethod("GET").withPath("/path_0"),
+                request().withMethod("POST").withPath("/path_0"),
+                request().withPath("/file.txt")
+        ), requests(requestJournal.requests(request().withPath("/path_0"))));
+        assertEquals(Arrays.asList(
+                request().withMethod("POST").withPath("/path_1"),
+                request().withMethod("POST").withPath("/path_0"),
+                request().withMethod("POST").withPath("/path_2"),
+                request().withMethod("POST").withPath("/path_1"),
+                request().withMethod("POST").withPath("/path_0"),
+                request().withPath("/file.txt")
+        ), requests(requestJournal.requests(request().withMethod("POST"))));
+        assertEquals(11, requests(requestJournal.requests(request().withPath("/path_.*"))).size());
+    }
+
+    @Test
+    public void shouldNotWaitForReadersToAppend() throws Exception {
+        // given
+        final RequestJournal requestJournal = new RequestJournal(temporaryFolder.getRoot(), "test", 4096, Long.MAX_VALUE, 0);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int thread = 0; thread < 4; thread++) {
+            threads.add(new Thread(new Runnable() {
+                public void run() {
+                    for (int i = 0; i < 250; i++) {
+                        requestJournal.append(request().withPath("/some/path"), null);
+                        if (i % 50 == 0) {
+                            requests(requestJournal.requests());
+                        }
+                    }
+                }
+            }));
+        }
+
+        // when
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // then
+        assertEquals(1000, requests(requestJournal.requests()).size());
+    }
+
+    @Test
+    public void shouldDeleteSegmentWhileItIsRead() throws Exception {
+        // given
+        RequestJournal requestJournal = new RequestJournal(temporaryFolder.getRoot(), "test", 4096, Long.MAX_VALUE, 0);
+        requestJournal.append(request().withPath("/first"), null);
+        requestJournal.append(request().withPath("/second"), null);
+        requestJournal.append(request().withPath("/third"), null);
+        Iterator<HttpRequest> requests = requestJournal.requests().iterator();
+        assertEquals(request().withPath("/first"), requests.next());
+
+        // when
+        requestJournal.reset();
+
+        // then - the request already read ahead is returned and the rest of the deleted segment is skipped
+        assertEquals(0, temporaryFolder.getRoot().listFiles().length);
+        assertEquals(request().withPath("/second"), requests.next());
+        assertFalse(requests.hasNext());
+    }
+
+    @Test
+    public void shouldDeleteSegmentsOfAbandonedIterations() throws Exception {
+        // given
+        RequestJournal requestJournal = new RequestJournal(temporaryFolder.getRoot(), "test", 4096, Long.MAX_VALUE, 0);
+        requestJournal.append(request().withPath("/first"), null);
+        requestJournal.append(request().withPath("/second"), null);
+        requestJournal.append(request().withPath("/third"), null);
+
+        // when - one iteration stops early and another is never read
+        Iterator<HttpRequest> requests = requestJournal.requests().iterator();
+        assertEquals(request().withPath("/first"), requests.next());
+        requestJournal.entries().iterator();
+        requestJournal.reset();
+
+        // then
+        assertEquals(0, temporaryFolder.getRoot().listFiles().length);
+    }
+
+    @Test
+    public void shouldDeleteSegmentsOnClose() throws Exception {
+        // given
+        RequestJournal requestJournal = new RequestJournal(temporaryFolder.getRoot(), "test", 4096, Long.MAX_VALUE, 0);
+        requestJournal.append(request().withPath("/some/path"), null);
+
+        // when
+        requestJournal.close();
+        requestJournal.append(request().withPath("/other/path"), null);
+
+        // then
+        assertEquals(0, temporaryFolder.getRoot().listFiles().length);
+        assertEquals(Collections.<HttpRequest>emptyList(), requests(requestJournal));
+    }
+
+    @Test
+    public void shouldDeleteStaleSegmentsOnStartup() throws Exception {
+        // given - a segment left by a JVM that did not exit cleanly and the segment of a running journal
+        File staleSegment = temporaryFolder.newFile("test-" + UUID.randomUUID() + "-0.journal");
+        File otherJournalSegment = temporaryFolder.newFile("other-" + UUID.randomUUID() + "-0.journal");
+        RequestJournal runningJournal = new RequestJournal(temporaryFolder.getRoot(), "test", 4096, Long.MAX_VALUE, 0);
+        runningJournal.append(request().withPath("/some/path"), null);
+
+        // when
+        new RequestJournal(temporaryFolder.getRoot(), "test", 4096, Long.MAX_VALUE, 0);
+
+        // then
+        assertFalse(staleSegment.exists());
+        assertTrue(otherJournalSegment.exists());
+        assertEquals(2, temporaryFolder.getRoot().listFiles().length);
+        assertEquals(Collections.singletonList(request().withPath("/some/path")), requests(runningJournal));
+    }
+
+    private List<Map.Entry<HttpRequest, HttpResponse>> entries(RequestJournal requestJournal) {
+        List<Map.Entry<HttpRequest, HttpResponse>> entries = new ArrayList<Map.Entry<HttpRequest, HttpResponse>>();
+        for (Map.Entry<HttpRequest, HttpResponse> entry : requestJournal.entries()) {
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    private List<HttpRequest> requests(RequestJournal requestJournal) {
+        return requests(requestJournal.requests());
+    }
+
+    private static List<HttpRequest> requests(Iterable<HttpRequest> journalledRequests) {
+        List<HttpRequest> requests = new ArrayList<HttpRequest>();
+        for (HttpRequest httpRequest : journalledRequests) {
+            requests.add(httpRequest);
+        }
+        return requests;
+    }
+}
@@ -1,11 +1,17 @@
 package org.mockserver.filters;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockserver.configuration.ConfigurationProperties;
 import org.mockserver.model.Cookie;
 import org.mockserver.model.Header;
 import org.mockserver.model.HttpRequest;
 import org.mockserver.model.HttpResponse;
+import org.mockserver.verify.VerificationSequence;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -13,8 +19,12 @@ import java.util.concurrent.*;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockserver.character.Character.NEW_LINE;
 import static org.mockserver.model.HttpRequest.request;
 import static org.mockserver.model.HttpResponse.response;
+import static org.mockserver.verify.Verification.verification;
+import static org.mockserver.verify.VerificationTimes.exactly;
 
 /**
  * @author jamesdbloom
@@ -23,6 +33,9 @@ public class RequestLogFilterTest {
 
     public static final List<HttpRequest> EMPTY_REQUEST_LIST = Arrays.<HttpRequest>asList();
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void shouldPassConcurrent() throws ExecutionException, InterruptedException {
         // given
@@ -112,6 +125,93 @@ public class RequestLogFilterTest {
         assertEquals(requestLogFilter.httpRequests(request("some_other_path")), Arrays.asList(request("some_other_path")));
     }
 
+    @Test
+    public void shouldEvictOldestRequestsOnceRequestLogSizeReached() {
+        // given
+        ConfigurationProperties.requestLogSize(2);
+        RequestLogFilter requestLogFilter;
+        try {
+            requestLogFilter = new RequestLogFilter();
+        } finally {
+            System.clearProperty("mockserver.requestLogSize");
+        }
+
+        // when
+        requestLogFilter.onRequest(request("some_path"));
+        requestLogFilter.onRequest(request("some_other_path"));
+        requestLogFilter.onRequest(request("some_path"));
+
+        // then
+        assertEquals(requestLogFilter.httpRequests(request()), Arrays.asList(request("some_other_path"), request("some_path")));
+        assertEquals(1, requestLogFilter.evictedRequests());
+    }
+
+    @Test
+    public void shouldDescribeFullHistoryFromRequestJournalWhenVerificationFails() throws IOException {
+        // given
+        File journalDirectory = temporaryFolder.newFolder();
+        ConfigurationProperties.requestLogSize(1);
+        ConfigurationProperties.requestJournalDirectory(journalDirectory.getAbsolutePath());
+        RequestLogFilter requestLogFilter;
+        try {
+            requestLogFilter = new RequestLogFilter();
+        } finally {
+            System.clearProperty("mockserver.requestLogSize");
+            System.clearProperty("mockserver.requestJournalDirectory");
+        }
+
+        // when
+        requestLogFilter.onRequest(request("some_path"));
+        requestLogFilter.onRequest(request("some_other_path"));
+
+        // then - the evicted request that was counted is described
+        String failureMessage = requestLogFilter.verify(verification().withRequest(request("some_path")).withTimes(exactly(2)));
+        assertTrue(failureMessage, failureMessage.contains("but was:<[ {" + NEW_LINE + "  \"path\" : \"some_path\""));
+        String sequenceFailureMessage = requestLogFilter.verify(new VerificationSequence().withRequests(request("some_other_path"), request("some_path")));
+        assertTrue(sequenceFailureMessage, sequenceFailureMessage.contains("but was:<[ {" + NEW_LINE + "  \"path\" : \"some_path\""));
+    }
+
+    @Test
+    public void shouldRetrieveAndVerifyFullHistoryFromRequestJournal() throws IOException {
+        // given
+        File journalDirectory = temporaryFolder.newFolder();
+        ConfigurationProperties.requestLogSize(2);
+        ConfigurationProperties.requestJournalDirectory(journalDirectory.getAbsolutePath());
+        RequestLogFilter requestLogFilter;
+        try {
+            requestLogFilter = new RequestLogFilter();
+        } finally {
+            System.clearProperty("mockserver.requestLogSize");
+            System.clearProperty("mockserver.requestJournalDirectory");
+        }
+
+        // when
+        requestLogFilter.onRequest(request("some_path"));
+        requestLogFilter.onRequest(request("some_other_path"));
+        requestLogFilter.onRequest(request("some_path"));
+        requestLogFilter.onRequest(request("some_other_path"));
+
+        // then
+        assertEquals(2, requestLogFilter.evictedRequests());
+        assertArrayEquals(requestLogFilter.retrieve(request("some_path")),
+                new HttpRequest[]{
+                        request("some_path"),
+                        request("some_path")
+                });
+        assertEquals("", requestLogFilter.verify(verification().withRequest(request("some_path")).withTimes(exactly(2))));
+        assertEquals("", requestLogFilter.verify(new VerificationSequence().withRequests(request("some_path"), request("some_other_path"), request("some_path"))));
+
+        // when
+        requestLogFilter.clear(request("some_other_path"));
+
+        // then
+        assertArrayEquals(requestLogFilter.retrieve(null),
+                new HttpRequest[]{
+                        request("some_path"),
+                        request("some_path")
+                });
+    }
+
     @Test
     public void shouldRetrieve() {
         // given
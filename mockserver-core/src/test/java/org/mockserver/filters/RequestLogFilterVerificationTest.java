@@ -1,6 +1,7 @@
 package org.mockserver.filters;
 
 import org.junit.Test;
+import org.mockserver.configuration.ConfigurationProperties;
 import org.mockserver.model.HttpRequest;
 import org.mockserver.verify.Verification;
 
@@ -328,4 +329,230 @@ public class RequestLogFilterVerificationTest {
                 ),
                 is("Request not found exactly 0 times, expected:<{ }> but was:<{ }>"));
     }
+
+    @Test
+    public void shouldPassBatchVerification() {
+        // given
+        HttpRequest httpRequest = new HttpRequest().withPath("some_path");
+        HttpRequest otherHttpRequest = new HttpRequest().withPath("some_other_path");
+        RequestLogFilter requestLogFilter = new RequestLogFilter();
+
+        // when
+        requestLogFilter.onRequest(httpRequest);
+        requestLogFilter.onRequest(otherHttpRequest);
+        requestLogFilter.onRequest(httpRequest);
+
+        // then
+        assertThat(requestLogFilter.verify(
+                        verification()
+                                .withRequest(
+                                        new HttpRequest()
+                                                .withPath("some_path")
+                                )
+                                .withTimes(exactly(2)),
+                        verification()
+                                .withRequest(
+                                        new HttpRequest()
+                                                .withPath("some_other_path")
+                                )
+                                .withTimes(exactly(1)),
+                        verification()
+                                .withRequest(
+                                        new HttpRequest()
+                                                .withPath("some_unknown_path")
+                                )
+                                .withTimes(exactly(0))
+                ),
+                is(""));
+    }
+
+    @Test
+    public void shouldFailBatchVerificationWithFirstFailure() {
+        // given
+        HttpRequest httpRequest = new HttpRequest().withPath("some_path");
+        RequestLogFilter requestLogFilter = new RequestLogFilter();
+
+        // when
+        requestLogFilter.onRequest(httpRequest);
+
+        // then
+        assertThat(requestLogFilter.verify(
+                        verification()
+                                .withRequest(
+                                        new HttpRequest()
+                                                .withPath("some_path")
+                                ),
+                        verification()
+                                .withRequest(
+                                        new HttpRequest()
+                                                .withPath("some_other_path")
+                                ),
+                        verification()
+                                .withRequest(
+                                        new HttpRequest()
+                                                .withPath("some_path")
+                                )
+                                .withTimes(exactly(2))
+                ),
+                is("Request not found at least once, expected:<{" + NEW_LINE +
+                        "  \"path\" : \"some_other_path\"" + NEW_LINE +
+                        "}> but was:<{" + NEW_LINE +
+                        "  \"path\" : \"some_path\"" + NEW_LINE +
+                        "}>"));
+    }
+
+    @Test
+    public void shouldVerifyRegisteredCounterBeyondRequestLogSize() {
+        // given
+        ConfigurationProperties.requestLogSize(2);
+        RequestLogFilter requestLogFilter;
+        try {
+            requestLogFilter = new RequestLogFilter();
+        } finally {
+            System.clearProperty("mockserver.requestLogSize");
+        }
+        requestLogFilter.registerVerificationCounter(new HttpRequest().withPath("some_path"));
+
+        // when
+        for (int i = 0; i < 10; i++) {
+            requestLogFilter.onRequest(new HttpRequest().withPath("some_path"));
+            requestLogFilter.onRequest(new HttpRequest().withPath("some_other_path"));
+        }
+
+        // then - counted requests are exact, other requests are limited to the request log
+        assertThat(requestLogFilter.verify(
+                        verification()
+                                .withRequest(
+                                        new HttpRequest()
+                                                .withPath("some_path")
+                                )
+                                .withTimes(exactly(10))
+                ),
+                is(""));
+        assertThat(requestLogFilter.verify(
+                        verification()
+                                .withRequest(
+                                        new HttpRequest()
+                                                .withPath("some_path")
+                                )
+                                .withTimes(exactly(10)),
+                        verification()
+                                .withRequest(
+                                        new HttpRequest()
+                                                .withPath("some_other_path")
+                                )
+                                .withTimes(exactly(1))
+                ),
+                is(""));
+    }
+
+    @Test
+    public void shouldResetRegisteredCounter() {
+        // given
+        RequestLogFilter requestLogFilter = new RequestLogFilter();
+        requestLogFilter.registerVerificationCounter(new HttpRequest().withPath("some_path"));
+        requestLogFilter.onRequest(new HttpRequest().withPath("some_path"));
+
+        // when
+        requestLogFilter.clear(new HttpRequest().withPath("some_path"));
+        requestLogFilter.onRequest(new HttpRequest().withPath("some_path"));
+
+        // then
+        assertThat(requestLogFilter.verify(
+                        verification()
+                                .withRequest(
+                                        new HttpRequest()
+                                                .withPath("some_path")
+                                )
+                                .withTimes(exactly(1))
+                ),
+                is(""));
+
+        // when
+        requestLogFilter.reset();
+        requestLogFilter.onRequest(new HttpRequest().withPath("some_path"));
+        requestLogFilter.onRequest(new HttpRequest().withPath("some_path"));
+
+        // then - the counter is removed so the request log is verified
+        assertThat(requestLogFilter.verify(
+                        verification()
+                                .withRequest(
+                                        new HttpRequest()
+                                                .withPath("some_path")
+                                )
+                                .withTimes(exactly(2))
+                ),
+                is(""));
+    }
+
+    @Test
+    public void shouldResetEveryRegisteredCounterMatchingClearedRequest() {
+        // given
+        RequestLogFilter requestLogFilter = new RequestLogFilter();
+        requestLogFilter.registerVerificationCounter(new HttpRequest().withMethod("GET").withPath("some_path"));
+        requestLogFilter.registerVerificationCounter(new HttpRequest().withMethod("POST").withPath("some_path"));
+        requestLogFilter.registerVerificationCounter(new HttpRequest().withPath("some_other_path"));
+        requestLogFilter.onRequest(new HttpRequest().withMethod("GET").withPath("some_path"));
+        requestLogFilter.onRequest(new HttpRequest().withMethod("POST").withPath("some_path"));
+        requestLogFilter.onRequest(new HttpRequest().withPath("some_other_path"));
+
+        // when
+        requestLogFilter.clear(new HttpRequest().withPath("some_path"));
+
+        // then
+        assertThat(requestLogFilter.verify(
+                        verification()
+                                .withRequest(
+                                        new HttpRequest()
+                                                .withMethod("GET")
+                                                .withPath("some_path")
+                                )
+                                .withTimes(exactly(0))
+                ),
+                is(""));
+        assertThat(requestLogFilter.verify(
+                        verification()
+                                .withRequest(
+                                        new HttpRequest()
+                                                .withMethod("POST")
+                                                .withPath("some_path")
+                                )
+                                .withTimes(exactly(0))
+                ),
+                is(""));
+        assertThat(requestLogFilter.verify(
+                        verification()
+                                .withRequest(
+                                        new HttpRequest()
+                                                .withPath("some_other_path")
+                                )
+                                .withTimes(exactly(1))
+                ),
+                is(""));
+    }
+
+    @Test
+    public void shouldVerifyRegisteredCounterAfterSomeCountedRequestsAreCleared() {
+        // given
+        RequestLogFilter requestLogFilter = new RequestLogFilter();
+        requestLogFilter.registerVerificationCounter(new HttpRequest().withMethod("POST").withPath("/orders"));
+        requestLogFilter.onRequest(new HttpRequest().withMethod("POST").withPath("/orders").withBody("A"));
+        requestLogFilter.onRequest(new HttpRequest().withMethod("POST").withPath("/orders").withBody("B"));
+
+        // when
+        requestLogFilter.clear(new HttpRequest().withMethod("POST").withPath("/orders").withBody("A"));
+        requestLogFilter.onRequest(new HttpRequest().withMethod("POST").withPath("/orders").withBody("C"));
+
+        // then - only the request that wasn't cleared and the request received after the clear are counted
+        assertThat(requestLogFilter.verify(
+                        verification()
+                                .withRequest(
+                                        new HttpRequest()
+                                                .withMethod("POST")
+                                                .withPath("/orders")
+                                )
+                                .withTimes(exactly(2))
+                ),
+                is(""));
+    }
 }
@@ -0,0 +1,136 @@
+package org.mockserver.filters;
+
+import org.junit.Test;
+import org.mockserver.collections.RingBuffer;
+import org.mockserver.matchers.HttpRequestMatcher;
+import org.mockserver.model.HttpRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.Not.not;
+
+/**
+ * @author jamesdbloom
+ */
+public class RequestLogIndexTest {
+
+    @Test
+    public void shouldNarrowCandidatesByMethodPathAndHost() {
+        // given
+        RingBuffer<HttpRequest> requestLog = new RingBuffer<HttpRequest>(10);
+        RequestLogIndex requestLogIndex = new RequestLogIndex(requestLog);
+        HttpRequest getSomePath = request().withMethod("GET").withPath("/some/path").withHeader("Host", "localhost");
+        HttpRequest postSomePath = request().withMethod("POST").withPath("/some/path").withHeader("Host", "example.com");
+        HttpRequest getOtherPath = request().withMethod("GET").withPath("/other/path").withHeader("host", "LOCALHOST");
+        requestLog.add(getSomePath);
+        requestLog.add(postSomePath);
+        requestLog.add(getOtherPath);
+
+        // then
+        assertEquals(Arrays.asList(getSomePath, postSomePath), requestLogIndex.candidates(request().withPath("/some/path")));
+        assertEquals(Arrays.asList(getSomePath, getOtherPath), requestLogIndex.candidates(request().withMethod("get")));
+        assertEquals(Collections.singletonList(postSomePath), requestLogIndex.candidates(request().withMethod("POST").withPath("/some/path")));
+        // example.com contains a regex character so it is always a candidate for the Host header
+        assertEquals(Arrays.asList(getSomePath, postSomePath, getOtherPath), requestLogIndex.candidates(request().withHeader("Host", "localhost")));
+        assertEquals(Arrays.asList(getSomePath, postSomePath, getOtherPath), requestLogIndex.candidates(request().withPath("/some/.*")));
+        assertEquals(Arrays.asList(getSomePath, postSomePath, getOtherPath), requestLogIndex.candidates(not(request().withPath("/some/path"))));
+        assertEquals(Collections.<HttpRequest>emptyList(), requestLogIndex.candidates(request().withPath("/unknown")));
+    }
+
+    @Test
+    public void shouldAlwaysIncludeLoggedRequestsWithRegexValues() {
+        // given
+        RingBuffer<HttpRequest> requestLog = new RingBuffer<HttpRequest>(10);
+        RequestLogIndex requestLogIndex = new RequestLogIndex(requestLog);
+        HttpRequest regexPath = request().withPath("/file.txt");
+        HttpRequest emptyPath = request();
+        requestLog.add(request().withPath("/some/path"));
+        requestLog.add(regexPath);
+        requestLog.add(emptyPath);
+
+        // then
+        assertEquals(Arrays.asList(regexPath, emptyPath), requestLogIndex.candidates(request().withPath("/fileXtxt")));
+    }
+
+    @Test
+    public void shouldPruneEvictedRemovedAndClearedRequests() {
+        // given
+        RingBuffer<HttpRequest> requestLog = new RingBuffer<HttpRequest>(2);
+        RequestLogIndex requestLogIndex = new RequestLogIndex(requestLog);
+        HttpRequest first = request().withPath("/some/path");
+        HttpRequest second = request().withPath("/some/path");
+        HttpRequest third = request().withPath("/some/path");
+        requestLog.add(first);
+        assertEquals(Collections.singletonList(first), requestLogIndex.candidates(request().withPath("/some/path")));
+
+        // when
+        requestLog.add(second);
+        requestLog.add(third);
+
+        // then
+        assertEquals(Arrays.asList(second, third), requestLogIndex.candidates(request().withPath("/some/path")));
+
+        // when
+        requestLog.remove(1, second);
+
+        // then
+        assertEquals(Collections.singletonList(third), requestLogIndex.candidates(request().withPath("/some/path")));
+
+        // when
+        requestLog.clear();
+
+        // then
+        assertEquals(Collections.<HttpRequest>emptyList(), requestLogIndex.candidates(request().withPath("/some/path")));
+    }
+
+    @Test
+    public void shouldReturnSameMatchesAsFullScan() {
+        // given
+        Random random = new Random(42);
+        String[] methods = {"GET", "get", "POST", "", "G.T"};
+        String[] paths = {"/some/path", "/Some/Path", "/other/path", "/file.txt", "", "/some/.*"};
+        String[] hosts = {null, "localhost", "LocalHost", "example.com", "other"};
+        RingBuffer<HttpRequest> requestLog = new RingBuffer<HttpRequest>(50);
+        RequestLogIndex requestLogIndex = new RequestLogIndex(requestLog);
+
+        for (int i = 0; i < 500; i++) {
+            // when
+            requestLog.add(randomRequest(random, methods, paths, hosts));
+            if (random.nextInt(50) == 0) {
+                requestLog.clear();
+            }
+            HttpRequest requestToMatch = randomRequest(random, methods, paths, hosts);
+            HttpRequestMatcher httpRequestMatcher = new HttpRequestMatcher(requestToMatch);
+
+            // then
+            assertEquals(matching(httpRequestMatcher, requestLog.snapshot()), matching(httpRequestMatcher, requestLogIndex.candidates(requestToMatch)));
+        }
+    }
+
+    private HttpRequest randomRequest(Random random, String[] methods, String[] paths, String[] hosts) {
+        HttpRequest httpRequest = request()
+                .withMethod(methods[random.nextInt(methods.length)])
+                .withPath(paths[random.nextInt(paths.length)]);
+        String host = hosts[random.nextInt(hosts.length)];
+        if (host != null) {
+            httpRequest.withHeader("Host", host);
+        }
+        return httpRequest;
+    }
+
+    private List<HttpRequest> matching(HttpRequestMatcher httpRequestMatcher, List<HttpRequest> httpRequests) {
+        List<HttpRequest> matchingRequests = new ArrayList<HttpRequest>();
+        for (HttpRequest httpRequest : httpRequests) {
+            if (httpRequestMatcher.matches(httpRequest, false)) {
+                matchingRequests.add(httpRequest);
+            }
+        }
+        return matchingRequests;
+    }
+}
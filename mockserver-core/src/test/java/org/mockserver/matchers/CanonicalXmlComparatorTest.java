@@ -0,0 +1,67 @@
+package org.mockserver.matchers;
+
+import org.junit.Test;
+
+import javax.xml.stream.XMLStreamException;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author jamesdbloom
+ */
+public class CanonicalXmlComparatorTest {
+
+    @Test
+    public void shouldIgnoreInsignificantWhitespaceAndDeclaration() throws XMLStreamException {
+        CanonicalXmlComparator comparator = new CanonicalXmlComparator("<element><key>some_key</key><value>some   value</value></element>");
+
+        assertTrue(comparator.matches("" +
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<element>\n" +
+                "    <key>some_key</key>\n" +
+                "    <value> some\n value </value>\n" +
+                "</element>\n"));
+        assertFalse(comparator.matches("<element><key>some_key</key><value>some_value</value></element>"));
+    }
+
+    @Test
+    public void shouldIgnoreAttributeOrderButNotAttributeValues() throws XMLStreamException {
+        CanonicalXmlComparator comparator = new CanonicalXmlComparator("<element one=\"1\" two=\"2\"/>");
+
+        assertTrue(comparator.matches("<element two=\"2\" one=\"1\"></element>"));
+        assertFalse(comparator.matches("<element two=\"2\" one=\"one\"/>"));
+        assertFalse(comparator.matches("<element one=\"1\"/>"));
+        assertFalse(comparator.matches("<element one=\"1\" two=\"2\" three=\"3\"/>"));
+    }
+
+    @Test
+    public void shouldTreatCDataAsText() throws XMLStreamException {
+        assertTrue(new CanonicalXmlComparator("<element>some &amp; text</element>").matches("<element><![CDATA[some & text]]></element>"));
+    }
+
+    @Test
+    public void shouldCompareNamespacesAndComments() throws XMLStreamException {
+        CanonicalXmlComparator comparator = new CanonicalXmlComparator("<ns:element xmlns:ns=\"urn:one\"><!-- some comment --><ns:key/></ns:element>");
+
+        assertTrue(comparator.matches("<ns:element xmlns:ns=\"urn:one\"><!--some comment--><ns:key/></ns:element>"));
+        assertFalse(comparator.matches("<ns:element xmlns:ns=\"urn:two\"><!-- some comment --><ns:key/></ns:element>"));
+        assertFalse(comparator.matches("<ns:element xmlns:ns=\"urn:one\"><ns:key/></ns:element>"));
+    }
+
+    @Test
+    public void shouldNotMatchDifferentStructureOrInvalidXml() throws XMLStreamException {
+        CanonicalXmlComparator comparator = new CanonicalXmlComparator("<element><key>some_key</key></element>");
+
+        assertFalse(comparator.matches("<element><key>some_key</key><value>some_value</value></element>"));
+        assertFalse(comparator.matches("<element><value>some_key</value></element>"));
+        assertFalse(comparator.matches("<element><key>some_key</key>"));
+        assertFalse(comparator.matches("invalid_xml"));
+        assertFalse(comparator.matches(""));
+    }
+
+    @Test(expected = XMLStreamException.class)
+    public void shouldRejectInvalidExpectedXml() throws XMLStreamException {
+        new CanonicalXmlComparator("invalid_xml");
+    }
+}
@@ -0,0 +1,122 @@
+package org.mockserver.matchers;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockserver.configuration.ConfigurationProperties;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author jamesdbloom
+ */
+public class ClassifiedStringTest {
+
+    private static final String[] FRAGMENTS = {"a", "A", "b", "/", "-", "1", ".", "*", ".*", "+", "[a-z]", "(a|b)", "?", "\n", "Ä", "ä", "\\"};
+
+    @After
+    public void resetBidirectionalRegexMatching() {
+        System.clearProperty("mockserver.bidirectionalRegexMatching");
+    }
+
+    @Test
+    public void shouldClassifyStrings() {
+        assertThat(new ClassifiedString("/some/path", true).getType(), is(ClassifiedString.Type.LITERAL));
+        assertThat(new ClassifiedString("", true).getType(), is(ClassifiedString.Type.LITERAL));
+        assertThat(new ClassifiedString("/some/.*", true).getType(), is(ClassifiedString.Type.PREFIX));
+        assertThat(new ClassifiedString(".*", true).getType(), is(ClassifiedString.Type.PREFIX));
+        assertThat(new ClassifiedString("/some/.*/path", true).getType(), is(ClassifiedString.Type.REGEX));
+        assertThat(new ClassifiedString("/some/[0-9]+", true).getType(), is(ClassifiedString.Type.REGEX));
+    }
+
+    @Test
+    public void shouldMatchSameAsRegexInBothDirections() {
+        Random random = new Random(1234);
+        for (int i = 0; i < 20000; i++) {
+            String matcher = randomString(random);
+            String matched = random.nextInt(4) == 0 ? matcher.toUpperCase() : randomString(random);
+            boolean ignoreCase = random.nextBoolean();
+
+            assertThat("[" + matcher + "] vs [" + matched + "]", new ClassifiedString(matcher, true).matches(matched, ignoreCase), is(matchesInBothDirections(matcher, matched, ignoreCase)));
+        }
+    }
+
+    @Test
+    public void shouldOnlyMatchForwardsWhenNotBidirectional() {
+        // literal
+        assertTrue(new ClassifiedString("/some/path", false).matches("/some/path", false));
+        assertTrue(new ClassifiedString("Content-Type", false).matches("content-type", true));
+        assertFalse(new ClassifiedString("/some/path", false).matches("/some/.*", false));
+
+        // prefix
+        assertTrue(new ClassifiedString("/some/.*", false).matches("/some/path", false));
+        assertTrue(new ClassifiedString("/some/.*", false).matches("/SOME/path", true));
+        assertFalse(new ClassifiedString("/some/.*", false).matches("/other/path", false));
+        assertFalse(new ClassifiedString("/some/.*", false).matches("/some/pa\nth", false));
+
+        // regex
+        assertTrue(new ClassifiedString("/some/[0-9]+", false).matches("/some/123", false));
+        assertFalse(new ClassifiedString("/some/[0-9]+", false).matches("/some/abc", false));
+        assertFalse(new ClassifiedString("/some/123", false).matches("/some/[0-9]+", false));
+    }
+
+    @Test
+    public void shouldReadBidirectionalRegexMatchingWhenMatcherCreated() {
+        // given
+        ConfigurationProperties.bidirectionalRegexMatching(false);
+
+        // then
+        assertFalse(new RegexStringMatcher("/some/path").matches("/some/.*"));
+        assertTrue(new RegexStringMatcher("/some/.*").matches("/some/path"));
+
+        // given
+        ConfigurationProperties.bidirectionalRegexMatching(true);
+
+        // then
+        assertTrue(new RegexStringMatcher("/some/path").matches("/some/.*"));
+    }
+
+    private static String randomString(Random random) {
+        StringBuilder value = new StringBuilder();
+        int length = random.nextInt(5);
+        for (int i = 0; i < length; i++) {
+            value.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+        }
+        return value.toString();
+    }
+
+    /**
+     * The original matching algorithm, which matches both strings as regexes in both directions
+     */
+    private static boolean matchesInBothDirections(String matcher, String matched, boolean ignoreCase) {
+        if (matcher == null || matcher.isEmpty()) {
+            return true;
+        } else if (matched != null) {
+            if (matched.equals(matcher)
+                    || regexMatches(matcher, matched)
+                    || regexMatches(matched, matcher)) {
+                return true;
+            }
+            if (ignoreCase) {
+                return matched.equalsIgnoreCase(matcher)
+                        || regexMatches(matcher.toLowerCase(), matched.toLowerCase())
+                        || regexMatches(matched.toLowerCase(), matcher.toLowerCase());
+            }
+        }
+        return false;
+    }
+
+    private static boolean regexMatches(String regex, String matched) {
+        try {
+            return Pattern.compile(regex).matcher(matched).matches();
+        } catch (PatternSyntaxException pse) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.mockserver.matchers;
+
+import org.junit.Test;
+import org.mockserver.model.HttpRequest;
+
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.Not.not;
+
+/**
+ * @author jamesdbloom
+ */
+public class HttpRequestMatcherNetworkTest {
+
+    @Test
+    public void shouldShareEqualConditions() {
+        // given
+        HttpRequestMatcher first = new HttpRequestMatcher(request().withPath("/some/path").withHeader("Content-Type", "application/json").withSecure(true));
+        HttpRequestMatcher second = new HttpRequestMatcher(request().withPath("/other/path").withHeader("Content-Type", "application/json").withSecure(true));
+
+        // when
+        HttpRequestMatcherNetwork httpRequestMatcherNetwork = new HttpRequestMatcherNetwork(Arrays.asList(first, second));
+
+        // then - keep alive, ssl, method, query string parameters, headers and cookies are shared, path is not
+        assertThat(httpRequestMatcherNetwork.numberOfConditions(), is(8));
+    }
+
+    @Test
+    public void shouldShareConditionsWithAddedRequestMatchers() {
+        // given
+        HttpRequestMatcher first = new HttpRequestMatcher(request().withPath("/some/path").withHeader("Content-Type", "application/json").withSecure(true));
+        HttpRequestMatcher second = new HttpRequestMatcher(request().withPath("/other/path").withHeader("Content-Type", "application/json").withSecure(true));
+        HttpRequestMatcherNetwork httpRequestMatcherNetwork = new HttpRequestMatcherNetwork(Arrays.asList(first));
+
+        // when
+        HttpRequestMatcherNetwork withSecond = httpRequestMatcherNetwork.with(Arrays.asList(second));
+
+        // then
+        assertThat(withSecond.numberOfConditions(), is(8));
+        assertThat(withSecond.numberOfRequestMatchers(), is(2));
+        assertThat(httpRequestMatcherNetwork.numberOfConditions(), is(7));
+        assertTrue(withSecond.evaluate(request().withPath("/other/path").withHeader("content-type", "application/json").withSecure(true)).matches(second));
+    }
+
+    @Test
+    public void shouldMatchSameAsRequestMatcher() {
+        // given
+        HttpRequestMatcher jsonPath = new HttpRequestMatcher(request().withPath("/some/path").withHeader("Content-Type", "application/json"));
+        HttpRequestMatcher jsonOtherPath = new HttpRequestMatcher(request().withPath("/other/path").withHeader("Content-Type", "application/json"));
+        HttpRequestMatcher notJsonPath = new HttpRequestMatcher(not(request().withPath("/some/path").withHeader("Content-Type", "application/json")));
+        HttpRequestMatcherNetwork.Evaluation evaluation = new HttpRequestMatcherNetwork(Arrays.asList(jsonPath, jsonOtherPath, notJsonPath))
+                .evaluate(request().withPath("/some/path").withHeader("content-type", "application/json"));
+
+        // then
+        assertTrue(evaluation.matches(jsonPath));
+        assertFalse(evaluation.matches(jsonOtherPath));
+        assertFalse(evaluation.matches(notJsonPath));
+        assertTrue(evaluation.matches(new HttpRequestMatcher(request().withPath("/some/.*"))));
+    }
+
+    @Test
+    public void shouldMatchRequestMatchersNotInNetwork() {
+        // given
+        HttpRequest httpRequest = request().withPath("/some/path");
+
+        // then
+        assertTrue(new HttpRequestMatcherNetwork(Arrays.<HttpRequestMatcher>asList()).evaluate(httpRequest).matches(new HttpRequestMatcher(request().withPath("/some/path"))));
+        assertFalse(new HttpRequestMatcherNetwork(Arrays.<HttpRequestMatcher>asList()).evaluate(httpRequest).matches(new HttpRequestMatcher(request().withPath("/other/path"))));
+    }
+}
@@ -1,9 +1,12 @@
 package org.mockserver.matchers;
 
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
 import com.google.common.base.Charsets;
 import org.junit.Test;
 import org.mockserver.client.serialization.model.*;
 import org.mockserver.model.*;
+import org.slf4j.LoggerFactory;
 
 import static junit.framework.TestCase.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -63,6 +66,34 @@ public class HttpRequestMatcherTest {
         assertTrue(not(new HttpRequestMatcher(org.mockserver.model.Not.not(new HttpRequest().withMethod("HEAD")))).matches(org.mockserver.model.Not.not(new HttpRequest().withMethod("OPTIONS"))));
     }
 
+    @Test
+    public void shouldReturnSameResultWithAndWithoutLoggingMatchResults() {
+        HttpRequest[] requests = new HttpRequest[]{
+                new HttpRequest().withMethod("HEAD").withPath("/some_path").withBody(json("{ \"some_field\": \"some_value\" }")),
+                new HttpRequest().withMethod("HEAD").withPath("/some_path").withBody("{ \"some_field\": \"some_value\" }"),
+                new HttpRequest().withMethod("HEAD").withPath("/some_other_path").withBody("{ \"some_field\": \"some_value\" }"),
+                new HttpRequest().withMethod("OPTIONS").withPath("/some_path").withBody("{ \"some_field\": \"some_other_value\" }"),
+                new HttpRequest().withMethod("HEAD").withPath("/some_path").withBody("{ \"some_field\": \"some_other_value\" }").withKeepAlive(true),
+                org.mockserver.model.Not.not(new HttpRequest().withMethod("HEAD").withPath("/some_path"))
+        };
+        Logger logger = (Logger) LoggerFactory.getLogger(HttpRequestMatcher.class);
+        Level originalLevel = logger.getLevel();
+        try {
+            logger.setLevel(Level.INFO);
+            for (HttpRequest matcherRequest : requests) {
+                HttpRequestMatcher httpRequestMatcher = new HttpRequestMatcher(matcherRequest);
+                HttpRequestMatcher nottedHttpRequestMatcher = not(new HttpRequestMatcher(matcherRequest));
+                for (HttpRequest matchedRequest : requests) {
+                    assertEquals(httpRequestMatcher.matches(matchedRequest, true), httpRequestMatcher.matches(matchedRequest, false));
+                    assertEquals(httpRequestMatcher.matchesIncomingRequest(matchedRequest, true), httpRequestMatcher.matchesIncomingRequest(matchedRequest, false));
+                    assertEquals(nottedHttpRequestMatcher.matches(matchedRequest, true), nottedHttpRequestMatcher.matches(matchedRequest, false));
+                }
+            }
+        } finally {
+            logger.setLevel(originalLevel);
+        }
+    }
+
     @Test
     public void matchesMatchingKeepAlive() {
         assertTrue(new HttpRequestMatcher(new HttpRequest().withKeepAlive(true)).matches(new HttpRequest().withKeepAlive(true)));
@@ -302,6 +333,35 @@ public class HttpRequestMatcherTest {
         ));
     }
 
+    @Test
+    public void incomingRequestBodyIsNotMatchedAsParameterBodyDTO() {
+        assertFalse(new HttpRequestMatcher(
+                new HttpRequest().withBody(params(
+                        new Parameter("nameOne", "valueOne"),
+                        new Parameter("nameTwo", "valueTwo")
+                ))
+        ).matchesIncomingRequest(
+                new HttpRequest().withBody(new ParameterBodyDTO(params(
+                        new Parameter("nameOne", "valueOne"),
+                        new Parameter("nameTwo", "valueTwo")
+                )).toString()),
+                false
+        ));
+    }
+
+    @Test
+    public void incomingRequestMatchesParameterBody() {
+        assertTrue(new HttpRequestMatcher(
+                new HttpRequest().withBody(params(
+                        new Parameter("nameOne", "valueOne"),
+                        new Parameter("nameTwo", "valueTwo")
+                ))
+        ).matchesIncomingRequest(
+                new HttpRequest().withBody("nameOne=valueOne&nameTwo=valueTwo"),
+                false
+        ));
+    }
+
     @Test
     public void doesNotMatchIncorrectParameterName() {
         assertFalse(new HttpRequestMatcher(new HttpRequest().withBody(new ParameterBody(new Parameter("name", "value")))).matches(new HttpRequest().withBody(new ParameterBody(new Parameter("name1", "value")))));
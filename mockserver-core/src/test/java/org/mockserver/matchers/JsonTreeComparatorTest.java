@@ -0,0 +1,183 @@
+package org.mockserver.matchers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.Test;
+import org.mockserver.client.serialization.ObjectMapperFactory;
+import org.skyscreamer.jsonassert.JSONCompare;
+import org.skyscreamer.jsonassert.JSONCompareMode;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author jamesdbloom
+ */
+public class JsonTreeComparatorTest {
+
+    private final JsonTreeComparator strict = new JsonTreeComparator(MatchType.STRICT);
+    private final JsonTreeComparator lenient = new JsonTreeComparator(MatchType.ONLY_MATCHING_FIELDS);
+
+    private static JsonNode json(String json) throws IOException {
+        return ObjectMapperFactory.createObjectMapper().readTree(json);
+    }
+
+    @Test
+    public void shouldCompareNumbersByValue() throws IOException {
+        assertTrue(strict.matches(json("{ \"id\": 1 }"), json("{ \"id\": 1.0 }"), null));
+        assertFalse(strict.matches(json("{ \"id\": 1 }"), json("{ \"id\": \"1\" }"), null));
+    }
+
+    @Test
+    public void shouldMatchArraysOfObjectsInAnyOrderWhenNotStrict() throws IOException {
+        JsonNode expected = json("[ { \"id\": 1, \"name\": \"one\" }, { \"id\": 2, \"name\": \"two\" } ]");
+        JsonNode actual = json("[ { \"id\": 2, \"name\": \"two\", \"extra\": true }, { \"id\": 1, \"name\": \"one\" } ]");
+
+        assertTrue(lenient.matches(expected, actual, null));
+        assertFalse(strict.matches(expected, actual, null));
+    }
+
+    @Test
+    public void shouldNotMatchArraysOfDifferentLength() throws IOException {
+        assertFalse(lenient.matches(json("{ \"pets\": [ \"cat\", \"dog\" ] }"), json("{ \"pets\": [ \"cat\", \"dog\", \"dog\" ] }"), null));
+        assertFalse(lenient.matches(json("{ \"pets\": [ \"cat\", \"dog\", \"dog\" ] }"), json("{ \"pets\": [ \"cat\", \"cat\", \"dog\" ] }"), null));
+    }
+
+    @Test
+    public void shouldNotMatchInvalidOrScalarJson() throws IOException {
+        assertFalse(lenient.matches(null, json("{}"), null));
+        assertFalse(lenient.matches(json("{}"), null, null));
+        assertFalse(lenient.matches(json("{}"), json("[]"), null));
+        assertFalse(lenient.matches(json("1"), json("1"), null));
+    }
+
+    @Test
+    public void shouldDescribeFirstDifference() throws IOException {
+        // given
+        StringBuilder difference = new StringBuilder();
+
+        // when
+        boolean result = strict.matches(json("{ \"outer\": { \"inner\": \"some_value\" } }"), json("{ \"outer\": { \"inner\": \"some_other_value\" } }"), difference);
+
+        // then
+        assertThat(result, is(false));
+        assertThat(difference.toString(), containsString("outer.inner"));
+        assertThat(difference.toString(), containsString("some_other_value"));
+    }
+
+    @Test
+    public void shouldMatchSameAsJSONAssert() throws Exception {
+        Random random = new Random(1234);
+        for (int i = 0; i < 5000; i++) {
+            Object expected = randomObject(random, 0);
+            Object actual = random.nextBoolean() ? mutate(random, copy(expected)) : copy(expected);
+            String expectedJson = ObjectMapperFactory.createObjectMapper().writeValueAsString(expected);
+            String actualJson = ObjectMapperFactory.createObjectMapper().writeValueAsString(actual);
+
+            assertThat(expectedJson + " vs " + actualJson,
+                    strict.matches(json(expectedJson), json(actualJson), null),
+                    is(JSONCompare.compareJSON(expectedJson, actualJson, JSONCompareMode.STRICT).passed()));
+            assertThat(expectedJson + " vs " + actualJson,
+                    lenient.matches(json(expectedJson), json(actualJson), null),
+                    is(JSONCompare.compareJSON(expectedJson, actualJson, JSONCompareMode.LENIENT).passed()));
+        }
+    }
+
+    private static Object randomValue(Random random, int depth) {
+        switch (random.nextInt(depth < 3 ? 6 : 4)) {
+            case 0:
+                return random.nextInt(3);
+            case 1:
+                return "value_" + random.nextInt(3);
+            case 2:
+                return random.nextBoolean();
+            case 3:
+                return random.nextInt(3) == 0 ? "" : "other_" + random.nextInt(2);
+            case 4:
+                return randomObject(random, depth + 1);
+            default:
+                List<Object> array = new ArrayList<Object>();
+                int size = random.nextInt(4);
+                boolean objects = random.nextBoolean();
+                for (int i = 0; i < size; i++) {
+                    array.add(objects ? randomObject(random, depth + 1) : randomValue(random, 3));
+                }
+                return array;
+        }
+    }
+
+    private static Map<String, Object> randomObject(Random random, int depth) {
+        Map<String, Object> object = new LinkedHashMap<String, Object>();
+        int size = random.nextInt(4);
+        for (int i = 0; i < size; i++) {
+            object.put("field_" + random.nextInt(4), randomValue(random, depth));
+        }
+        return object;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object copy(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> copy = new LinkedHashMap<String, Object>();
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                copy.put(entry.getKey(), copy(entry.getValue()));
+            }
+            return copy;
+        } else if (value instanceof List) {
+            List<Object> copy = new ArrayList<Object>();
+            for (Object element : (List<Object>) value) {
+                copy.add(copy(element));
+            }
+            return copy;
+        } else {
+            return value;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object mutate(Random random, Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> object = (Map<String, Object>) value;
+            List<String> keys = new ArrayList<String>(object.keySet());
+            switch (random.nextInt(4)) {
+                case 0:
+                    object.put("extra_" + random.nextInt(2), randomValue(random, 3));
+                    break;
+                case 1:
+                    if (!keys.isEmpty()) {
+                        object.remove(keys.get(random.nextInt(keys.size())));
+                    }
+                    break;
+                default:
+                    if (!keys.isEmpty()) {
+                        String key = keys.get(random.nextInt(keys.size()));
+                        object.put(key, mutate(random, object.get(key)));
+                    }
+            }
+            return object;
+        } else if (value instanceof List) {
+            List<Object> array = (List<Object>) value;
+            switch (random.nextInt(3)) {
+                case 0:
+                    Collections.shuffle(array, random);
+                    break;
+                case 1:
+                    array.add(randomValue(random, 3));
+                    break;
+                default:
+                    if (!array.isEmpty()) {
+                        int index = random.nextInt(array.size());
+                        array.set(index, mutate(random, array.get(index)));
+                    }
+            }
+            return array;
+        } else {
+            return randomValue(random, 3);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.mockserver.matchers;
+
+import org.junit.Test;
+import org.mockserver.collections.CaseInsensitiveRegexMultiMap;
+import org.mockserver.model.Header;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.model.KeyToMultiValue;
+import org.mockserver.model.NottableString;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockserver.model.NottableString.not;
+import static org.mockserver.model.NottableString.string;
+
+/**
+ * @author jamesdbloom
+ */
+public class KeyToMultiValueIndexTest {
+
+    private static final List<String> KEYS = Arrays.asList("Content-Type", "content-type", "CONTENT-TYPE", "Accept", "X-.*", "x-custom", "", "Accept-.*", "Ä-key");
+    private static final List<String> VALUES = Arrays.asList("application/json", "APPLICATION/JSON", "text/.*", "text/plain", "", "[0-9]+", "123");
+
+    @Test
+    public void shouldOnlyHashPlainAsciiKeys() {
+        assertThat(KeyToMultiValueIndex.literalKey(string("Content-Type")), is("content-type"));
+        assertThat(KeyToMultiValueIndex.literalKey(string("X-.*")), nullValue());
+        assertThat(KeyToMultiValueIndex.literalKey(not("Content-Type")), nullValue());
+        assertThat(KeyToMultiValueIndex.literalKey(string("")), nullValue());
+        assertThat(KeyToMultiValueIndex.literalKey(string("Ä-key")), nullValue());
+    }
+
+    @Test
+    public void shouldMatchKeysIgnoringCaseAndAsRegex() {
+        // given
+        KeyToMultiValueIndex index = new KeyToMultiValueIndex(Arrays.asList(
+                new KeyToMultiValue("content-type", "application/json"),
+                new KeyToMultiValue("X-.*", "some_value")
+        ));
+
+        // then
+        assertTrue(index.containsKeyValue(string("Content-Type"), string("application/.*")));
+        assertTrue(index.containsKeyValue(string("X-Custom"), string("some_value")));
+        assertTrue(index.containsKeyValue(string("Content-.*"), string("application/json")));
+        assertFalse(index.containsKeyValue(string("Content-Type"), string("text/plain")));
+        assertFalse(index.containsKeyValue(string("Accept"), string("application/json")));
+        assertFalse(new KeyToMultiValueIndex(null).containsKeyValue(string("Accept"), string("")));
+    }
+
+    @Test
+    public void shouldMatchClassifiedKeyValues() {
+        // given
+        KeyToMultiValueIndex index = new KeyToMultiValueIndex(Arrays.asList(
+                new KeyToMultiValue("content-type", "application/json"),
+                new KeyToMultiValue("X-.*", "some_value")
+        ));
+        KeyToMultiValueIndex.ClassifiedKeyValue nottedKeyValue = new KeyToMultiValueIndex.ClassifiedKeyValue(not("Content-Type"), string("application/.*"), true);
+
+        // then
+        assertTrue(index.containsKeyValue(new KeyToMultiValueIndex.ClassifiedKeyValue(string("Content-Type"), string("application/.*"), true)));
+        assertTrue(index.containsKeyValue(new KeyToMultiValueIndex.ClassifiedKeyValue(string("X-Custom"), string("some_value"), true)));
+        assertFalse(index.containsKeyValue(new KeyToMultiValueIndex.ClassifiedKeyValue(string("Content-Type"), string("text/plain"), true)));
+        assertFalse(index.containsKeyValue(nottedKeyValue));
+        assertTrue(index.containsKeyValue(nottedKeyValue.withoutNot()));
+    }
+
+    @Test
+    public void shouldMatchSameAsCaseInsensitiveRegexMultiMap() {
+        Random random = new Random(1234);
+        for (int i = 0; i < 5000; i++) {
+            // given
+            List<KeyToMultiValue> expected = randomKeyToMultiValues(random, random.nextInt(3));
+            List<KeyToMultiValue> actual = randomKeyToMultiValues(random, random.nextInt(4));
+            CaseInsensitiveRegexMultiMap expectedMultiMap = KeyToMultiValue.toMultiMap(expected);
+
+            // then
+            assertThat(expected + " vs " + actual,
+                    new MultiValueMapMatcher(expectedMultiMap).matches(actual),
+                    is(KeyToMultiValue.toMultiMap(actual).containsAll(expectedMultiMap)));
+        }
+    }
+
+    @Test
+    public void shouldIndexRequestHeadersOncePerMatchContext() {
+        // given
+        HttpRequest httpRequest = new HttpRequest().withHeader("Accept", "text/plain");
+        MatchContext matchContext = new MatchContext(httpRequest);
+        KeyToMultiValueIndex headerIndex = matchContext.getHeaderIndex();
+
+        // then
+        assertThat(matchContext.getHeaderIndex(), sameInstance(headerIndex));
+        assertTrue(headerIndex.containsKeyValue(string("Accept"), string("text/plain")));
+        assertFalse(headerIndex.containsKeyValue(string("Content-Type"), string("text/plain")));
+
+        // when
+        httpRequest.withHeader(new Header("Content-Type", "text/plain"));
+
+        // then
+        assertTrue(new MatchContext(httpRequest).getHeaderIndex().containsKeyValue(string("Content-Type"), string("text/plain")));
+    }
+
+    private static List<KeyToMultiValue> randomKeyToMultiValues(Random random, int size) {
+        List<KeyToMultiValue> keyToMultiValues = new ArrayList<KeyToMultiValue>();
+        for (int i = 0; i < size; i++) {
+            List<NottableString> values = new ArrayList<NottableString>();
+            int numberOfValues = 1 + random.nextInt(2);
+            for (int j = 0; j < numberOfValues; j++) {
+                values.add(randomNottableString(random, VALUES));
+            }
+            keyToMultiValues.add(new KeyToMultiValue(randomNottableString(random, KEYS), values));
+        }
+        return keyToMultiValues;
+    }
+
+    private static NottableString randomNottableString(Random random, List<String> strings) {
+        String value = strings.get(random.nextInt(strings.size()));
+        return random.nextInt(5) == 0 ? not(value) : string(value);
+    }
+}
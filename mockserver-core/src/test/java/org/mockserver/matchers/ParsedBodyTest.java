@@ -0,0 +1,114 @@
+package org.mockserver.matchers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.Test;
+import org.mockserver.client.serialization.model.BodyDTO;
+import org.mockserver.client.serialization.model.XPathBodyDTO;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.model.KeyToMultiValue;
+import org.mockserver.model.Parameter;
+import org.w3c.dom.Document;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.XPathBody.xpath;
+
+/**
+ * @author jamesdbloom
+ */
+public class ParsedBodyTest {
+
+    @Test
+    public void shouldParseBodyDTOOnlyOnce() {
+        // given
+        ParsedBody parsedBody = new MatchContext(request().withBody(new XPathBodyDTO(xpath("/bookstore/book")).toString())).getParsedBody();
+
+        // when
+        BodyDTO bodyDTO = parsedBody.getBodyDTO();
+
+        // then
+        assertThat(bodyDTO, is((BodyDTO) new XPathBodyDTO(xpath("/bookstore/book"))));
+        assertThat(parsedBody.getBodyDTO(), sameInstance(bodyDTO));
+    }
+
+    @Test
+    public void shouldNotParseBodyDTOForNonJsonBody() {
+        assertThat(new MatchContext(request().withBody("some_body")).getParsedBody().getBodyDTO(), nullValue());
+        assertThat(new MatchContext(request().withBody("<some>xml</some>")).getParsedBody().getBodyDTO(), nullValue());
+        assertThat(new MatchContext(request()).getParsedBody().getBodyDTO(), nullValue());
+        assertThat(new MatchContext(request()).getParsedBody().getBodyAsString(), is(""));
+    }
+
+    @Test
+    public void shouldOnlyShareParsedBodyWithinMatchContext() {
+        // given
+        HttpRequest httpRequest = request().withBody("some_body");
+        MatchContext matchContext = new MatchContext(httpRequest);
+
+        // then
+        assertThat(matchContext.getParsedBody(), sameInstance(matchContext.getParsedBody()));
+        assertThat(new MatchContext(httpRequest).getParsedBody(), not(sameInstance(matchContext.getParsedBody())));
+    }
+
+    @Test
+    public void shouldParseJsonOnlyOnce() {
+        // given
+        ParsedBody parsedBody = new MatchContext(request().withBody("{ \"some_field\": \"some_value\" }")).getParsedBody();
+
+        // when
+        JsonNode json = parsedBody.getJson();
+
+        // then
+        assertThat(json.get("some_field").asText(), is("some_value"));
+        assertThat(parsedBody.getJson(), sameInstance(json));
+        assertThat(new MatchContext(request().withBody("some_body")).getParsedBody().getJson(), nullValue());
+    }
+
+    @Test
+    public void shouldParseXmlOnlyOnce() {
+        // given
+        ParsedBody parsedBody = new MatchContext(request().withBody("<element><key>some_key</key></element>")).getParsedBody();
+
+        // when
+        Document xmlDocument = parsedBody.getXmlDocument();
+
+        // then
+        assertThat(xmlDocument.getDocumentElement().getNodeName(), is("element"));
+        assertThat(parsedBody.getXmlDocument(), sameInstance(xmlDocument));
+        assertThat(new MatchContext(request().withBody("some_body")).getParsedBody().getXmlDocument(), nullValue());
+    }
+
+    @Test
+    public void shouldDecodeParametersOnlyOnce() {
+        // given
+        ParsedBody parsedBody = new MatchContext(request().withBody("nameOne=valueOne&nameTwo=valueTwo&nameTwo=valueThree")).getParsedBody();
+
+        // when
+        List<KeyToMultiValue> parameters = parsedBody.getParameters();
+
+        // then
+        assertThat(parameters, contains(
+                (KeyToMultiValue) new Parameter("nameOne", "valueOne"),
+                new Parameter("nameTwo", "valueTwo", "valueThree")
+        ));
+        assertThat(parsedBody.getParameters(), sameInstance(parameters));
+    }
+
+    @Test
+    public void shouldShareParsedXmlBetweenMatchers() {
+        // given
+        MatchContext matchContext = new MatchContext(request().withBody("<element><key>some_key</key><value>some_value</value></element>"));
+
+        // when
+        assertThat(new HttpRequestMatcher(request().withBody(xpath("/element[key = 'some_key']"))).matchesIncomingRequest(matchContext, false), is(true));
+        Document xmlDocument = matchContext.getParsedBody().getXmlDocument();
+
+        // then
+        assertThat(new HttpRequestMatcher(request().withBody(xpath("/element[value = 'some_value']"))).matchesIncomingRequest(matchContext, false), is(true));
+        assertThat(new HttpRequestMatcher(request().withBody(xpath("/element[value = 'some_other_value']"))).matchesIncomingRequest(matchContext, false), is(false));
+        assertThat(matchContext.getParsedBody().getXmlDocument(), sameInstance(xmlDocument));
+    }
+}
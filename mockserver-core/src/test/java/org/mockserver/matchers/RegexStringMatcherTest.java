@@ -1,8 +1,13 @@
 package org.mockserver.matchers;
 
+import com.google.common.base.Strings;
 import org.junit.Test;
 import org.mockserver.model.NottableString;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockserver.matchers.NotMatcher.not;
@@ -119,4 +124,49 @@ public class RegexStringMatcherTest {
     public void shouldHandleIllegalRegexPatternForTest() {
         assertFalse(new RegexStringMatcher("some_value").matches("/{}"));
     }
+
+    @Test
+    public void shouldCacheCompiledPatterns() {
+        assertThat(RegexStringMatcher.compile("some_[a-z]+"), sameInstance(RegexStringMatcher.compile("some_[a-z]+")));
+    }
+
+    @Test
+    public void shouldCacheInvalidPatterns() {
+        // given
+        String invalidRegex = "some_invalid_[a-z";
+        assertFalse(RegexStringMatcher.isCached(invalidRegex));
+
+        // when
+        assertThat(RegexStringMatcher.compile(invalidRegex), nullValue());
+
+        // then
+        assertTrue(RegexStringMatcher.isCached(invalidRegex));
+        assertThat(RegexStringMatcher.compile(invalidRegex), nullValue());
+    }
+
+    @Test
+    public void shouldNotCacheLongPatterns() {
+        // given
+        String longRegex = Strings.repeat("a", 1025) + "[a-z]+";
+
+        // when
+        assertThat(RegexStringMatcher.compile(longRegex), notNullValue());
+
+        // then
+        assertFalse(RegexStringMatcher.isCached(longRegex));
+    }
+
+    @Test
+    public void shouldMatchInvalidRegexAsExactString() {
+        assertTrue(new RegexStringMatcher("some_[a-z").matches("some_[a-z"));
+        assertFalse(new RegexStringMatcher("some_[a-z").matches("some_value"));
+        assertFalse(new RegexStringMatcher("some_value").matches("some_[a-z"));
+    }
+
+    @Test
+    public void shouldMatchMatchedStringAsRegex() {
+        assertTrue(new RegexStringMatcher("some_value").matches("some_[a-z]+"));
+        assertTrue(RegexStringMatcher.matches("SOME_VALUE", "some_[a-z]+", true));
+        assertFalse(RegexStringMatcher.matches("SOME_VALUE", "some_[a-z]+", false));
+    }
 }
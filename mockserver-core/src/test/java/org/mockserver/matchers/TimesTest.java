@@ -2,6 +2,11 @@ package org.mockserver.matchers;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 
@@ -31,4 +36,55 @@ public class TimesTest {
         times.decrement().decrement();
         assertThat(times.greaterThenZero(), is(false));
     }
+
+    @Test
+    public void shouldConsumeCorrectly() {
+        // given
+        Times times = Times.exactly(2);
+
+        // then
+        assertThat(times.tryConsume(), is(true));
+        assertThat(times.tryConsume(), is(true));
+        assertThat(times.tryConsume(), is(false));
+        assertThat(times.getRemainingTimes(), is(0));
+        assertThat(Times.unlimited().tryConsume(), is(true));
+        assertThat(Times.unlimited().setNotUnlimitedResponses().tryConsume(), is(true));
+    }
+
+    @Test
+    public void shouldConsumeExactlyRemainingTimesWhenConcurrent() throws Exception {
+        // given
+        final int numberOfThreads = 16;
+        final int consumeAttemptsPerThread = 10000;
+        final Times times = Times.exactly(50000);
+        final AtomicInteger consumed = new AtomicInteger();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+
+        // when
+        for (int i = 0; i < numberOfThreads; i++) {
+            futures.add(executorService.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    startLatch.await();
+                    for (int j = 0; j < consumeAttemptsPerThread; j++) {
+                        if (times.tryConsume()) {
+                            consumed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        startLatch.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executorService.shutdown();
+
+        // then
+        assertThat(consumed.get(), is(50000));
+        assertThat(times.getRemainingTimes(), is(0));
+    }
 }
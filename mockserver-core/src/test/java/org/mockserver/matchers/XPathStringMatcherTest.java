@@ -1,7 +1,12 @@
 package org.mockserver.matchers;
 
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+
 import static org.junit.Assert.*;
 import static org.mockserver.matchers.NotMatcher.not;
 
@@ -87,6 +92,22 @@ public class XPathStringMatcherTest {
         assertFalse(new XPathStringMatcher("some_value").matches(""));
     }
 
+    @Test
+    public void shouldNotResolveExternalEntities() throws IOException {
+        // given
+        File secretFile = File.createTempFile("secret", ".txt");
+        secretFile.deleteOnExit();
+        Files.write("some_secret", secretFile, Charsets.UTF_8);
+        String matched = "" +
+                "<?xml version=\"1.0\"?>" +
+                "<!DOCTYPE element [<!ENTITY secret SYSTEM \"" + secretFile.toURI() + "\">]>" +
+                "<element>&secret;</element>";
+
+        // then
+        assertFalse(new XPathStringMatcher("/element[contains(., 'some_secret')]").matches(matched));
+        assertTrue(new XPathStringMatcher("/element").matches(matched));
+    }
+
     @Test
     public void showHaveCorrectEqualsBehaviour() {
         assertEquals(new XPathStringMatcher("some_value"), new XPathStringMatcher("some_value"));
@@ -0,0 +1,60 @@
+package org.mockserver.matchers;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares xpath matching using the per thread document builders and xpath expressions with the previous approach of
+ * creating a new document builder factory and xpath for every match, run using the main method
+ *
+ * @author jamesdbloom
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class XmlMatcherBenchmark {
+
+    private static final String XPATH = "/element[key = 'some_key' and value = 'some_value']";
+    private static final String XML = "" +
+            "<element>" +
+            "   <key>some_key</key>" +
+            "   <value>some_value</value>" +
+            "</element>";
+
+    private XPathStringMatcher xPathStringMatcher;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(XmlMatcherBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Setup
+    public void createMatcher() {
+        xPathStringMatcher = new XPathStringMatcher(XPATH);
+    }
+
+    @Benchmark
+    public boolean pooled() {
+        return xPathStringMatcher.matches(XML);
+    }
+
+    @Benchmark
+    public boolean newFactoryPerMatch() throws Exception {
+        return (Boolean) XPathFactory.newInstance().newXPath().compile(XPATH).evaluate(
+                DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new InputSource(new StringReader(XML))),
+                XPathConstants.BOOLEAN
+        );
+    }
+}
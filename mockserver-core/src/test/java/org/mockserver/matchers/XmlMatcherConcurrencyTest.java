@@ -0,0 +1,81 @@
+package org.mockserver.matchers;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockserver.character.Character.NEW_LINE;
+
+/**
+ * @author jamesdbloom
+ */
+public class XmlMatcherConcurrencyTest {
+
+    private static final String XML_SCHEMA = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + NEW_LINE +
+            "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" elementFormDefault=\"qualified\" attributeFormDefault=\"unqualified\">" + NEW_LINE +
+            "    <xs:element name=\"element\">" + NEW_LINE +
+            "        <xs:complexType>" + NEW_LINE +
+            "            <xs:sequence>" + NEW_LINE +
+            "                <xs:element name=\"key\" type=\"xs:string\"/>" + NEW_LINE +
+            "                <xs:element name=\"value\" type=\"xs:int\"/>" + NEW_LINE +
+            "            </xs:sequence>" + NEW_LINE +
+            "        </xs:complexType>" + NEW_LINE +
+            "    </xs:element>" + NEW_LINE +
+            "</xs:schema>";
+
+    private static String element(int key, String value) {
+        return "<element><key>key_" + key + "</key><value>" + value + "</value></element>";
+    }
+
+    @Test
+    public void shouldMatchXmlCorrectlyWhenConcurrent() throws Exception {
+        // given
+        final int numberOfThreads = 16;
+        final int requestsPerThread = 500;
+        final XPathStringMatcher xPathStringMatcher = new XPathStringMatcher("/element[key = 'key_1']");
+        final XmlStringMatcher xmlStringMatcher = new XmlStringMatcher(element(1, "1"));
+        final XmlSchemaMatcher xmlSchemaMatcher = new XmlSchemaMatcher(XML_SCHEMA);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+        List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+
+        // when
+        for (int i = 0; i < numberOfThreads; i++) {
+            futures.add(executorService.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    startLatch.await();
+                    int incorrectResults = 0;
+                    for (int j = 0; j < requestsPerThread; j++) {
+                        int key = j % 3;
+                        String value = j % 2 == 0 ? "1" : "not_a_number";
+                        ParsedBody parsedBody = new ParsedBody(element(key, value));
+                        if (xPathStringMatcher.matchesParsedBody(parsedBody) != (key == 1)) {
+                            incorrectResults++;
+                        }
+                        if (xmlStringMatcher.matchesParsedBody(parsedBody) != (key == 1 && value.equals("1"))) {
+                            incorrectResults++;
+                        }
+                        if (xmlSchemaMatcher.matchesParsedBody(parsedBody) != value.equals("1")) {
+                            incorrectResults++;
+                        }
+                    }
+                    return incorrectResults;
+                }
+            }));
+        }
+        startLatch.countDown();
+        int incorrectResults = 0;
+        for (Future<Integer> future : futures) {
+            incorrectResults += future.get(60, TimeUnit.SECONDS);
+        }
+        executorService.shutdown();
+
+        // then
+        assertThat(incorrectResults, is(0));
+    }
+}
@@ -1,9 +1,12 @@
 package org.mockserver.matchers;
 
+import com.google.common.base.Charsets;
+import com.google.common.net.MediaType;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockserver.model.BinaryBody;
 import org.mockserver.validator.XmlSchemaValidator;
 import org.slf4j.Logger;
 
@@ -66,6 +69,16 @@ public class XmlSchemaMatcherTest {
         assertTrue(xmlSchemaMatcher.matches(xml));
     }
 
+    @Test
+    public void shouldMatchParsedBodyFromRawBytesWithDeclaredCharset() {
+        // given
+        byte[] xml = "some_xml".getBytes(Charsets.UTF_16);
+        when(mockXmlSchemaValidator.isValid(xml, Charsets.UTF_16)).thenReturn("");
+
+        // then
+        assertTrue(xmlSchemaMatcher.matchesParsedBody(new ParsedBody(new BinaryBody(xml, MediaType.XML_UTF_8.withCharset(Charsets.UTF_16)))));
+    }
+
     @Test
     public void shouldNotMatchXml() {
         // given
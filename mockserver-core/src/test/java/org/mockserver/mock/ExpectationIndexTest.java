@@ -0,0 +1,347 @@
+package org.mockserver.mock;
+
+import com.google.common.base.Charsets;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockserver.matchers.HttpRequestMatcherNetwork;
+import org.mockserver.matchers.TimeToLive;
+import org.mockserver.matchers.Times;
+import org.mockserver.model.HttpRequest;
+
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockserver.model.BinaryBody.binary;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.Not.not;
+import static org.mockserver.model.NottableString.not;
+import static org.mockserver.model.NottableString.string;
+import static org.mockserver.model.RegexBody.regex;
+import static org.mockserver.model.StringBody.exact;
+
+/**
+ * @author jamesdbloom
+ */
+public class ExpectationIndexTest {
+
+    private ExpectationIndex expectationIndex;
+
+    @Before
+    public void createIndex() {
+        expectationIndex = ExpectationIndex.EMPTY;
+    }
+
+    private Expectation expectation(HttpRequest httpRequest) {
+        Expectation expectation = new Expectation(httpRequest, Times.unlimited(), TimeToLive.unlimited());
+        expectationIndex = expectationIndex.add(expectation);
+        return expectation;
+    }
+
+    @Test
+    public void shouldClassifyLiteralStrings() {
+        assertTrue(ExpectationIndex.isLiteral(string("/some/path")));
+        assertTrue(ExpectationIndex.isLiteral(string("GET")));
+        assertFalse(ExpectationIndex.isLiteral(string("/some/.*")));
+        assertFalse(ExpectationIndex.isLiteral(string("/some/file.json")));
+        assertFalse(ExpectationIndex.isLiteral(not("/some/path")));
+        assertFalse(ExpectationIndex.isLiteral(string("")));
+        assertFalse(ExpectationIndex.isLiteral(null));
+    }
+
+    @Test
+    public void shouldFindLiteralPrefixOfRegex() {
+        assertThat(ExpectationIndex.literalPrefix("/some/.*"), is("/some/"));
+        assertThat(ExpectationIndex.literalPrefix("/some/[0-9]+/path"), is("/some/"));
+        assertThat(ExpectationIndex.literalPrefix("/some/paths?"), is("/some/path"));
+        assertThat(ExpectationIndex.literalPrefix("/some/paths*"), is("/some/path"));
+        assertThat(ExpectationIndex.literalPrefix("/some/paths{0,1}"), is("/some/path"));
+        assertThat(ExpectationIndex.literalPrefix("/some/paths+"), is("/some/paths"));
+        assertThat(ExpectationIndex.literalPrefix("/some/.*|/other/.*"), is(""));
+        assertThat(ExpectationIndex.literalPrefix("(?i)/some/path"), is(""));
+        assertThat(ExpectationIndex.literalPrefix("\\Q/some/path\\E"), is(""));
+    }
+
+    @Test
+    public void shouldSplitRegexIntoSingleSegmentRegexes() {
+        assertThat(ExpectationIndex.pathSegments("/api/v1/accounts/[0-9]+/transactions"), is(new String[]{"", "api", "v1", "accounts", "[0-9]+", "transactions"}));
+        assertThat(ExpectationIndex.pathSegments("/api/(users|groups)/\\d{1,5}/[a-zA-Z_-]*"), is(new String[]{"", "api", "(users|groups)", "\\d{1,5}", "[a-zA-Z_-]*"}));
+        assertThat(ExpectationIndex.pathSegments("/api/.*"), nullValue());
+        assertThat(ExpectationIndex.pathSegments("/api/[^0-9]+"), nullValue());
+        assertThat(ExpectationIndex.pathSegments("/api/[!-9]+"), nullValue());
+        assertThat(ExpectationIndex.pathSegments("/api/\\S+"), nullValue());
+        assertThat(ExpectationIndex.pathSegments("/api/users|/api/groups"), nullValue());
+        assertThat(ExpectationIndex.pathSegments("/api/(users|groups/[0-9]+)"), nullValue());
+        assertThat(ExpectationIndex.pathSegments("/api/{2}"), nullValue());
+        assertThat(ExpectationIndex.pathSegments("(?i)/api/users"), nullValue());
+    }
+
+    @Test
+    public void shouldOnlyReturnRegexPathsWithMatchingSegments() {
+        // given
+        Expectation transactions = expectation(request().withPath("/api/v1/accounts/[0-9]+/transactions"));
+        Expectation anyAccountResource = expectation(request().withPath("/api/v1/accounts/[0-9]+/[a-z]+"));
+        expectation(request().withPath("/api/v1/accounts/[0-9]+"));
+        expectation(request().withPath("/api/v2/accounts/[0-9]+/transactions"));
+        Expectation anyVersion = expectation(request().withPath("/api/v[0-9]/accounts/[0-9]+/transactions"));
+
+        // then
+        assertThat(expectationIndex.candidates(request().withPath("/api/v1/accounts/123/transactions")), is(Arrays.asList(transactions, anyAccountResource, anyVersion)));
+        assertThat(expectationIndex.candidates(request().withPath("/api/v1/accounts/abc/transactions")), is(Collections.<Expectation>emptyList()));
+        assertThat(expectationIndex.candidates(request().withPath("/api/v1/accounts/123/transactions/456")), is(Collections.<Expectation>emptyList()));
+
+        // when
+        expectationIndex = expectationIndex.remove(anyAccountResource);
+
+        // then
+        assertThat(expectationIndex.candidates(request().withPath("/api/v1/accounts/123/transactions")), is(Arrays.asList(transactions, anyVersion)));
+    }
+
+    @Test
+    public void shouldOnlyReturnRegexPathsWithPrefixOfRequestPath() {
+        // given
+        Expectation somePaths = expectation(request().withPath("/some/.*"));
+        expectation(request().withPath("/other/.*"));
+        Expectation someNumericPaths = expectation(request().withPath("/some/[0-9]+"));
+        expectation(request().withPath("/some/path/[0-9]+"));
+        Expectation noPrefix = expectation(request().withPath(".*/123"));
+
+        // then
+        assertThat(expectationIndex.candidates(request().withMethod("GET").withPath("/some/123")), is(Arrays.asList(somePaths, someNumericPaths, noPrefix)));
+        assertThat(expectationIndex.candidates(request().withPath("/some/123")), is(Arrays.asList(somePaths, someNumericPaths, noPrefix)));
+        assertThat(expectationIndex.candidates(request().withPath("/")), is(Arrays.asList(noPrefix)));
+    }
+
+    @Test
+    public void shouldRemoveRegexPaths() {
+        // given
+        Expectation first = expectation(request().withPath("/some/.*"));
+        Expectation second = expectation(request().withPath("/some/path/.*"));
+
+        // when
+        ExpectationIndex beforeRemove = expectationIndex;
+        expectationIndex = expectationIndex.remove(second);
+
+        // then
+        assertThat(expectationIndex.candidates(request().withPath("/some/path/123")), is(Arrays.asList(first)));
+        assertThat(beforeRemove.candidates(request().withPath("/some/path/123")), is(Arrays.asList(first, second)));
+        assertThat(expectationIndex.remove(first).candidates(request().withPath("/some/path/123")), is(Collections.<Expectation>emptyList()));
+    }
+
+    @Test
+    public void shouldReturnEveryMatchingRegexPathAsCandidate() {
+        // given
+        Random random = new Random(1234);
+        String[] fragments = {"/", "a", "b", "1", ".*", "[0-9]+", "?", "(a|b)", "\\.", ".", "[a-z]*", "\\d", "/[0-9]+", "{2}"};
+        for (int i = 0; i < 250; i++) {
+            StringBuilder path = new StringBuilder();
+            for (int j = random.nextInt(5); j >= 0; j--) {
+                path.append(fragments[random.nextInt(fragments.length)]);
+            }
+            expectation(request().withPath(path.toString()));
+        }
+
+        // then
+        String[] literalFragments = {"/", "a", "b", "1", "2"};
+        for (int i = 0; i < 250; i++) {
+            StringBuilder path = new StringBuilder();
+            for (int j = random.nextInt(6); j >= 0; j--) {
+                path.append(literalFragments[random.nextInt(literalFragments.length)]);
+            }
+            HttpRequest httpRequest = request().withPath(path.toString());
+            List<Expectation> matchingExpectations = new ArrayList<Expectation>();
+            for (Expectation expectation : expectationIndex.expectations()) {
+                if (expectation.matchesIncomingRequest(httpRequest)) {
+                    matchingExpectations.add(expectation);
+                }
+            }
+            List<Expectation> candidates = expectationIndex.candidates(httpRequest);
+            assertTrue(path + " candidates " + candidates + " do not contain " + matchingExpectations, candidates.containsAll(matchingExpectations));
+        }
+    }
+
+    @Test
+    public void shouldOnlyReturnExactBodiesEqualToRequestBody() {
+        // given
+        Expectation someBody = expectation(request().withPath("/soap").withBody(exact("<some>body</some>")));
+        expectation(request().withPath("/soap").withBody(exact("<other>body</other>")));
+        Expectation notOtherBody = expectation(request().withPath("/soap").withBody(not(exact("<other>body</other>"))));
+        Expectation someBinaryBody = expectation(request().withPath("/soap").withBody(binary("<some>body</some>".getBytes(Charsets.UTF_8))));
+        expectation(request().withPath("/soap").withBody(binary("<other>body</other>".getBytes(Charsets.UTF_8))));
+        Expectation anyBody = expectation(request().withPath("/soap").withBody(regex("<some>.*")));
+
+        // then
+        assertThat(expectationIndex.candidates(request().withPath("/soap").withBody("<some>body</some>")), is(Arrays.asList(someBody, notOtherBody, someBinaryBody, anyBody)));
+        assertThat(expectationIndex.candidates(request().withPath("/soap").withBody(binary("<some>body</some>".getBytes(Charsets.UTF_8)))), is(Arrays.asList(someBody, notOtherBody, someBinaryBody, anyBody)));
+        assertThat(expectationIndex.candidates(request().withPath("/soap")), is(Arrays.asList(notOtherBody, anyBody)));
+    }
+
+    @Test
+    public void shouldMatchExactBodyInRequestCharset() {
+        // given
+        Expectation someBody = expectation(request().withBody(exact("some_bödy")));
+        expectation(request().withBody(binary("some_bödy".getBytes(Charsets.UTF_8))));
+
+        // then
+        assertThat(expectationIndex.candidates(request().withBody(exact("some_bödy", Charsets.UTF_16))), is(Arrays.asList(someBody)));
+    }
+
+    @Test
+    public void shouldOnlyReturnCandidatesWithMatchingMethodAndPath() {
+        // given
+        Expectation getSomePath = expectation(request().withMethod("GET").withPath("/some/path"));
+        expectation(request().withMethod("POST").withPath("/some/path"));
+        expectation(request().withMethod("GET").withPath("/some/other/path"));
+        Expectation anyMethod = expectation(request().withPath("/some/path"));
+
+        // then
+        assertThat(expectationIndex.candidates(request().withMethod("GET").withPath("/some/path")), is(Arrays.asList(getSomePath, anyMethod)));
+    }
+
+    @Test
+    public void shouldReturnCandidatesInRegistrationOrder() {
+        // given
+        Expectation regexPath = expectation(request().withMethod("GET").withPath("/some/.*"));
+        Expectation literalPath = expectation(request().withMethod("GET").withPath("/some/path"));
+        Expectation notPath = expectation(request().withMethod("GET").withPath(not("/some/other/path")));
+        Expectation noPath = expectation(request().withMethod("GET"));
+        Expectation notRequest = expectation(HttpRequest.not(request().withMethod("POST").withPath("/some/path")));
+
+        // then
+        assertThat(expectationIndex.candidates(request().withMethod("GET").withPath("/some/path")), is(Arrays.asList(regexPath, literalPath, notPath, noPath, notRequest)));
+    }
+
+    @Test
+    public void shouldReturnAllExpectationsForNonLiteralRequest() {
+        // given
+        Expectation getSomePath = expectation(request().withMethod("GET").withPath("/some/path"));
+        Expectation postSomePath = expectation(request().withMethod("POST").withPath("/some/path"));
+
+        // then
+        assertThat(expectationIndex.candidates(request().withMethod("GET").withPath("/some/.*")), is(Arrays.asList(getSomePath)));
+        assertThat(expectationIndex.candidates(request().withPath("/some/path")), is(Arrays.asList(getSomePath, postSomePath)));
+        assertThat(expectationIndex.candidates(HttpRequest.not(request().withMethod("GET").withPath("/some/path"))), is(Arrays.asList(getSomePath, postSomePath)));
+    }
+
+    @Test
+    public void shouldRemoveAndClearExpectations() {
+        // given
+        Expectation first = expectation(request().withMethod("GET").withPath("/some/path"));
+        Expectation second = expectation(request().withMethod("GET").withPath("/some/path"));
+
+        // when
+        ExpectationIndex beforeRemove = expectationIndex;
+        expectationIndex = expectationIndex.remove(first);
+
+        // then
+        assertThat(expectationIndex.candidates(request().withMethod("GET").withPath("/some/path")), is(Arrays.asList(second)));
+        assertThat(beforeRemove.candidates(request().withMethod("GET").withPath("/some/path")), is(Arrays.asList(first, second)));
+
+        // when
+        expectationIndex = expectationIndex.clear();
+
+        // then
+        assertThat(expectationIndex.candidates(request().withMethod("GET").withPath("/some/path")), is(Collections.<Expectation>emptyList()));
+    }
+
+    @Test
+    public void shouldIncrementVersionOnEveryChange() {
+        // when
+        Expectation expectation = expectation(request().withMethod("GET").withPath("/some/path"));
+
+        // then
+        assertThat(expectationIndex.version(), is(1L));
+        assertThat(expectationIndex.remove(expectation).version(), is(2L));
+        assertThat(expectationIndex.clear().version(), is(2L));
+        assertThat(expectationIndex.remove(new Expectation(request(), Times.unlimited(), TimeToLive.unlimited())).version(), is(1L));
+        assertThat(ExpectationIndex.EMPTY.version(), is(0L));
+    }
+
+    @Test
+    public void shouldAddManyExpectationsInOneChange() {
+        // given
+        Expectation existing = expectation(request().withMethod("GET").withPath("/some/path"));
+        List<Expectation> expectations = new ArrayList<Expectation>();
+        for (int i = 0; i < 1000; i++) {
+            expectations.add(new Expectation(request().withMethod("GET").withPath("/some/path/" + i), Times.unlimited(), TimeToLive.unlimited()));
+        }
+        Expectation regexPath = new Expectation(request().withMethod("GET").withPath("/some/.*"), Times.unlimited(), TimeToLive.unlimited());
+        Expectation samePath = new Expectation(request().withMethod("GET").withPath("/some/path"), Times.unlimited(), TimeToLive.unlimited());
+        expectations.add(regexPath);
+        expectations.add(samePath);
+
+        // when
+        ExpectationIndex beforeAdd = expectationIndex;
+        expectationIndex = expectationIndex.add(expectations);
+
+        // then
+        assertThat(expectationIndex.version(), is(2L));
+        assertThat(expectationIndex.expectations().size(), is(1003));
+        assertThat(expectationIndex.candidates(request().withMethod("GET").withPath("/some/path")), is(Arrays.asList(existing, regexPath, samePath)));
+        assertThat(expectationIndex.candidates(request().withMethod("GET").withPath("/some/path/500")), is(Arrays.asList(expectations.get(500), regexPath)));
+        assertThat(beforeAdd.candidates(request().withMethod("GET").withPath("/some/path")), is(Arrays.asList(existing)));
+        assertThat(beforeAdd.candidates(request().withMethod("GET").withPath("/some/path/500")), is(Collections.<Expectation>emptyList()));
+    }
+
+    @Test
+    public void shouldOnlyChangeMatchesVersionWhenExpectationsThatCouldMatchChange() {
+        // given
+        Expectation first = expectation(request().withMethod("GET").withPath("/some/path"));
+        Expectation second = expectation(request().withMethod("GET").withPath("/some/path"));
+        long matchesVersion = expectationIndex.matchesVersion();
+
+        // when
+        ExpectationIndex afterRemoveSpent = expectationIndex.removeSpent(Arrays.asList(first));
+        ExpectationIndex afterRemove = expectationIndex.remove(first);
+
+        // then
+        assertThat(afterRemoveSpent.matchesVersion(), is(matchesVersion));
+        assertThat(afterRemoveSpent.version(), is(expectationIndex.version() + 1));
+        assertThat(afterRemoveSpent.candidates(request().withMethod("GET").withPath("/some/path")), is(Arrays.asList(second)));
+        assertThat(afterRemove.matchesVersion(), is(matchesVersion + 1));
+        assertThat(expectationIndex.clear().matchesVersion(), is(matchesVersion + 1));
+        assertThat(expectationIndex.add(first).matchesVersion(), is(matchesVersion + 1));
+    }
+
+    @Test
+    public void shouldKeepNetworkWhenExpectationsAreRemoved() {
+        // given
+        Expectation first = expectation(request().withMethod("GET").withPath("/some/path"));
+        expectation(request().withMethod("GET").withPath("/some/other/path"));
+        HttpRequestMatcherNetwork httpRequestMatcherNetwork = expectationIndex.httpRequestMatcherNetwork();
+
+        // then
+        assertThat(expectationIndex.removeSpent(Arrays.asList(first)).httpRequestMatcherNetwork(), sameInstance(httpRequestMatcherNetwork));
+        assertFalse(expectationIndex.add(first).httpRequestMatcherNetwork() == httpRequestMatcherNetwork);
+    }
+
+    @Test
+    public void shouldAddToNetworkWhenExpectationsAreAdded() {
+        // given
+        expectation(request().withMethod("GET").withPath("/some/path"));
+        HttpRequestMatcherNetwork httpRequestMatcherNetwork = expectationIndex.httpRequestMatcherNetwork();
+
+        // when
+        Expectation added = expectation(request().withMethod("GET").withPath("/some/other/path"));
+
+        // then
+        assertThat(expectationIndex.httpRequestMatcherNetwork().numberOfRequestMatchers(), is(2));
+        assertThat(expectationIndex.httpRequestMatcherNetwork().evaluate(request().withMethod("GET").withPath("/some/other/path")).matches(added.getHttpRequestMatcher()), is(true));
+        assertThat(httpRequestMatcherNetwork.numberOfRequestMatchers(), is(1));
+    }
+
+    @Test
+    public void shouldFindExpectationsWithSameKeys() {
+        // given
+        Expectation getSomePath = expectation(request().withMethod("GET").withPath("/some/path"));
+        expectation(request().withMethod("GET").withPath("/some/.*"));
+        expectation(request().withPath("/some/path"));
+
+        // then
+        assertThat(expectationIndex.withSameKeys(request().withMethod("GET").withPath("/some/path")), is(Arrays.asList(getSomePath)));
+    }
+}
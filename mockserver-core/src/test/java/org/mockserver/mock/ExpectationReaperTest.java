@@ -0,0 +1,143 @@
+package org.mockserver.mock;
+
+import org.junit.Test;
+import org.mockserver.matchers.TimeToLive;
+import org.mockserver.matchers.Times;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockserver.model.HttpRequest.request;
+
+/**
+ * @author jamesdbloom
+ */
+public class ExpectationReaperTest {
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    public void shouldRemoveExpectationsOnceExpired() {
+        // given
+        ExpectationReaper expectationReaper = new ExpectationReaper(TICK_NANOS, 8, false);
+        MockServerMatcher mockServerMatcher = new MockServerMatcher();
+        long startNanos = System.nanoTime();
+        Expectation shortLived = mockServerMatcher.when(request().withPath("/short"), Times.unlimited(), TimeToLive.exactly(TimeUnit.HOURS, 1L));
+        // more than one revolution of the wheel
+        Expectation longLived = mockServerMatcher.when(request().withPath("/long"), Times.unlimited(), TimeToLive.exactly(TimeUnit.HOURS, 2L));
+        Expectation unlimited = mockServerMatcher.when(request().withPath("/unlimited"), Times.unlimited(), TimeToLive.unlimited());
+        for (Expectation expectation : Arrays.asList(shortLived, longLived, unlimited)) {
+            expectationReaper.schedule(mockServerMatcher, expectation);
+        }
+
+        // when
+        expectationReaper.advance(startNanos + TimeUnit.MINUTES.toNanos(59));
+
+        // then
+        assertThat(mockServerMatcher.expectations(), is(Arrays.asList(shortLived, longLived, unlimited)));
+
+        // when
+        expectationReaper.advance(shortLived.getTimeToLive().getEndNanos() + TICK_NANOS);
+
+        // then
+        assertThat(mockServerMatcher.expectations(), is(Arrays.asList(longLived, unlimited)));
+        assertThat(mockServerMatcher.expiredExpectations(), is(1L));
+
+        // when
+        expectationReaper.advance(longLived.getTimeToLive().getEndNanos() - TICK_NANOS);
+
+        // then
+        assertThat(mockServerMatcher.expectations(), is(Arrays.asList(longLived, unlimited)));
+
+        // when
+        expectationReaper.advance(longLived.getTimeToLive().getEndNanos() + TICK_NANOS);
+
+        // then
+        assertThat(mockServerMatcher.expectations(), is(Collections.singletonList(unlimited)));
+        assertThat(mockServerMatcher.expiredExpectations(), is(2L));
+    }
+
+    @Test
+    public void shouldReleaseCancelledExpectations() {
+        // given
+        ExpectationReaper expectationReaper = new ExpectationReaper(TICK_NANOS, 8, false);
+        MockServerMatcher mockServerMatcher = new MockServerMatcher();
+        long startNanos = System.nanoTime();
+        Expectation cancelled = mockServerMatcher.when(request().withPath("/cancelled"), Times.unlimited(), TimeToLive.exactly(TimeUnit.HOURS, 1L));
+        Expectation scheduled = mockServerMatcher.when(request().withPath("/scheduled"), Times.unlimited(), TimeToLive.exactly(TimeUnit.HOURS, 1L));
+        ExpectationReaper.Timeout timeout = expectationReaper.schedule(mockServerMatcher, cancelled);
+        expectationReaper.schedule(mockServerMatcher, scheduled);
+        expectationReaper.advance(startNanos);
+        assertThat(expectationReaper.numberOfTimeouts(), is(2));
+
+        // when
+        timeout.cancel();
+        expectationReaper.advance(startNanos + TICK_NANOS);
+
+        // then - the cancelled timeout is removed from the wheel before its deadline
+        assertThat(timeout.isCancelled(), is(true));
+        assertThat(expectationReaper.numberOfTimeouts(), is(1));
+
+        // when
+        expectationReaper.advance(cancelled.getTimeToLive().getEndNanos() + TICK_NANOS);
+
+        // then
+        assertThat(mockServerMatcher.expectations(), is(Collections.singletonList(cancelled)));
+        assertThat(mockServerMatcher.expiredExpectations(), is(1L));
+        assertThat(expectationReaper.numberOfTimeouts(), is(0));
+    }
+
+    @Test
+    public void shouldNotScheduleExpectationsThatNeverExpire() {
+        // given
+        ExpectationReaper expectationReaper = new ExpectationReaper(TICK_NANOS, 8, false);
+        MockServerMatcher mockServerMatcher = new MockServerMatcher();
+
+        // then
+        assertThat(expectationReaper.schedule(mockServerMatcher, mockServerMatcher.when(request().withPath("/unlimited"))), is(nullValue()));
+    }
+
+    @Test
+    public void shouldParkReaperWhileNoExpectationsAreScheduled() throws InterruptedException {
+        // given - a matcher that only records expired expectations, so only this reaper expires them
+        ExpectationReaper expectationReaper = new ExpectationReaper(TICK_NANOS, 8, true);
+        final AtomicInteger expiredExpectations = new AtomicInteger();
+        MockServerMatcher mockServerMatcher = new MockServerMatcher() {
+            @Override
+            void expire(Collection<Expectation> expectations) {
+                expiredExpectations.addAndGet(expectations.size());
+            }
+        };
+        expectationReaper.schedule(mockServerMatcher, new Expectation(request().withPath("/first"), Times.unlimited(), TimeToLive.exactly(TimeUnit.MILLISECONDS, 50L)));
+
+        // when
+        waitUntilExpired(expiredExpectations, 1);
+
+        // then - parked without a timeout
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (expectationReaper.reaperThread().getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(expectationReaper.reaperThread().getState(), is(Thread.State.WAITING));
+
+        // when
+        expectationReaper.schedule(mockServerMatcher, new Expectation(request().withPath("/second"), Times.unlimited(), TimeToLive.exactly(TimeUnit.MILLISECONDS, 50L)));
+
+        // then - woken to expire the newly scheduled expectation
+        waitUntilExpired(expiredExpectations, 2);
+    }
+
+    private void waitUntilExpired(AtomicInteger expiredExpectations, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (expiredExpectations.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(expiredExpectations.get(), is(expected));
+    }
+}
@@ -0,0 +1,77 @@
+package org.mockserver.mock;
+
+import org.mockserver.matchers.TimeToLive;
+import org.mockserver.matchers.Times;
+import org.mockserver.model.Action;
+import org.mockserver.model.HttpRequest;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+/**
+ * Compares scanning the copy-on-write expectation snapshot with the previous approach of copying a synchronized list,
+ * both variants match every expectation in the same way with logging disabled so only the cost of reading the
+ * expectations differs, run using the main method
+ *
+ * @author jamesdbloom
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class MockServerMatcherBenchmark {
+
+    @Param({"100", "1000", "20000"})
+    public int numberOfExpectations;
+
+    private MockServerMatcher mockServerMatcher;
+    private List<Expectation> synchronizedList;
+    private HttpRequest lastRequest;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MockServerMatcherBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Setup
+    public void createExpectations() {
+        mockServerMatcher = new MockServerMatcher();
+        synchronizedList = Collections.synchronizedList(new ArrayList<Expectation>());
+        for (int i = 0; i < numberOfExpectations; i++) {
+            HttpRequest httpRequest = request().withMethod("GET").withPath("/some/path/" + i);
+            mockServerMatcher.when(httpRequest).thenRespond(response().withBody("some_body_" + i));
+            synchronizedList.add(new Expectation(httpRequest, Times.unlimited(), TimeToLive.unlimited()).thenRespond(response().withBody("some_body_" + i)));
+        }
+        lastRequest = request().withMethod("GET").withPath("/some/path/" + (numberOfExpectations - 1));
+    }
+
+    @Benchmark
+    public Action snapshot() {
+        return firstMatch(mockServerMatcher.expectations());
+    }
+
+    @Benchmark
+    public Action synchronizedList() {
+        return firstMatch(new ArrayList<Expectation>(synchronizedList));
+    }
+
+    private Action firstMatch(List<Expectation> expectations) {
+        for (Expectation expectation : expectations) {
+            if (expectation.getHttpRequestMatcher().matchesIncomingRequest(lastRequest, false) && expectation.consumeRemainingMatch()) {
+                return expectation.getAction();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,98 @@
+package org.mockserver.mock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockserver.configuration.ConfigurationProperties;
+import org.mockserver.matchers.TimeToLive;
+import org.mockserver.matchers.Times;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.model.HttpResponse;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+/**
+ * @author jamesdbloom
+ */
+public class MockServerMatcherCachedResponsesTest {
+
+    private MockServerMatcher mockServerMatcher;
+
+    @Before
+    public void prepareTestFixture() {
+        ConfigurationProperties.matchedExpectationCacheSize(10);
+        mockServerMatcher = new MockServerMatcher();
+    }
+
+    @After
+    public void resetMatchedExpectationCacheSize() {
+        System.clearProperty("mockserver.matchedExpectationCacheSize");
+    }
+
+    @Test
+    public void shouldReuseMatchedExpectationForSameRequest() {
+        // given
+        HttpResponse httpResponse = response("some_body");
+        mockServerMatcher.when(request().withPath("/some/.*")).thenRespond(httpResponse);
+
+        // then
+        assertEquals(httpResponse, mockServerMatcher.retrieveAction(request().withPath("/some/path").withHeader("a", "1").withHeader("b", "2")));
+        assertEquals(httpResponse, mockServerMatcher.retrieveAction(request().withPath("/some/path").withHeader("b", "2").withHeader("a", "1")));
+        assertEquals(httpResponse, mockServerMatcher.retrieveAction(request().withPath("/some/path").withHeader("a", "1").withHeader("b", "2")));
+        assertThat(mockServerMatcher.matchedExpectationCacheHits(), is(2L));
+        assertThat(mockServerMatcher.matchedExpectationCacheMisses(), is(1L));
+        assertThat(mockServerMatcher.matchedExpectationCacheHitRate(), is(2.0 / 3));
+    }
+
+    @Test
+    public void shouldInvalidateCachedMatchWhenExpectationsChange() {
+        // given
+        HttpRequest httpRequest = request().withPath("/some/path");
+        assertNull(mockServerMatcher.retrieveAction(httpRequest));
+
+        // when
+        HttpResponse httpResponse = response("some_body");
+        mockServerMatcher.when(request().withPath("/some/path")).thenRespond(httpResponse);
+
+        // then
+        assertEquals(httpResponse, mockServerMatcher.retrieveAction(httpRequest));
+        assertThat(mockServerMatcher.matchedExpectationCacheMisses(), is(2L));
+    }
+
+    @Test
+    public void shouldNotReuseMatchedExpectationWithNoRemainingMatches() {
+        // given
+        HttpResponse limitedResponse = response("limited");
+        HttpResponse unlimitedResponse = response("unlimited");
+        mockServerMatcher.when(request().withPath("/some/path"), Times.exactly(2), TimeToLive.unlimited()).thenRespond(limitedResponse);
+        mockServerMatcher.when(request().withPath("/some/path")).thenRespond(unlimitedResponse);
+
+        // then
+        assertEquals(limitedResponse, mockServerMatcher.retrieveAction(request().withPath("/some/path")));
+        assertEquals(limitedResponse, mockServerMatcher.retrieveAction(request().withPath("/some/path")));
+        assertEquals(unlimitedResponse, mockServerMatcher.retrieveAction(request().withPath("/some/path")));
+        assertEquals(unlimitedResponse, mockServerMatcher.retrieveAction(request().withPath("/some/path")));
+    }
+
+    @Test
+    public void shouldKeepCachedMatchesWhenExpectationWithNoRemainingMatchesIsRemoved() {
+        // given
+        HttpResponse limitedResponse = response("limited");
+        HttpResponse otherResponse = response("other");
+        mockServerMatcher.when(request().withPath("/some/path"), Times.once(), TimeToLive.unlimited()).thenRespond(limitedResponse);
+        mockServerMatcher.when(request().withPath("/other/path")).thenRespond(otherResponse);
+        assertEquals(otherResponse, mockServerMatcher.retrieveAction(request().withPath("/other/path")));
+
+        // when
+        assertEquals(limitedResponse, mockServerMatcher.retrieveAction(request().withPath("/some/path")));
+
+        // then
+        assertEquals(otherResponse, mockServerMatcher.retrieveAction(request().withPath("/other/path")));
+        assertThat(mockServerMatcher.matchedExpectationCacheHits(), is(1L));
+    }
+}
@@ -34,7 +34,7 @@ public class MockServerMatcherClearAndResetTest {
         // then
         assertEquals(httpResponse, mockServerMatcher.retrieveAction(new HttpRequest().withPath("somepath")));
         assertEquals(httpResponse, mockServerMatcher.retrieveAction(new HttpRequest().withPath("somepath")));
-        assertArrayEquals(new Expectation[]{}, mockServerMatcher.expectations.toArray());
+        assertArrayEquals(new Expectation[]{}, mockServerMatcher.expectations().toArray());
         assertEquals(null, mockServerMatcher.retrieveAction(new HttpRequest().withPath("somepath")));
     }
 
@@ -49,7 +49,7 @@ public class MockServerMatcherClearAndResetTest {
         mockServerMatcher.clear(new HttpRequest().withPath("somepath"));
 
         // then
-        assertArrayEquals(new Expectation[]{}, mockServerMatcher.expectations.toArray());
+        assertArrayEquals(new Expectation[]{}, mockServerMatcher.expectations().toArray());
     }
 
     @Test
@@ -63,7 +63,7 @@ public class MockServerMatcherClearAndResetTest {
         mockServerMatcher.clear(null);
 
         // then
-        assertArrayEquals(new Expectation[]{}, mockServerMatcher.expectations.toArray());
+        assertArrayEquals(new Expectation[]{}, mockServerMatcher.expectations().toArray());
     }
 
     @Test
@@ -77,7 +77,7 @@ public class MockServerMatcherClearAndResetTest {
         mockServerMatcher.reset();
 
         // then
-        assertArrayEquals(new Expectation[]{}, mockServerMatcher.expectations.toArray());
+        assertArrayEquals(new Expectation[]{}, mockServerMatcher.expectations().toArray());
     }
 
     @Test
@@ -91,7 +91,7 @@ public class MockServerMatcherClearAndResetTest {
         mockServerMatcher.clear(new HttpRequest().withPath("abc"));
 
         // then
-        assertArrayEquals(new Expectation[]{expectation}, mockServerMatcher.expectations.toArray());
+        assertArrayEquals(new Expectation[]{expectation}, mockServerMatcher.expectations().toArray());
     }
 
     @Test
@@ -106,7 +106,7 @@ public class MockServerMatcherClearAndResetTest {
         mockServerMatcher.clear(new HttpRequest().withMethod("GET"));
 
         // then
-        assertArrayEquals(new Expectation[]{expectation}, mockServerMatcher.expectations.toArray());
+        assertArrayEquals(new Expectation[]{expectation}, mockServerMatcher.expectations().toArray());
     }
 
     @Test
@@ -121,7 +121,7 @@ public class MockServerMatcherClearAndResetTest {
         mockServerMatcher.clear(new HttpRequest().withHeader(new Header("headerOneName", "headerOneValue")));
 
         // then
-        assertArrayEquals(new Expectation[]{expectation}, mockServerMatcher.expectations.toArray());
+        assertArrayEquals(new Expectation[]{expectation}, mockServerMatcher.expectations().toArray());
     }
 
     @Test
@@ -137,7 +137,7 @@ public class MockServerMatcherClearAndResetTest {
         mockServerMatcher.clear(new HttpRequest().withPath("foobar"));
 
         // then
-        assertArrayEquals(expectations, mockServerMatcher.expectations.toArray());
+        assertArrayEquals(expectations, mockServerMatcher.expectations().toArray());
     }
 
 }
@@ -0,0 +1,117 @@
+package org.mockserver.mock;
+
+import org.junit.Test;
+import org.mockserver.matchers.TimeToLive;
+import org.mockserver.matchers.Times;
+import org.mockserver.model.Action;
+import org.mockserver.model.HttpResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.core.Is.is;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+/**
+ * @author jamesdbloom
+ */
+public class MockServerMatcherConcurrencyTest {
+
+    @Test
+    public void shouldReturnLimitedExpectationsExactNumberOfTimesWhenConcurrent() throws Exception {
+        // given
+        final int numberOfThreads = 16;
+        final int requestsPerThread = 2000;
+        final MockServerMatcher mockServerMatcher = new MockServerMatcher();
+        final HttpResponse limitedResponse = response().withBody("limited");
+        final HttpResponse otherLimitedResponse = response().withBody("other_limited");
+        final HttpResponse fallbackResponse = response().withBody("fallback");
+        mockServerMatcher.when(request().withPath("/some/path"), Times.exactly(1000), TimeToLive.unlimited()).thenRespond(limitedResponse);
+        mockServerMatcher.when(request().withPath("/some/path"), Times.exactly(500), TimeToLive.unlimited()).thenRespond(otherLimitedResponse);
+        mockServerMatcher.when(request().withPath("/some/.*"), Times.unlimited(), TimeToLive.unlimited()).thenRespond(fallbackResponse);
+
+        final AtomicInteger limitedCount = new AtomicInteger();
+        final AtomicInteger otherLimitedCount = new AtomicInteger();
+        final AtomicInteger fallbackCount = new AtomicInteger();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+
+        // when
+        for (int i = 0; i < numberOfThreads; i++) {
+            futures.add(executorService.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    startLatch.await();
+                    for (int j = 0; j < requestsPerThread; j++) {
+                        Action action = mockServerMatcher.retrieveAction(request().withPath("/some/path"));
+                        if (action == limitedResponse) {
+                            limitedCount.incrementAndGet();
+                        } else if (action == otherLimitedResponse) {
+                            otherLimitedCount.incrementAndGet();
+                        } else if (action == fallbackResponse) {
+                            fallbackCount.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        startLatch.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executorService.shutdown();
+
+        // then
+        assertThat(limitedCount.get(), is(1000));
+        assertThat(otherLimitedCount.get(), is(500));
+        assertThat(fallbackCount.get(), is(numberOfThreads * requestsPerThread - 1500));
+        assertThat(mockServerMatcher.retrieveExpectations(request().withPath("/some/path")).length, is(1));
+    }
+
+    @Test
+    public void shouldRemoveExhaustedExpectationsWhenConcurrent() throws Exception {
+        // given
+        final int numberOfThreads = 8;
+        final MockServerMatcher mockServerMatcher = new MockServerMatcher();
+        for (int i = 0; i < 100; i++) {
+            mockServerMatcher.when(request().withPath("/some/path/" + i), Times.exactly(10), TimeToLive.unlimited()).thenRespond(response().withBody("" + i));
+        }
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+        List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+
+        // when
+        for (int i = 0; i < numberOfThreads; i++) {
+            futures.add(executorService.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    startLatch.await();
+                    int matched = 0;
+                    for (int j = 0; j < 200; j++) {
+                        if (mockServerMatcher.retrieveAction(request().withPath("/some/path/" + (j % 100))) != null) {
+                            matched++;
+                        }
+                    }
+                    return matched;
+                }
+            }));
+        }
+        startLatch.countDown();
+        int totalMatched = 0;
+        for (Future<Integer> future : futures) {
+            totalMatched += future.get(60, TimeUnit.SECONDS);
+        }
+        executorService.shutdown();
+
+        // then
+        assertThat(totalMatched, is(1000));
+        assertThat(mockServerMatcher.expectations(), empty());
+    }
+}
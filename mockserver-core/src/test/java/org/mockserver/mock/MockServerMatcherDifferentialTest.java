@@ -0,0 +1,147 @@
+package org.mockserver.mock;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockserver.configuration.ConfigurationProperties;
+import org.mockserver.matchers.TimeToLive;
+import org.mockserver.matchers.Times;
+import org.mockserver.model.*;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+import static org.mockserver.model.JsonBody.json;
+import static org.mockserver.model.NottableString.not;
+import static org.mockserver.model.NottableString.string;
+import static org.mockserver.model.RegexBody.regex;
+import static org.mockserver.model.StringBody.exact;
+
+/**
+ * @author jamesdbloom
+ */
+public class MockServerMatcherDifferentialTest {
+
+    private static final String[] METHODS = {"", "GET", "POST", "P.*"};
+    private static final String[] PATHS = {"", "/a", "/b", "/a/.*", "/a/[0-9]+", "/a/1"};
+    private static final String[][] HEADERS = {{"Content-Type", "application/json"}, {"Content-Type", "text/.*"}, {"X-.*", "1"}, {"Accept", "[a-z]+"}};
+    private static final String[][] PARAMETERS = {{"id", "1"}, {"id", "[0-9]+"}, {"name", "a"}};
+    private static final Body[] BODIES = {exact("a"), exact("b"), regex("a.*"), json("{\"a\": 1}"), Not.not(exact("a"))};
+    private static final Body[] REQUEST_BODIES = {exact("a"), exact("b"), exact("ab"), exact("{\"a\": 1, \"b\": 2}")};
+
+    @After
+    public void resetConfiguration() {
+        System.clearProperty("mockserver.compiledExpectationMatching");
+        System.clearProperty("mockserver.matchedExpectationCacheSize");
+    }
+
+    @Test
+    public void shouldReturnSameActionAsLinearMatching() {
+        Random random = new Random(1234);
+        for (int run = 0; run < 50; run++) {
+            // given
+            ConfigurationProperties.compiledExpectationMatching(false);
+            MockServerMatcher linear = new MockServerMatcher();
+            ConfigurationProperties.compiledExpectationMatching(true);
+            MockServerMatcher compiled = new MockServerMatcher();
+            long seed = random.nextLong();
+            addExpectations(linear, new Random(seed));
+            addExpectations(compiled, new Random(seed));
+
+            // then
+            for (int i = 0; i < 100; i++) {
+                HttpRequest httpRequest = randomRequest(random);
+
+                Action linearAction = linear.retrieveAction(httpRequest);
+                Action compiledAction = compiled.retrieveAction(httpRequest);
+
+                assertThat(httpRequest.toString(), compiledAction, is(linearAction));
+            }
+        }
+    }
+
+    @Test
+    public void shouldReturnSameActionWithMatchedExpectationCache() {
+        Random random = new Random(1234);
+        for (int run = 0; run < 50; run++) {
+            // given
+            MockServerMatcher uncached = new MockServerMatcher();
+            ConfigurationProperties.matchedExpectationCacheSize(100);
+            MockServerMatcher cached = new MockServerMatcher();
+            long seed = random.nextLong();
+            addExpectations(uncached, new Random(seed));
+            addExpectations(cached, new Random(seed));
+
+            // then - replaying a small set of requests
+            HttpRequest[] httpRequests = new HttpRequest[10];
+            for (int i = 0; i < httpRequests.length; i++) {
+                httpRequests[i] = randomRequest(random);
+            }
+            for (int i = 0; i < 200; i++) {
+                HttpRequest httpRequest = httpRequests[random.nextInt(httpRequests.length)];
+                assertThat(httpRequest.toString(), cached.retrieveAction(httpRequest), is(uncached.retrieveAction(httpRequest)));
+            }
+            assertThat(cached.matchedExpectationCacheHits() > 0, is(true));
+        }
+    }
+
+    private static void addExpectations(MockServerMatcher mockServerMatcher, Random random) {
+        for (int i = 0; i < 30; i++) {
+            HttpRequest httpRequest = request()
+                    .withMethod(randomNottableString(random, METHODS))
+                    .withPath(randomNottableString(random, PATHS));
+            if (random.nextInt(3) == 0) {
+                String[] header = HEADERS[random.nextInt(HEADERS.length)];
+                httpRequest.withHeader(randomNottable(random, header[0]), string(header[1]));
+            }
+            if (random.nextInt(4) == 0) {
+                String[] parameter = PARAMETERS[random.nextInt(PARAMETERS.length)];
+                httpRequest.withQueryStringParameter(string(parameter[0]), randomNottable(random, parameter[1]));
+            }
+            if (random.nextInt(3) == 0) {
+                httpRequest.withBody(BODIES[random.nextInt(BODIES.length)]);
+            }
+            if (random.nextInt(4) == 0) {
+                httpRequest.withSecure(random.nextBoolean());
+            }
+            if (random.nextInt(4) == 0) {
+                httpRequest.withKeepAlive(random.nextBoolean());
+            }
+            if (random.nextInt(10) == 0) {
+                httpRequest = Not.not(httpRequest);
+            }
+            Times times = random.nextBoolean() ? Times.unlimited() : Times.exactly(1 + random.nextInt(3));
+            mockServerMatcher.when(httpRequest, times, TimeToLive.unlimited()).thenRespond(response("expectation " + i));
+        }
+    }
+
+    private static HttpRequest randomRequest(Random random) {
+        HttpRequest httpRequest = request()
+                .withMethod(random.nextBoolean() ? "GET" : "POST")
+                .withPath(random.nextBoolean() ? "/a/" + random.nextInt(3) : "/" + (char) ('a' + random.nextInt(3)))
+                .withSecure(random.nextBoolean())
+                .withKeepAlive(random.nextBoolean());
+        for (String[] header : HEADERS) {
+            if (random.nextBoolean()) {
+                httpRequest.withHeader(header[0].replace(".*", "Custom"), header[1].replace(".*", "plain").replace("[a-z]+", "json"));
+            }
+        }
+        if (random.nextBoolean()) {
+            httpRequest.withQueryStringParameter("id", String.valueOf(random.nextInt(3)));
+        }
+        if (random.nextInt(4) != 0) {
+            httpRequest.withBody(REQUEST_BODIES[random.nextInt(REQUEST_BODIES.length)]);
+        }
+        return httpRequest;
+    }
+
+    private static NottableString randomNottableString(Random random, String[] values) {
+        return randomNottable(random, values[random.nextInt(values.length)]);
+    }
+
+    private static NottableString randomNottable(Random random, String value) {
+        return random.nextInt(6) == 0 && !value.isEmpty() ? not(value) : string(value);
+    }
+}
@@ -7,6 +7,7 @@ import org.mockserver.matchers.TimeToLive;
 import org.mockserver.matchers.Times;
 import org.mockserver.model.*;
 
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -31,13 +32,20 @@ public class MockServerMatcherManageExpectationsTest {
     }
 
     @Test
-    public void shouldRemoveExpiredExpectations() {
+    public void shouldRemoveExpiredExpectations() throws InterruptedException {
         // when
         mockServerMatcher.when(httpRequest.withPath("somePath"), Times.unlimited(), TimeToLive.exactly(TimeUnit.MICROSECONDS, 0L)).thenRespond(httpResponse.withBody("someBody"));
 
         // then
         assertThat(mockServerMatcher.retrieveAction(new HttpRequest().withPath("somePath")), nullValue());
-        assertThat(mockServerMatcher.expectations, empty());
+
+        // and - expired expectations are removed in the background
+        long timeoutNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!mockServerMatcher.expectations().isEmpty() && System.nanoTime() - timeoutNanos < 0) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertThat(mockServerMatcher.expectations(), empty());
+        assertThat(mockServerMatcher.expiredExpectations(), is(1L));
     }
 
     @Test
@@ -47,7 +55,7 @@ public class MockServerMatcherManageExpectationsTest {
 
         // then
         assertThat(mockServerMatcher.retrieveAction(new HttpRequest().withPath("somePath")), Is.<Action>is(httpResponse.withBody("someBody")));
-        assertThat(mockServerMatcher.expectations.size(), is(1));
+        assertThat(mockServerMatcher.expectations().size(), is(1));
     }
 
     @Test
@@ -58,7 +66,7 @@ public class MockServerMatcherManageExpectationsTest {
         // then
         assertThat(mockServerMatcher.retrieveAction(new HttpRequest().withPath("somePath")), Is.<Action>is(httpResponse.withBody("someBody")));
         assertThat(mockServerMatcher.retrieveAction(new HttpRequest().withPath("somePath")), nullValue());
-        assertThat(mockServerMatcher.expectations, empty());
+        assertThat(mockServerMatcher.expectations(), empty());
     }
 
     @Test
@@ -68,6 +76,28 @@ public class MockServerMatcherManageExpectationsTest {
 
         // then
         assertThat(mockServerMatcher.retrieveAction(new HttpRequest().withPath("somePath")), Is.<Action>is(httpResponse.withBody("someBody")));
-        assertThat(mockServerMatcher.expectations.size(), is(1));
+        assertThat(mockServerMatcher.expectations().size(), is(1));
+    }
+
+    @Test
+    public void shouldAddManyExpectations() {
+        // given
+        HttpResponse firstResponse = new HttpResponse().withBody("first");
+        HttpResponse secondResponse = new HttpResponse().withBody("second");
+        HttpForward forward = new HttpForward().withHost("localhost");
+
+        // when
+        mockServerMatcher.add(Arrays.asList(
+                new Expectation(new HttpRequest().withPath("somePath"), Times.unlimited(), TimeToLive.unlimited()).thenRespond(firstResponse),
+                new Expectation(new HttpRequest().withPath("somePath"), Times.unlimited(), TimeToLive.unlimited()).thenRespond(secondResponse),
+                new Expectation(new HttpRequest().withPath("otherPath"), Times.unlimited(), TimeToLive.unlimited()).thenForward(forward)
+        ));
+
+        // then - an unlimited expectation only responds once when another expectation has the same request
+        assertThat(mockServerMatcher.expectations().size(), is(3));
+        assertThat(mockServerMatcher.retrieveAction(new HttpRequest().withPath("somePath")), Is.<Action>is(firstResponse));
+        assertThat(mockServerMatcher.retrieveAction(new HttpRequest().withPath("somePath")), Is.<Action>is(secondResponse));
+        assertThat(mockServerMatcher.retrieveAction(new HttpRequest().withPath("somePath")), Is.<Action>is(secondResponse));
+        assertThat(mockServerMatcher.retrieveAction(new HttpRequest().withPath("otherPath")), Is.<Action>is(forward));
     }
 }
@@ -0,0 +1,53 @@
+package org.mockserver.mock;
+
+import org.junit.Test;
+import org.mockserver.model.Cookie;
+import org.mockserver.model.Header;
+import org.mockserver.model.Parameter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.mockserver.model.BinaryBody.binary;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.StringBody.exact;
+
+/**
+ * @author jamesdbloom
+ */
+public class RequestFingerprintTest {
+
+    @Test
+    public void shouldIgnoreOrderOfParametersHeadersAndCookies() {
+        assertThat(
+                RequestFingerprint.fingerprint(request().withPath("/some/path")
+                        .withQueryStringParameters(new Parameter("a", "1"), new Parameter("b", "2"))
+                        .withHeaders(new Header("Accept", "text/plain"), new Header("Host", "localhost"))
+                        .withCookies(new Cookie("a", "1"), new Cookie("b", "2"))),
+                is(RequestFingerprint.fingerprint(request().withPath("/some/path")
+                        .withQueryStringParameters(new Parameter("b", "2"), new Parameter("a", "1"))
+                        .withHeaders(new Header("Host", "localhost"), new Header("Accept", "text/plain"))
+                        .withCookies(new Cookie("b", "2"), new Cookie("a", "1"))))
+        );
+    }
+
+    @Test
+    public void shouldDistinguishEveryMatchedField() {
+        String fingerprint = RequestFingerprint.fingerprint(request().withMethod("GET").withPath("/some/path").withBody("some_body"));
+
+        assertThat(RequestFingerprint.fingerprint(request().withMethod("GET").withPath("/some/path").withBody("some_body")), is(fingerprint));
+        assertThat(RequestFingerprint.fingerprint(request().withMethod("POST").withPath("/some/path").withBody("some_body")), is(not(fingerprint)));
+        assertThat(RequestFingerprint.fingerprint(request().withMethod("GET").withPath("/some/other").withBody("some_body")), is(not(fingerprint)));
+        assertThat(RequestFingerprint.fingerprint(request().withMethod("GET").withPath("/some/path").withBody("other_body")), is(not(fingerprint)));
+        assertThat(RequestFingerprint.fingerprint(request().withMethod("GET").withPath("/some/path").withBody(binary("some_body".getBytes()))), is(not(fingerprint)));
+        assertThat(RequestFingerprint.fingerprint(request().withMethod("GET").withPath("/some/path").withBody(exact("some_body")).withSecure(true)), is(not(fingerprint)));
+        assertThat(RequestFingerprint.fingerprint(request().withMethod("GET").withPath("/some/path").withBody(exact("some_body")).withHeader("a", "b")), is(not(fingerprint)));
+        assertThat(RequestFingerprint.fingerprint(request().withMethod("GET").withPath("/some/path").withBody(exact("some_body")).withKeepAlive(true)), is(not(fingerprint)));
+    }
+
+    @Test
+    public void shouldNotConfuseAdjacentValues() {
+        assertThat(RequestFingerprint.fingerprint(request().withHeader("ab", "c")), is(not(RequestFingerprint.fingerprint(request().withHeader("a", "bc")))));
+        assertThat(RequestFingerprint.fingerprint(request().withHeader("a", "b", "c")), is(not(RequestFingerprint.fingerprint(request().withHeader("a", "b,c")))));
+    }
+}
@@ -3,8 +3,11 @@ package org.mockserver.validator;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
+import org.mockserver.client.serialization.ObjectMapperFactory;
 import org.slf4j.Logger;
 
+import java.io.IOException;
+
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -65,6 +68,22 @@ public class JsonSchemaValidatorTest {
         assertThat(new JsonSchemaValidator(JSON_SCHEMA).isValid("{arrayField: [ \"one\" ], enumField: \"one\"}"), is(""));
     }
 
+    @Test
+    public void shouldMatchParsedJson() throws IOException {
+        JsonSchemaValidator jsonSchemaValidator = new JsonSchemaValidator(JSON_SCHEMA);
+
+        assertThat(jsonSchemaValidator.isValidJsonNode(ObjectMapperFactory.createObjectMapper().readTree("{arrayField: [ \"one\" ], enumField: \"one\"}")), is(""));
+        assertThat(jsonSchemaValidator.isValidJsonNode(ObjectMapperFactory.createObjectMapper().readTree("{}")), is(jsonSchemaValidator.isValid("{}")));
+        assertThat(jsonSchemaValidator.isValidJsonNode(null), is("JSON is empty or could not be parsed"));
+    }
+
+    @Test
+    public void shouldHandleIllegalSchemaForParsedJson() {
+        assertThat(new JsonSchemaValidator("illegal_json").isValidJsonNode(null),
+                is("JsonParseException - Unrecognized token 'illegal_json': was expecting ('true', 'false' or 'null')" + NEW_LINE +
+                " at [Source: illegal_json; line: 1, column: 25]"));
+    }
+
     @Test
     public void shouldHandleJsonMissingRequiredFields() {
         // then
@@ -1,5 +1,6 @@
 package org.mockserver.validator;
 
+import com.google.common.base.Charsets;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -74,6 +75,25 @@ public class XmlSchemaValidatorTest {
                 "</notes>"), is(""));
     }
 
+    @Test
+    public void shouldMatchXmlBytesUsingDeclaredCharset() {
+        // given
+        String xml = "<?xml version=\"1.0\" encoding=\"utf-8\"?>" + NEW_LINE +
+                "<notes>" + NEW_LINE +
+                "    <note>" + NEW_LINE +
+                "        <to>Bj\u00f6rn</to>" + NEW_LINE +
+                "        <from>Bill</from>" + NEW_LINE +
+                "        <heading>Reminder</heading>" + NEW_LINE +
+                "        <body>Buy Bread</body>" + NEW_LINE +
+                "    </note>" + NEW_LINE +
+                "</notes>";
+
+        // then
+        assertThat(new XmlSchemaValidator(XML_SCHEMA).isValid(xml.getBytes(Charsets.UTF_16), Charsets.UTF_16), is(""));
+        assertThat(new XmlSchemaValidator(XML_SCHEMA).isValid(xml.getBytes(Charsets.ISO_8859_1), Charsets.ISO_8859_1), is(""));
+        assertThat(new XmlSchemaValidator(XML_SCHEMA).isValid("<notes><note><to>Bob</to></note></notes>".getBytes(Charsets.UTF_8), Charsets.UTF_8), is("cvc-complex-type.2.4.b: The content of element 'note' is not complete. One of '{from}' is expected."));
+    }
+
     @Test
     public void shouldHandleXmlMissingRequiredFields() {
         // then
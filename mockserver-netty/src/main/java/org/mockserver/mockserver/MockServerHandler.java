@@ -26,6 +26,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.BindException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static io.netty.handler.codec.http.HttpHeaderNames.*;
@@ -100,21 +102,24 @@ public class MockServerHandler extends SimpleChannelInboundHandler<HttpRequest>
 
             } else if (request.matches("PUT", "/expectation")) {
 
-                for (Expectation expectation : expectationSerializer.deserializeArray(request.getBodyAsString())) {
-                    String validationErrors = expectationValidator.isValid(expectation);
-                    if (validationErrors.isEmpty()) {
-                        KeyAndCertificateFactory.addSubjectAlternativeName(expectation.getHttpRequest().getFirstHeader(HOST.toString()));
-                        mockServerMatcher
-                                .when(expectation.getHttpRequest(), expectation.getTimes(), expectation.getTimeToLive())
-                                .thenRespond(expectation.getHttpResponse())
-                                .thenForward(expectation.getHttpForward())
-                                .thenError(expectation.getHttpError())
-                                .thenCallback(expectation.getHttpClassCallback())
-                                .thenCallback(expectation.getHttpObjectCallback());
-                        logFormatter.infoLog("creating expectation:{}", expectation);
+                Expectation[] expectations = expectationSerializer.deserializeArray(request.getBodyAsString());
+                String[] validationErrors = new String[expectations.length];
+                List<Expectation> validExpectations = new ArrayList<Expectation>(expectations.length);
+                for (int i = 0; i < expectations.length; i++) {
+                    validationErrors[i] = expectationValidator.isValid(expectations[i]);
+                    if (validationErrors[i].isEmpty()) {
+                        KeyAndCertificateFactory.addSubjectAlternativeName(expectations[i].getHttpRequest().getFirstHeader(HOST.toString()));
+                        validExpectations.add(expectations[i]);
+                    }
+                }
+                // added in one change so loading many expectations doesn't copy the expectations once per expectation
+                mockServerMatcher.add(validExpectations);
+                for (int i = 0; i < expectations.length; i++) {
+                    if (validationErrors[i].isEmpty()) {
+                        logFormatter.infoLog("creating expectation:{}", expectations[i]);
                         writeResponse(ctx, request, CREATED);
                     } else {
-                        writeResponse(ctx, request, NOT_ACCEPTABLE, validationErrors, MediaType.create("text", "plain").toString());
+                        writeResponse(ctx, request, NOT_ACCEPTABLE, validationErrors[i], MediaType.create("text", "plain").toString());
                     }
                 }
 
@@ -171,6 +176,24 @@ public class MockServerHandler extends SimpleChannelInboundHandler<HttpRequest>
                     writeResponse(ctx, request, NOT_ACCEPTABLE, result, MediaType.create("text", "plain").toString());
                 }
 
+            } else if (request.matches("PUT", "/registerVerificationCounter")) {
+
+                HttpRequest httpRequest = httpRequestSerializer.deserialize(request.getBodyAsString());
+                requestLogFilter.registerVerificationCounter(httpRequest);
+                logFormatter.infoLog("counting requests that match:{}", httpRequest);
+                writeResponse(ctx, request, ACCEPTED);
+
+            } else if (request.matches("PUT", "/verifyBatch")) {
+
+                Verification[] verifications = verificationSerializer.deserializeArray(request.getBodyAsString());
+                String result = requestLogFilter.verify(verifications);
+                logFormatter.infoLog("verifying batch that match:{}", Arrays.asList(verifications));
+                if (result.isEmpty()) {
+                    writeResponse(ctx, request, ACCEPTED);
+                } else {
+                    writeResponse(ctx, request, NOT_ACCEPTABLE, result, MediaType.create("text", "plain").toString());
+                }
+
             } else if (request.matches("PUT", "/verifySequence")) {
 
                 VerificationSequence verificationSequence = verificationSequenceSerializer.deserialize(request.getBodyAsString());
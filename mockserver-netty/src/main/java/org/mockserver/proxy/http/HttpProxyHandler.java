@@ -29,6 +29,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
+import java.util.Arrays;
 
 import static io.netty.handler.codec.http.HttpHeaderNames.CONNECTION;
 import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_TYPE;
@@ -132,6 +133,24 @@ public class HttpProxyHandler extends SimpleChannelInboundHandler<HttpRequest> {
                     writeResponse(ctx, request, NOT_ACCEPTABLE, result, MediaType.create("text", "plain").toString());
                 }
 
+            } else if (request.matches("PUT", "/registerVerificationCounter")) {
+
+                HttpRequest httpRequest = httpRequestSerializer.deserialize(request.getBodyAsString());
+                requestLogFilter.registerVerificationCounter(httpRequest);
+                logFormatter.infoLog("counting requests that match:{}", httpRequest);
+                writeResponse(ctx, request, ACCEPTED);
+
+            } else if (request.matches("PUT", "/verifyBatch")) {
+
+                Verification[] verifications = verificationSerializer.deserializeArray(request.getBodyAsString());
+                logFormatter.infoLog("verifying batch:{}", Arrays.asList(verifications));
+                String result = requestLogFilter.verify(verifications);
+                if (result.isEmpty()) {
+                    writeResponse(ctx, request, ACCEPTED);
+                } else {
+                    writeResponse(ctx, request, NOT_ACCEPTABLE, result, MediaType.create("text", "plain").toString());
+                }
+
             } else if (request.matches("PUT", "/verifySequence")) {
 
                 VerificationSequence verificationSequence = verificationSequenceSerializer.deserialize(request.getBodyAsString());
@@ -3,8 +3,6 @@ package org.mockserver.mockserver;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import org.junit.Test;
 import org.mockserver.configuration.ConfigurationProperties;
-import org.mockserver.matchers.TimeToLive;
-import org.mockserver.matchers.Times;
 import org.mockserver.mock.Expectation;
 import org.mockserver.model.*;
 import org.mockserver.verify.Verification;
@@ -145,11 +143,7 @@ public class MockServerHandlerGeneralOperationsTest extends MockServerHandlerTes
         verify(mockExpectationSerializer).deserializeArray("some_content");
 
         // and - expectation correctly setup
-        verify(mockMockServerMatcher).when(any(HttpRequest.class), any(Times.class), any(TimeToLive.class));
-        verify(mockExpectation).thenRespond(any(HttpResponse.class));
-        verify(mockExpectation).thenForward(any(HttpForward.class));
-        verify(mockExpectation).thenError(any(HttpError.class));
-        verify(mockExpectation).thenCallback(any(HttpClassCallback.class));
+        verify(mockMockServerMatcher).add(Arrays.asList(mockExpectation));
 
         // and - correct response written to ChannelHandlerContext
         HttpResponse httpResponse = (HttpResponse) embeddedChannel.readOutbound();
@@ -119,6 +119,18 @@ public class ProxyServlet extends HttpServlet {
                 addCORSHeadersForAPI(httpServletResponse);
                 verifyResponse(httpServletResponse, result);
 
+            } else if (request.matches("PUT", "/registerVerificationCounter")) {
+
+                requestLogFilter.registerVerificationCounter(httpRequestSerializer.deserialize(request.getBodyAsString()));
+                httpServletResponse.setStatus(ACCEPTED_202.code());
+                addCORSHeadersForAPI(httpServletResponse);
+
+            } else if (request.matches("PUT", "/verifyBatch")) {
+
+                String result = requestLogFilter.verify(verificationSerializer.deserializeArray(request.getBodyAsString()));
+                addCORSHeadersForAPI(httpServletResponse);
+                verifyResponse(httpServletResponse, result);
+
             } else if (request.matches("PUT", "/verifySequence")) {
 
                 String result = requestLogFilter.verify(verificationSequenceSerializer.deserialize(request.getBodyAsString()));
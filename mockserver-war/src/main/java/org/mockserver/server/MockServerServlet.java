@@ -19,6 +19,8 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.google.common.net.MediaType.JSON_UTF_8;
 import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_TYPE;
@@ -81,12 +83,14 @@ public class MockServerServlet extends HttpServlet {
             } else if (request.matches("PUT", "/expectation")) {
 
                 addCORSHeadersForAPI(httpServletResponse);
+                List<Expectation> supportedExpectations = new ArrayList<Expectation>();
                 for (Expectation expectation : expectationSerializer.deserializeArray(request.getBodyAsString())) {
                     Action action = expectation.getAction();
                     if (validateSupportedFeatures(action, httpServletResponse)) {
-                        mockServerMatcher.when(expectation.getHttpRequest(), expectation.getTimes(), expectation.getTimeToLive()).thenRespond(expectation.getHttpResponse()).thenForward(expectation.getHttpForward()).thenCallback(expectation.getHttpClassCallback());
+                        supportedExpectations.add(expectation);
                     }
                 }
+                mockServerMatcher.add(supportedExpectations);
                 httpServletResponse.setStatus(CREATED_201.code());
 
             } else if (request.matches("PUT", "/clear")) {
@@ -137,6 +141,18 @@ public class MockServerServlet extends HttpServlet {
                 addCORSHeadersForAPI(httpServletResponse);
                 verifyResponse(httpServletResponse, result);
 
+            } else if (request.matches("PUT", "/registerVerificationCounter")) {
+
+                requestLogFilter.registerVerificationCounter(httpRequestSerializer.deserialize(request.getBodyAsString()));
+                httpServletResponse.setStatus(ACCEPTED_202.code());
+                addCORSHeadersForAPI(httpServletResponse);
+
+            } else if (request.matches("PUT", "/verifyBatch")) {
+
+                String result = requestLogFilter.verify(verificationSerializer.deserializeArray(request.getBodyAsString()));
+                addCORSHeadersForAPI(httpServletResponse);
+                verifyResponse(httpServletResponse, result);
+
             } else if (request.matches("PUT", "/verifySequence")) {
 
                 String result = requestLogFilter.verify(verificationSequenceSerializer.deserialize(request.getBodyAsString()));
@@ -27,6 +27,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
@@ -208,13 +209,12 @@ public class MockServerServletTest {
                                 .withBody("requestBytes")
                 );
         when(mockExpectationSerializer.deserializeArray("requestBytes")).thenReturn(new Expectation[]{expectation});
-        when(mockMockServerMatcher.when(same(httpRequest), same(times), same(timeToLive))).thenReturn(expectation);
 
         // when
         mockServerServlet.service(new MockHttpServletRequest(), httpServletResponse);
 
         // then
-        verify(mockMockServerMatcher).when(same(httpRequest), same(times), same(timeToLive));
+        verify(mockMockServerMatcher).add(Arrays.asList(expectation));
         assertEquals(HttpServletResponse.SC_CREATED, httpServletResponse.getStatus());
     }
 